@@ -0,0 +1,82 @@
+package com.github.luka5w.fileservercli.cli;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks parsing and printing of file listings: as tree ({@link Command#formatJson(Object)}) and streaming
+ * ({@link JsonPrinter}).
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonBenchmark {
+
+    private static final Writer DISCARD = new Writer() {
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Param({"100", "10000"})
+    public int entries;
+
+    private String listing;
+
+    @Setup
+    public void setUp() {
+        JSONArray files = new JSONArray();
+        for (int i = 0; i < this.entries; i++) {
+            files.put(new JSONObject()
+                    .put("id", i)
+                    .put("name", "file-" + i + ".txt")
+                    .put("size", i * 1024L)
+                    .put("owner", "bench")
+                    .put("modified", "2026-10-17T12:00:00Z"));
+        }
+        this.listing = files.toString();
+    }
+
+    @Benchmark
+    public JSONArray parse() {
+        return new JSONArray(this.listing);
+    }
+
+    @Benchmark
+    public String parseAndFormat() {
+        return Command.formatJson(new JSONArray(this.listing));
+    }
+
+    @Benchmark
+    public void print() throws IOException {
+        new JsonPrinter(DISCARD).print(new StringReader(this.listing));
+    }
+}
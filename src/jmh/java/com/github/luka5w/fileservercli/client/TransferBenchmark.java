@@ -0,0 +1,96 @@
+package com.github.luka5w.fileservercli.client;
+
+import com.github.luka5w.fileservercli.log.Log;
+import com.github.luka5w.fileservercli.stub.StubFileServer;
+import com.github.luka5w.http.HttpRequest;
+import com.github.luka5w.http.SessionConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the download and upload pipelines against a {@link StubFileServer} on the loopback interface.
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TransferBenchmark {
+
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Param({"65536", "16777216"})
+    public int size;
+
+    @Param({"1048576"})
+    public long chunkSize;
+
+    @Param({"4"})
+    public int parallel;
+
+    private StubFileServer server;
+    private FileServerClient client;
+    private String id;
+    private File directory;
+    private File input;
+
+    @Setup
+    public void setUp() throws Exception {
+        Log.setLevel(Log.WARN);
+        this.server = new StubFileServer(0);
+        this.client = new FileServerClient(this.server.getUri(), "bench", "bench", new SessionConfig(8, 60000, 10000, 30000, 64, 86400, false, 5, 500, 30000));
+        this.directory = Files.createTempDirectory("transfer-benchmark").toFile();
+        this.input = new File(this.directory, "input.bin");
+        byte[] content = new byte[this.size];
+        new Random(1).nextBytes(content);
+        Files.write(this.input.toPath(), content);
+        this.id = this.client.createFile();
+        this.client.putFileContent(this.id, HttpRequest.Body.of(content), null, null, null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.client.close();
+        this.server.close();
+        File[] files = this.directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        this.directory.delete();
+    }
+
+    @Benchmark
+    public long download() throws IOException {
+        return new FileDownload(this.client, this.id, TransferListener.NONE).toStream(DISCARD);
+    }
+
+    @Benchmark
+    public long upload() throws IOException {
+        return new FileUpload(this.client, this.id, this.input, this.chunkSize, this.parallel, this.directory, TransferListener.NONE).upload();
+    }
+}
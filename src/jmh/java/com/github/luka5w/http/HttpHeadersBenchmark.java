@@ -0,0 +1,142 @@
+package com.github.luka5w.http;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks writing requests and reading responses (status line and headers) of a {@link HttpConnection}, without
+ * network: the connection writes to a sink and reads the same response again and again.
+ *
+ * @author Lukas https://github.com/luka5w
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HttpHeadersBenchmark {
+
+    private static final byte[] RESPONSE = ("HTTP/1.1 200 OK\r\n"
+            + "Date: Sat, 17 Oct 2026 12:00:00 GMT\r\n"
+            + "Server: FileServer\r\n"
+            + "Content-Type: application/json; charset=utf-8\r\n"
+            + "Cache-Control: no-cache\r\n"
+            + "ETag: \"33a64df551425fcc55e4d42a148795d9f25f89d4\"\r\n"
+            + "Last-Modified: Sat, 17 Oct 2026 11:00:00 GMT\r\n"
+            + "Vary: Accept-Encoding\r\n"
+            + "Connection: keep-alive\r\n"
+            + "Keep-Alive: timeout=60\r\n"
+            + "Content-Length: 2\r\n"
+            + "\r\n"
+            + "[]").getBytes(StandardCharsets.ISO_8859_1);
+
+    private HttpConnection connection;
+    private HttpRequest request;
+    private HttpHeaders defaultHeaders;
+    private HttpHeaders headers;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.connection = new HttpConnection(new Socket() {
+            private final InputStream in = new RepeatingInputStream(RESPONSE);
+            private final OutputStream out = new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                }
+            };
+
+            @Override
+            public InputStream getInputStream() {
+                return this.in;
+            }
+
+            @Override
+            public OutputStream getOutputStream() {
+                return this.out;
+            }
+        });
+        this.request = new HttpRequest(HttpMethod.GET, "/api/v1/files/123/metadata")
+                .header("Authorization", "Basic YmVuY2g6YmVuY2g=")
+                .header("If-None-Match", "\"33a64df551425fcc55e4d42a148795d9f25f89d4\"");
+        this.defaultHeaders = new HttpHeaders()
+                .set("User-Agent", "FileServerCLI")
+                .set("Accept-Encoding", "gzip, deflate");
+        this.headers = new HttpHeaders();
+        this.headers.add("Content-Type", "application/json; charset=utf-8");
+        this.headers.add("Cache-Control", "no-cache, no-store");
+        this.headers.add("Connection", "keep-alive");
+        this.headers.add("Content-Length", "1234");
+    }
+
+    @Benchmark
+    public void writeRequest() throws IOException {
+        this.connection.writeRequest(this.request, "127.0.0.1:8443", "", this.defaultHeaders);
+    }
+
+    @Benchmark
+    public int readResponse() throws IOException {
+        HttpResponse response = this.connection.readResponse(this.request, null);
+        InputStream body = response.getBody();
+        int length = 0;
+        while (body.read() != -1) {
+            length++;
+        }
+        // not closed, the connection is not pooled
+        return length;
+    }
+
+    @Benchmark
+    public long lookupHeaders() {
+        long result = this.headers.getContentLength();
+        if (this.headers.containsToken("Cache-Control", "no-store")) {
+            result++;
+        }
+        if (this.headers.contains("ETag")) {
+            result++;
+        }
+        return result + this.headers.get("content-type").length();
+    }
+
+    /**
+     * Returns the same bytes again and again.
+     */
+    private static class RepeatingInputStream extends InputStream {
+
+        private final byte[] data;
+        private int position = 0;
+
+        RepeatingInputStream(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read() {
+            int b = this.data[this.position] & 0xFF;
+            this.position = (this.position + 1) % this.data.length;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            int n = Math.min(len, this.data.length - this.position);
+            System.arraycopy(this.data, this.position, b, off, n);
+            this.position = (this.position + n) % this.data.length;
+            return n;
+        }
+    }
+}
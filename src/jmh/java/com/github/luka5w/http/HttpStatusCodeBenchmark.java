@@ -0,0 +1,31 @@
+package com.github.luka5w.http;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link HttpStatusCode#findByCode(int)} for frequent, rare and unknown codes.
+ *
+ * @author Lukas https://github.com/luka5w
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HttpStatusCodeBenchmark {
+
+    @Param({"200", "404", "511", "299"})
+    public int code;
+
+    @Benchmark
+    public HttpStatusCode findByCode() {
+        return HttpStatusCode.findByCode(this.code);
+    }
+}
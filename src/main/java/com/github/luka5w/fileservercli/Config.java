@@ -0,0 +1,268 @@
+package com.github.luka5w.fileservercli;
+
+import com.github.luka5w.http.SessionConfig;
+import com.github.luka5w.util.data.Utils;
+import org.ini4j.Ini;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The config file of the program ({@link Constants#FILE_CONFIG} or the file passed with {@code -c}).
+ *
+ * <p>Missing or invalid values are replaced by the defaults, which are also written by {@code --setup}.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class Config {
+
+    /**
+     * section, key, default value
+     */
+    private static final String[][] DEFAULTS = {
+            {"main", "log-level", "2"},
+            {"main", "log-buffer-size", "1024"},
+            {"main", "log-overflow", "block"},
+            {"connection", "pool-size", "8"},
+            {"connection", "idle-timeout", "60000"},
+            {"connection", "connect-timeout", "10000"},
+            {"connection", "read-timeout", "30000"},
+            {"connection", "tls-session-cache-size", "64"},
+            {"connection", "tls-session-timeout", "86400"},
+            {"connection", "compression", "true"},
+            {"connection", "session-tokens", "memory"},
+            {"retry", "attempts", "5"},
+            {"retry", "delay", "500"},
+            {"retry", "max-delay", "30000"},
+            {"upload", "chunk-size", "8M"},
+            {"upload", "parallel", "4"},
+            {"upload", "compression", "none"},
+            {"upload", "compression-skip", "7z,avi,bz2,docx,gif,gz,jar,jpeg,jpg,mkv,mov,mp3,mp4,odt,pdf,png,pptx,rar,tgz,webm,webp,xlsx,xz,zip,zst"},
+            {"upload", "delta", "false"},
+            {"upload", "delta-block-size", "64K"},
+            {"integrity", "verify", "true"},
+            {"shell", "progress-interval", "5000"},
+            {"batch", "parallel", "8"},
+            {"bulk", "parallel", "8"},
+            {"bulk", "batch-size", "500"},
+            {"daemon", "enabled", "false"},
+            {"daemon", "idle-timeout", "600000"},
+            {"bench", "clients", "8"},
+            {"bench", "duration", "10"},
+            {"bench", "mix", "g:70,c:10,l:20"},
+            {"bench", "size", "64K"},
+            {"sync", "parallel", "4"},
+            {"listing", "page-size", "0"},
+            {"listing", "limit", "0"},
+            {"cache", "metadata-max-entries", "1000"},
+            {"cache", "metadata-max-size", "16M"},
+            {"cache", "metadata-persist", "false"},
+            {"cache", "content", "false"},
+            {"cache", "content-max-size", "1G"}
+    };
+
+    private final Ini ini;
+    private final File directory;
+    private final Map<String, String> overrides = new HashMap<>();
+
+    /**
+     * Creates a new config.
+     *
+     * @param ini The loaded config file.
+     * @param directory The directory of the config file, used for files of the program (e.g. journals).
+     */
+    public Config(Ini ini, File directory) {
+        this.ini = ini;
+        this.directory = directory;
+    }
+
+    /**
+     * Loads a config file.
+     *
+     * @param file The config file.
+     * @return The config.
+     * @throws IOException When the file can't be read or is malformed.
+     */
+    public static Config load(File file) throws IOException {
+        return new Config(new Ini(file), file.getAbsoluteFile().getParentFile());
+    }
+
+    /**
+     * Writes the default config.
+     *
+     * @param file The config file (will be overwritten).
+     * @throws IOException When the file can't be written.
+     */
+    public static void writeDefaults(File file) throws IOException {
+        Ini ini = new Ini();
+        for (String[] entry : DEFAULTS) {
+            ini.put(entry[0], entry[1], entry[2]);
+        }
+        ini.store(file);
+    }
+
+    /**
+     * Gets a value.
+     *
+     * @param section The section of the value.
+     * @param key The key of the value.
+     * @return The value or the default value when the key is not set.
+     */
+    public String getString(String section, String key) {
+        String value = this.overrides.get(section + "." + key);
+        if (value == null) {
+            value = this.ini.get(section, key);
+        }
+        return value == null ? getDefault(section, key) : value;
+    }
+
+    /**
+     * Overrides a value of the config file (e.g. with the value of a command line option).
+     *
+     * @param section The section of the value.
+     * @param key The key of the value.
+     * @param value The new value.
+     */
+    public void override(String section, String key, String value) {
+        getDefault(section, key);
+        this.overrides.put(section + "." + key, value);
+    }
+
+    /**
+     * Gets an integer value.
+     *
+     * @param section The section of the value.
+     * @param key The key of the value.
+     * @return The value or the default value when the key is not set or invalid.
+     */
+    public int getInt(String section, String key) {
+        String value = this.getString(section, key);
+        try {
+            return Integer.parseInt(value.trim());
+        }
+        catch (NumberFormatException e) {
+            this.warnInvalid(section, key, value);
+            return Integer.parseInt(getDefault(section, key));
+        }
+    }
+
+    /**
+     * Gets a long value.
+     *
+     * @param section The section of the value.
+     * @param key The key of the value.
+     * @return The value or the default value when the key is not set or invalid.
+     */
+    public long getLong(String section, String key) {
+        String value = this.getString(section, key);
+        try {
+            return Long.parseLong(value.trim());
+        }
+        catch (NumberFormatException e) {
+            this.warnInvalid(section, key, value);
+            return Long.parseLong(getDefault(section, key));
+        }
+    }
+
+    /**
+     * Gets a size in bytes (e.g. {@code 512}, {@code 64K}, {@code 8M}, {@code 1G}).
+     *
+     * @param section The section of the value.
+     * @param key The key of the value.
+     * @return The value or the default value when the key is not set or invalid.
+     */
+    public long getSize(String section, String key) {
+        String value = this.getString(section, key);
+        try {
+            return parseSize(value);
+        }
+        catch (NumberFormatException e) {
+            this.warnInvalid(section, key, value);
+            return parseSize(getDefault(section, key));
+        }
+    }
+
+    /**
+     * Parses a size in bytes with an optional unit ({@code K}, {@code M}, {@code G}, base 1024).
+     *
+     * @param value The size.
+     * @return The size in bytes.
+     * @throws NumberFormatException When the value is not a valid size.
+     */
+    public static long parseSize(String value) {
+        value = value.trim().toUpperCase();
+        int shift = 0;
+        if (value.endsWith("K")) {
+            shift = 10;
+        }
+        else if (value.endsWith("M")) {
+            shift = 20;
+        }
+        else if (value.endsWith("G")) {
+            shift = 30;
+        }
+        long size = Long.parseLong(shift == 0 ? value : value.substring(0, value.length() - 1).trim());
+        if (size < 0) {
+            throw new NumberFormatException("negative size: " + value);
+        }
+        return size << shift;
+    }
+
+    /**
+     * @return The directory of the config file, used for files of the program.
+     */
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Gets a boolean value ({@code true}/{@code 1} or {@code false}/{@code 0}).
+     *
+     * @param section The section of the value.
+     * @param key The key of the value.
+     * @return The value or the default value when the key is not set or invalid.
+     */
+    public boolean getBoolean(String section, String key) {
+        String value = this.getString(section, key);
+        try {
+            return Utils.isTrue(value.trim());
+        }
+        catch (IllegalArgumentException e) {
+            this.warnInvalid(section, key, value);
+            return Utils.isTrue(getDefault(section, key));
+        }
+    }
+
+    /**
+     * @return The settings for the connection to the server (sections {@code connection} and {@code retry}).
+     */
+    public SessionConfig getSessionConfig() {
+        return new SessionConfig(
+                Math.max(1, this.getInt("connection", "pool-size")),
+                this.getLong("connection", "idle-timeout"),
+                this.getInt("connection", "connect-timeout"),
+                this.getInt("connection", "read-timeout"),
+                this.getInt("connection", "tls-session-cache-size"),
+                this.getInt("connection", "tls-session-timeout"),
+                this.getBoolean("connection", "compression"),
+                Math.max(1, this.getInt("retry", "attempts")),
+                this.getLong("retry", "delay"),
+                this.getLong("retry", "max-delay"));
+    }
+
+    private void warnInvalid(String section, String key, String value) {
+        Main.getLogger("Config").warn("Invalid value for [" + section + "] " + key + ": " + value + " Using default (" + getDefault(section, key) + ").");
+    }
+
+    private static String getDefault(String section, String key) {
+        for (String[] entry : DEFAULTS) {
+            if (entry[0].equals(section) && entry[1].equals(key)) {
+                return entry[2];
+            }
+        }
+        throw new IllegalArgumentException("no default value for [" + section + "] " + key);
+    }
+}
@@ -1,6 +1,19 @@
 package com.github.luka5w.fileservercli;
 
-import com.github.luka5w.util.cli.Logger;
+import com.github.luka5w.fileservercli.cli.BatchRunner;
+import com.github.luka5w.fileservercli.cli.Context;
+import com.github.luka5w.fileservercli.cli.Daemon;
+import com.github.luka5w.fileservercli.cli.DaemonClient;
+import com.github.luka5w.fileservercli.cli.MetricsReport;
+import com.github.luka5w.fileservercli.cli.Shell;
+import com.github.luka5w.fileservercli.cli.commands.BenchCommand;
+import com.github.luka5w.fileservercli.cli.commands.ConnectCommand;
+import com.github.luka5w.fileservercli.cli.commands.FileCommand;
+import com.github.luka5w.fileservercli.cli.commands.OtherCommand;
+import com.github.luka5w.fileservercli.cli.commands.StatsCommand;
+import com.github.luka5w.fileservercli.cli.commands.VersionsCommand;
+import com.github.luka5w.fileservercli.log.Log;
+import com.github.luka5w.fileservercli.stub.StubFileServer;
 import com.github.luka5w.util.data.Utils;
 import com.github.luka5w.util.program.DefaultOption;
 import com.github.luka5w.util.program.MainClass;
@@ -8,11 +21,18 @@ import com.github.luka5w.util.program.Program;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
-import org.ini4j.Ini;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.security.GeneralSecurityException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * FileServer
@@ -24,10 +44,11 @@ import java.security.GeneralSecurityException;
  */
 public class Main implements MainClass {
 
-    private static int LOG_LEVEL = 0;
-    private static Logger LOGGER = new Logger(Constants.PROGRAM_NAME, LOG_LEVEL);
-
-    private Ini ini;
+    private static final Log LOGGER = Log.getRoot();
+    /**
+     * The options which override the config, passed to a daemon started by this invocation.
+     */
+    private static final List<String> CONFIG_OPTIONS = Arrays.asList("chunk-size", "parallel", "compress", "delta", "page-size", "limit", "batch-parallel");
 
     public static void main(String[] args) {
         Main main = new Main();
@@ -41,40 +62,232 @@ public class Main implements MainClass {
      *
      * @param subLogger The name of the part of the program.
      *
-     * @return The logger for the part of the program.
+     * @return The logger for the part of the program (the same instance for every call with the same name).
      */
-    public static Logger getLogger(String subLogger) {
-        return new Logger(subLogger, LOGGER);
+    public static Log getLogger(String subLogger) {
+        return Log.get(subLogger);
     }
 
     @Override
     public void getOptions(Options options) {
-        /**
-         * usage
-         * @see Options#addOption(Option)
-         * @see Options#addOption(String, String)
-         * @see Options#addOption(String, boolean, String)
-         * @see Options#addOption(String, String, boolean, String)
-         */
+        options.addOption(Option.builder().longOpt("chunk-size").hasArg().argName("SIZE").desc("size of the chunks of an upload (e.g. 8M), overrides [upload] chunk-size").build());
+        options.addOption(Option.builder().longOpt("parallel").hasArg().argName("N").desc("number of chunks uploaded in parallel, overrides [upload] parallel").build());
+        options.addOption(Option.builder().longOpt("compress").hasArg().argName("CODEC").desc("compresses uploads (gzip, deflate or none), overrides [upload] compression").build());
+        options.addOption(Option.builder().longOpt("delta").desc("uploads only the changed blocks of modified files (f -m), overrides [upload] delta").build());
+        options.addOption(Option.builder().longOpt("page-size").hasArg().argName("N").desc("requests listings (o -l, f -l) in pages of N entries, overrides [listing] page-size").build());
+        options.addOption(Option.builder().longOpt("limit").hasArg().argName("N").desc("prints at most N entries of listings, overrides [listing] limit").build());
+        options.addOption(Option.builder().longOpt("stub-server").hasArg().argName("PORT").desc("runs an in-memory stub FileServer on the loopback interface (0 for any free port) until the program is terminated").build());
+        options.addOption(Option.builder().longOpt("metrics").hasArg().argName("FILE").desc("writes the metrics of the requests to a file on exit (JSON for *.json, otherwise Prometheus text format)").build());
+        options.addOption(Option.builder().longOpt("batch").hasArg().argName("FILE").desc("executes the commands of a file (- for stdin) without user interaction").build());
+        options.addOption(Option.builder().longOpt("batch-parallel").hasArg().argName("N").desc("number of commands executed in parallel in batch mode, overrides [batch] parallel").build());
+        options.addOption(Option.builder().longOpt("daemon").desc("sends the commands to a background process, which keeps the connection and the caches (started if not running), overrides [daemon] enabled").build());
+        options.addOption(Option.builder().longOpt("daemon-stop").desc("stops the background process").build());
+        options.addOption(Option.builder().longOpt("daemon-serve").desc("runs the background process in the foreground (started by --daemon)").build());
     }
 
     @Override
     public void setup(CommandLine cmd, File configFile) {
-        // TODO: 09.01.2021 add loglevel to default config file
+        try {
+            Config.writeDefaults(configFile);
+        }
+        catch (IOException e) {
+            LOGGER.exception("Can't write default config", e, true);
+        }
     }
 
     @Override
     public void main(CommandLine cmd, File configFile) {
+        Config config;
+        try {
+            config = Config.load(configFile);
+        }
+        catch (IOException e) {
+            LOGGER.exception("Can't read config file", e, true);
+            return;
+        }
+        if (cmd.hasOption("chunk-size")) {
+            config.override("upload", "chunk-size", cmd.getOptionValue("chunk-size"));
+        }
+        if (cmd.hasOption("parallel")) {
+            config.override("upload", "parallel", cmd.getOptionValue("parallel"));
+        }
+        if (cmd.hasOption("compress")) {
+            config.override("upload", "compression", cmd.getOptionValue("compress"));
+        }
+        if (cmd.hasOption("delta")) {
+            config.override("upload", "delta", "true");
+        }
+        if (cmd.hasOption("page-size")) {
+            config.override("listing", "page-size", cmd.getOptionValue("page-size"));
+        }
+        if (cmd.hasOption("limit")) {
+            config.override("listing", "limit", cmd.getOptionValue("limit"));
+        }
+        if (cmd.hasOption("batch-parallel")) {
+            config.override("batch", "parallel", cmd.getOptionValue("batch-parallel"));
+        }
+        if (cmd.hasOption("daemon")) {
+            config.override("daemon", "enabled", "true");
+        }
+
         LOGGER.log("Updating log level...");
         try {
-            LOG_LEVEL = Integer.parseInt(this.ini.get("main", "log-level"));
-            LOGGER = new Logger(Constants.PROGRAM_NAME, LOG_LEVEL);
+            Log.setLevel(config.getInt("main", "log-level"));
+        }
+        catch (IllegalArgumentException e) {
+            LOGGER.warn(() -> "Can't update log level: " + e.getMessage() + ". Keeping default level (" + Log.getLevel() + ").");
+        }
+        try {
+            Log.setAppender(config.getInt("main", "log-buffer-size"), config.getString("main", "log-overflow"));
         }
-        catch (NumberFormatException e) {
-            LOGGER.warn("Can't update log level: " + e.getMessage() + " Keeping default level (" + LOG_LEVEL + ").");
+        catch (IllegalArgumentException e) {
+            LOGGER.warn(() -> "Can't update log buffer: " + e.getMessage() + ". Keeping default buffer.");
         }
         LOGGER.debug("Done.");
 
-        // TODO: 09.01.2021 Start cli
+        if (cmd.hasOption("stub-server")) {
+            this.runStubServer(cmd.getOptionValue("stub-server"));
+            return;
+        }
+        if (cmd.hasOption("daemon-stop")) {
+            this.stopDaemon(config);
+            return;
+        }
+        if (config.getBoolean("daemon", "enabled") && !cmd.hasOption("daemon-serve")) {
+            this.runDaemonClient(cmd, configFile, config);
+            return;
+        }
+
+        Context context = new Context(config);
+        Shell shell = new Shell(context);
+        // created on first use, most runs use few commands
+        shell.register("c", () -> new ConnectCommand());
+        shell.register("v", () -> new VersionsCommand());
+        shell.register("o", () -> new OtherCommand());
+        shell.register("f", () -> new FileCommand());
+        shell.register("stats", () -> new StatsCommand());
+        shell.register("bench", () -> new BenchCommand());
+        int failed = 0;
+        try {
+            if (cmd.hasOption("daemon-serve")) {
+                new Daemon(shell, context).run();
+            }
+            else if (cmd.hasOption("batch")) {
+                failed = this.runBatch(shell, cmd.getOptionValue("batch"), config.getInt("batch", "parallel"));
+            }
+            else {
+                shell.run(System.in, System.out);
+            }
+        }
+        catch (IOException e) {
+            LOGGER.exception("Can't read input", e);
+            failed = 1;
+        }
+        finally {
+            context.close();
+            if (cmd.hasOption("metrics")) {
+                this.writeMetrics(context, cmd.getOptionValue("metrics"));
+            }
+            Log.shutdown();
+        }
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    private void runStubServer(String port) {
+        StubFileServer server;
+        try {
+            server = new StubFileServer(Integer.parseInt(port));
+        }
+        catch (IOException | IllegalArgumentException e) {
+            LOGGER.exception("Can't start stub server", e, true);
+            return;
+        }
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            stopped.countDown();
+        }));
+        System.out.println("stub server listening on " + server.getUri());
+        try {
+            stopped.await();
+        }
+        catch (InterruptedException e) {
+            server.close();
+        }
+        Log.shutdown();
+    }
+
+    private void stopDaemon(Config config) {
+        try {
+            System.out.println(DaemonClient.stop(config) ? "daemon stopped" : "daemon not running");
+        }
+        catch (IOException e) {
+            LOGGER.exception("Can't stop daemon", e);
+        }
+        Log.shutdown();
+    }
+
+    private void runDaemonClient(CommandLine cmd, File configFile, Config config) {
+        if (cmd.hasOption("metrics")) {
+            LOGGER.warn("--metrics is ignored with --daemon, use 'stats' instead.");
+        }
+        List<String> arguments = new ArrayList<>(Arrays.asList("-c", configFile.getAbsolutePath(), "--daemon-serve"));
+        for (Option option : cmd.getOptions()) {
+            if (CONFIG_OPTIONS.contains(option.getLongOpt())) {
+                arguments.add("--" + option.getLongOpt());
+                if (option.hasArg()) {
+                    arguments.add(option.getValue());
+                }
+            }
+        }
+        int failed = 0;
+        try (DaemonClient client = DaemonClient.connect(config, arguments)) {
+            if (cmd.hasOption("batch")) {
+                String script = cmd.getOptionValue("batch");
+                try (BufferedReader reader = "-".equals(script) ? new BufferedReader(new InputStreamReader(System.in)) : Files.newBufferedReader(Paths.get(script))) {
+                    StringBuilder commands = new StringBuilder();
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        commands.append(line).append('\n');
+                    }
+                    failed = client.runBatch(commands.toString(), System.out);
+                }
+            }
+            else {
+                client.runShell(new BufferedReader(new InputStreamReader(System.in)), System.out);
+            }
+        }
+        catch (IOException e) {
+            LOGGER.exception("Can't use daemon", e);
+            failed = 1;
+        }
+        Log.shutdown();
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    private void writeMetrics(Context context, String file) {
+        String metrics = file.toLowerCase().endsWith(".json")
+                ? MetricsReport.toJson(context.getMetrics()).toString(2) + System.lineSeparator()
+                : MetricsReport.toPrometheus(context.getMetrics());
+        try {
+            Files.write(Paths.get(file), metrics.getBytes(StandardCharsets.UTF_8));
+        }
+        catch (IOException e) {
+            LOGGER.exception("Can't write metrics", e);
+        }
+    }
+
+    private int runBatch(Shell shell, String script, int parallelism) throws IOException {
+        BatchRunner runner = new BatchRunner(shell, Math.max(1, parallelism));
+        if ("-".equals(script)) {
+            return runner.run(new BufferedReader(new InputStreamReader(System.in)), System.out);
+        }
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(script))) {
+            return runner.run(reader, System.out);
+        }
     }
 }
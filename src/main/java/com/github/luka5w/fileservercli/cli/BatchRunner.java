@@ -0,0 +1,280 @@
+package com.github.luka5w.fileservercli.cli;
+
+import com.github.luka5w.fileservercli.Main;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Executes a script of commands (one command per line) without user interaction.
+ *
+ * <p>Independent commands are executed at the same time, at most {@code parallelism} at once. The outputs are
+ * written in the order of the lines: the output of the first unfinished command is written through, the outputs of
+ * the commands executed ahead of it are buffered (see {@link Output}). Commands which change the state of the shell
+ * (e.g. {@code c}) wait until all previous commands have been finished. Empty lines and lines starting with {@code #}
+ * are skipped.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class BatchRunner {
+
+    private static final String COMMENT = "#";
+    private static final int MAX_BUFFERED = 1024 * 1024;
+
+    private final Shell shell;
+    private final int parallelism;
+
+    /**
+     * Creates a new batch runner.
+     *
+     * @param shell The shell which executes the commands.
+     * @param parallelism The maximum number of commands executed at the same time.
+     */
+    public BatchRunner(Shell shell, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.shell = shell;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Executes all commands and writes a summary of the results.
+     *
+     * @param script The commands.
+     * @param out The output.
+     * @return The number of failed commands.
+     * @throws IOException When the script can't be read.
+     */
+    public int run(BufferedReader script, PrintStream out) throws IOException {
+        Map<String, Integer> summary = new TreeMap<>();
+        Deque<Output> pending = new ArrayDeque<>();
+        Semaphore running = new Semaphore(this.parallelism);
+        ExecutorService executor = newExecutor(this.parallelism);
+        int failed = 0;
+        int total = 0;
+        try {
+            String line;
+            while ((line = script.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith(COMMENT)) {
+                    continue;
+                }
+                total++;
+                String commandLine = line;
+                Command command = this.shell.getCommand(commandLine.split("\\s+", 2)[0]);
+                if (command != null && !command.isIndependent()) {
+                    while (!pending.isEmpty()) {
+                        failed += finish(pending, out, summary);
+                    }
+                    CommandResult result = this.shell.execute(commandLine, out);
+                    out.flush();
+                    failed += count(result, summary);
+                    continue;
+                }
+                // limits the buffered outputs of finished commands waiting for a slow command
+                while (pending.size() >= this.parallelism * 4) {
+                    failed += finish(pending, out, summary);
+                }
+                Output output = new Output();
+                if (pending.isEmpty()) {
+                    output.attach(out);
+                }
+                output.result = executor.submit(() -> {
+                    running.acquire();
+                    try {
+                        return output.execute(this.shell, commandLine);
+                    }
+                    finally {
+                        running.release();
+                    }
+                });
+                pending.addLast(output);
+                while (!pending.isEmpty() && pending.peekFirst().result.isDone()) {
+                    failed += finish(pending, out, summary);
+                }
+            }
+            while (!pending.isEmpty()) {
+                failed += finish(pending, out, summary);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+            for (Output output : pending) {
+                output.discard();
+            }
+        }
+
+        out.println("batch: " + total + " commands, " + (total - failed) + " succeeded, " + failed + " failed");
+        for (Map.Entry<String, Integer> entry : summary.entrySet()) {
+            out.println("  " + entry.getKey() + ": " + entry.getValue());
+        }
+        out.flush();
+        return failed;
+    }
+
+    /**
+     * Waits for the first pending command (its output is written through) and writes the output of the next one.
+     */
+    private static int finish(Deque<Output> pending, PrintStream out, Map<String, Integer> summary) throws IOException {
+        Output output = pending.removeFirst();
+        CommandResult result;
+        try {
+            result = output.result.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("batch interrupted");
+        }
+        catch (ExecutionException e) {
+            throw new IOException("command failed unexpectedly: " + e.getCause(), e.getCause());
+        }
+        out.flush();
+        if (!pending.isEmpty()) {
+            pending.peekFirst().attach(out);
+        }
+        return count(result, summary);
+    }
+
+    private static int count(CommandResult result, Map<String, Integer> summary) {
+        summary.merge(result.getCategory(), 1, Integer::sum);
+        return result.isSuccess() ? 0 : 1;
+    }
+
+    /**
+     * Creates the executor for the commands: virtual threads when the JVM supports them (Java 21+), otherwise a fixed
+     * thread pool.
+     *
+     * @param parallelism The number of threads of the fixed pool.
+     * @return The executor.
+     */
+    static ExecutorService newExecutor(int parallelism) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            Main.getLogger("Batch").debug("Virtual threads not available, using " + parallelism + " threads.");
+            return Executors.newFixedThreadPool(parallelism);
+        }
+    }
+
+    /**
+     * The output and the result of a command. The output of the first pending command is written through, the output
+     * of the commands executed ahead of it is buffered until it is the first one: in memory up to
+     * {@link #MAX_BUFFERED} bytes, then in a temporary file (e.g. for {@code f -g} to the standard output).
+     */
+    private static class Output extends OutputStream {
+
+        private Future<CommandResult> result;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private File spill;
+        private OutputStream spillStream;
+        private OutputStream target;
+        private boolean discarded = false;
+
+        CommandResult execute(Shell shell, String line) {
+            PrintStream out = new PrintStream(this, true);
+            CommandResult result = shell.execute(line, out);
+            out.flush();
+            return result;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if (this.discarded) {
+                return;
+            }
+            if (this.target != null) {
+                this.target.write(b, off, len);
+                return;
+            }
+            if (this.spillStream == null && this.buffer.size() + len > MAX_BUFFERED) {
+                this.spill = File.createTempFile("fileservercli-batch", ".out");
+                this.spillStream = new BufferedOutputStream(new FileOutputStream(this.spill));
+            }
+            if (this.spillStream != null) {
+                this.spillStream.write(b, off, len);
+            }
+            else {
+                this.buffer.write(b, off, len);
+            }
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (this.target != null) {
+                this.target.flush();
+            }
+        }
+
+        /**
+         * Writes the buffered output and all further output of the command to the output of the batch.
+         *
+         * @param target The output of the batch.
+         * @throws IOException When the buffered output can't be read or written.
+         */
+        synchronized void attach(OutputStream target) throws IOException {
+            this.buffer.writeTo(target);
+            this.buffer = null;
+            if (this.spill != null) {
+                try {
+                    this.spillStream.close();
+                    Files.copy(this.spill.toPath(), target);
+                }
+                finally {
+                    this.deleteSpill();
+                }
+            }
+            target.flush();
+            this.target = target;
+        }
+
+        /**
+         * Drops the output (e.g. when the batch has been interrupted).
+         */
+        synchronized void discard() {
+            this.discarded = true;
+            if (this.spill != null) {
+                try {
+                    this.spillStream.close();
+                }
+                catch (IOException e) {
+                    // deleted anyway
+                }
+                this.deleteSpill();
+            }
+        }
+
+        private void deleteSpill() {
+            if (!this.spill.delete()) {
+                Main.getLogger("Batch").debug("Can't delete " + this.spill + ".");
+            }
+            this.spill = null;
+        }
+    }
+}
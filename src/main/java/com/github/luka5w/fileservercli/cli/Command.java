@@ -0,0 +1,78 @@
+package com.github.luka5w.fileservercli.cli;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * A command of the shell (e.g. {@code c}, {@code v}, {@code f}).
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public interface Command {
+
+    /**
+     * @return The name, the command is called with.
+     */
+    String getName();
+
+    /**
+     * @return The usage line, displayed by the help (e.g. {@code c user@https://example.com:8443}).
+     */
+    String getUsage();
+
+    /**
+     * @return A short description, displayed by the help.
+     */
+    String getDescription();
+
+    /**
+     * Creates the options of the command.
+     *
+     * @return The options.
+     */
+    Options getOptions();
+
+    /**
+     * Checks whether the command can be executed at the same time as other commands (batch mode). Commands which
+     * change the state of the shell (e.g. connect) are executed after all previous commands have been finished.
+     *
+     * @return {true} when the command does not change the state of the shell.
+     */
+    default boolean isIndependent() {
+        return true;
+    }
+
+    /**
+     * Executes the command.
+     *
+     * @param cmd The parsed arguments.
+     * @param context The state of the shell (e.g. the connection to the server).
+     * @param out The stream for the output of the command.
+     * @throws IOException When a request to the server fails.
+     * @throws IllegalArgumentException When the arguments are invalid.
+     * @throws IllegalStateException When the command can't be executed in the current state (e.g. not connected).
+     */
+    void execute(CommandLine cmd, Context context, PrintStream out) throws IOException;
+
+    /**
+     * Formats a parsed JSON value for the output.
+     *
+     * @param json The value.
+     * @return The formatted value.
+     */
+    static String formatJson(Object json) {
+        if (json instanceof JSONObject) {
+            return ((JSONObject) json).toString(2);
+        }
+        if (json instanceof JSONArray) {
+            return ((JSONArray) json).toString(2);
+        }
+        return String.valueOf(json);
+    }
+}
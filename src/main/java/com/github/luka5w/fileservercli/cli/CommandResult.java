@@ -0,0 +1,69 @@
+package com.github.luka5w.fileservercli.cli;
+
+import com.github.luka5w.http.HttpStatusCode;
+
+/**
+ * The result of an executed command.
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public final class CommandResult {
+
+    /**
+     * The command succeeded.
+     */
+    public static final CommandResult SUCCESS = new CommandResult(true, -1);
+    /**
+     * The command failed without a response of the server (e.g. invalid arguments or a connection error).
+     */
+    public static final CommandResult ERROR = new CommandResult(false, -1);
+
+    private final boolean success;
+    private final int statusCode;
+
+    private CommandResult(boolean success, int statusCode) {
+        this.success = success;
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * Creates the result of a command which failed because of the status code of a response.
+     *
+     * @param statusCode The status code.
+     * @return The result.
+     */
+    public static CommandResult httpError(int statusCode) {
+        return new CommandResult(false, statusCode);
+    }
+
+    /**
+     * @return {true} when the command succeeded.
+     */
+    public boolean isSuccess() {
+        return this.success;
+    }
+
+    /**
+     * @return The status code of the failed request or {-1}.
+     */
+    public int getStatusCode() {
+        return this.statusCode;
+    }
+
+    /**
+     * Gets the category of the result for summaries.
+     *
+     * @return {@code OK}, the status code with its description (e.g. {@code 404 Not Found}) or {@code error}.
+     */
+    public String getCategory() {
+        if (this.success) {
+            return HttpStatusCode.OK.getDescription();
+        }
+        if (this.statusCode == -1) {
+            return "error";
+        }
+        HttpStatusCode status = HttpStatusCode.findByCode(this.statusCode);
+        return status == null ? String.valueOf(this.statusCode) : this.statusCode + " " + status.getDescription();
+    }
+}
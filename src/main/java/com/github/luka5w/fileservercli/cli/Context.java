@@ -0,0 +1,206 @@
+package com.github.luka5w.fileservercli.cli;
+
+import com.github.luka5w.fileservercli.Config;
+import com.github.luka5w.fileservercli.Constants;
+import com.github.luka5w.fileservercli.Main;
+import com.github.luka5w.fileservercli.client.ContentCache;
+import com.github.luka5w.fileservercli.client.FileServerClient;
+import com.github.luka5w.fileservercli.client.MetadataCache;
+import com.github.luka5w.fileservercli.client.SessionTokenStore;
+import com.github.luka5w.http.HttpMetrics;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * The state of the shell, shared by all commands.
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class Context implements Closeable {
+
+    private final Config config;
+    private HttpMetrics metrics;
+    private volatile FileServerClient client;
+    private MetadataCache metadataCache;
+    private ContentCache contentCache;
+    private SessionTokenStore sessionTokens;
+    private final ThreadLocal<File> workingDirectory = new InheritableThreadLocal<>();
+    private volatile Function<String, String> passwordSource;
+
+    /**
+     * Creates a new context.
+     *
+     * @param config The config of the program.
+     */
+    public Context(Config config) {
+        this.config = config;
+    }
+
+    /**
+     * @return The config of the program.
+     */
+    public Config getConfig() {
+        return this.config;
+    }
+
+    /**
+     * @return The metrics of the requests of all connections (created on first use).
+     */
+    public synchronized HttpMetrics getMetrics() {
+        if (this.metrics == null) {
+            this.metrics = new HttpMetrics();
+        }
+        return this.metrics;
+    }
+
+    /**
+     * Gets the cache for metadata and listings, shared by all connections. The cache is created (and loaded when
+     * {@code [cache] metadata-persist} is set) on first use.
+     *
+     * @return The cache.
+     */
+    public synchronized MetadataCache getMetadataCache() {
+        if (this.metadataCache == null) {
+            this.metadataCache = new MetadataCache(this.config.getInt("cache", "metadata-max-entries"), this.config.getSize("cache", "metadata-max-size"));
+            if (this.config.getBoolean("cache", "metadata-persist")) {
+                this.metadataCache.load(this.getMetadataCacheFile());
+            }
+        }
+        return this.metadataCache;
+    }
+
+    /**
+     * Gets the cache for the content of downloaded files, shared by all connections. The cache is opened on first use.
+     *
+     * @return The cache or {null} when {@code [cache] content} is not set.
+     */
+    public synchronized ContentCache getContentCache() {
+        if (this.contentCache == null && this.config.getBoolean("cache", "content")) {
+            this.contentCache = new ContentCache(new File(this.config.getDirectory(), Constants.PROGRAM_NAME.toLowerCase() + "-content"), this.config.getSize("cache", "content-max-size"));
+        }
+        return this.contentCache;
+    }
+
+    /**
+     * Gets the store of the session tokens, shared by all connections ({@code [connection] session-tokens}).
+     *
+     * @return The store or {null} when session tokens are disabled.
+     * @throws IllegalArgumentException When the config value is invalid.
+     */
+    public synchronized SessionTokenStore getSessionTokens() {
+        if (this.sessionTokens == null) {
+            String mode = this.config.getString("connection", "session-tokens").trim().toLowerCase();
+            switch (mode) {
+                case "none":
+                    return null;
+                case "memory":
+                    this.sessionTokens = new SessionTokenStore();
+                    break;
+                case "file":
+                    String name = Constants.PROGRAM_NAME.toLowerCase();
+                    this.sessionTokens = new SessionTokenStore(new File(this.config.getDirectory(), name + "-sessions"), new File(System.getProperty("user.home"), "." + name + "-sessions.key"));
+                    break;
+                default:
+                    throw new IllegalArgumentException("invalid session-tokens: " + mode + " (none, memory or file)");
+            }
+        }
+        return this.sessionTokens;
+    }
+
+    private File getMetadataCacheFile() {
+        return new File(this.config.getDirectory(), Constants.PROGRAM_NAME.toLowerCase() + "-metadata.json");
+    }
+
+    /**
+     * Gets the client of the current connection.
+     *
+     * @return The client.
+     * @throws IllegalStateException When not connected to a server.
+     */
+    public FileServerClient getClient() {
+        FileServerClient client = this.client;
+        if (client == null) {
+            throw new IllegalStateException("not connected, use 'c user@host' first");
+        }
+        return client;
+    }
+
+    /**
+     * Sets the client of the current connection. The previous client is closed.
+     *
+     * @param client The new client.
+     */
+    public void setClient(FileServerClient client) {
+        FileServerClient previous = this.client;
+        this.client = client;
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Resolves a local path passed to a command (e.g. the input file of an upload).
+     *
+     * @param path The path.
+     * @return The file, relative to the working directory of the client when the command has been sent to the daemon.
+     */
+    public File resolve(String path) {
+        File file = new File(path);
+        File directory = this.workingDirectory.get();
+        return directory == null || file.isAbsolute() ? file : new File(directory, path);
+    }
+
+    /**
+     * Sets the working directory of the client of the daemon, which sent the current command. It is set for the current
+     * thread and inherited by the threads it creates (e.g. a background job, which keeps running after the next client
+     * has set its own working directory).
+     *
+     * @param directory The directory or {null} for the working directory of the program.
+     */
+    public void setWorkingDirectory(File directory) {
+        if (directory == null) {
+            this.workingDirectory.remove();
+        }
+        else {
+            this.workingDirectory.set(directory);
+        }
+    }
+
+    /**
+     * @return The source of the passwords for {@code c} or {null} when the password is queried from the user.
+     */
+    public Function<String, String> getPasswordSource() {
+        return this.passwordSource;
+    }
+
+    /**
+     * Sets the source of the passwords for {@code c}, used by the daemon, which can't query the user.
+     *
+     * @param source Returns the password of a user (or throws an IllegalStateException) or {null} to query the user.
+     */
+    public void setPasswordSource(Function<String, String> source) {
+        this.passwordSource = source;
+    }
+
+    /**
+     * Closes the current connection and stores the metadata cache (if enabled).
+     */
+    @Override
+    public void close() {
+        this.setClient(null);
+        synchronized (this) {
+            if (this.metadataCache != null && this.config.getBoolean("cache", "metadata-persist")) {
+                try {
+                    this.metadataCache.save(this.getMetadataCacheFile());
+                }
+                catch (IOException e) {
+                    Main.getLogger("Context").warn("Can't store metadata cache: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
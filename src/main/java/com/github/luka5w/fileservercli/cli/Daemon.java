@@ -0,0 +1,317 @@
+package com.github.luka5w.fileservercli.cli;
+
+import com.github.luka5w.fileservercli.Config;
+import com.github.luka5w.fileservercli.Constants;
+import com.github.luka5w.fileservercli.Main;
+import com.github.luka5w.fileservercli.log.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A background process, which executes the commands of {@link DaemonClient}s, so repeated invocations of the program
+ * reuse the warm JVM, the connection to the server (and its connection pool) and the caches.
+ *
+ * <p>Clients send their token (see {@link DaemonEndpoint}) and then requests: a type ({@code 'B'} for a batch script,
+ * {@code 'L'} for one command line, {@code 'S'} to stop the daemon), the working directory of the client and the
+ * commands. The output is sent in frames ({@code 'O'}, length, bytes) while the commands are executed, followed by
+ * the result ({@code 'R'} and the number of failed commands). When {@code c} needs a password, the daemon asks the
+ * client for it ({@code 'P'} and the user). Requests of different clients are executed one after another, as they
+ * share the state of the shell.</p>
+ *
+ * <p>Background jobs ({@code <command> &}) keep running after their client has disconnected. As the daemon can't send
+ * output without a request, their notifications are sent with the output of the next command line.</p>
+ *
+ * <p>The daemon stops when no client has been connected and no background job has been running for
+ * {@code [daemon] idle-timeout} milliseconds. Running jobs are cancelled when the daemon is stopped.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class Daemon {
+
+    static final int ACCEPTED = 'A';
+    static final int REQUEST_BATCH = 'B';
+    static final int REQUEST_LINE = 'L';
+    static final int REQUEST_STOP = 'S';
+    static final int RESPONSE_OUTPUT = 'O';
+    static final int RESPONSE_PASSWORD = 'P';
+    static final int RESPONSE_RESULT = 'R';
+
+    private static final int MAX_STRING_LENGTH = 64 * 1024 * 1024;
+
+    private final Log logger = Main.getLogger("Daemon");
+    private final Shell shell;
+    private final Context context;
+    private final Object requests = new Object();
+    private final AtomicInteger connections = new AtomicInteger();
+    private volatile long lastActive = System.currentTimeMillis();
+    private volatile ServerSocketChannel server;
+    private DaemonEndpoint endpoint;
+
+    /**
+     * Creates a new daemon.
+     *
+     * @param shell The shell which executes the commands.
+     * @param context The state of the shell.
+     */
+    public Daemon(Shell shell, Context context) {
+        this.shell = shell;
+        this.context = context;
+    }
+
+    /**
+     * Accepts clients until the daemon is idle or stopped. Returns immediately when another daemon is running.
+     *
+     * @throws IOException When the socket can't be opened.
+     */
+    public void run() throws IOException {
+        Config config = this.context.getConfig();
+        long idleTimeout = config.getLong("daemon", "idle-timeout");
+        File endpointFile = getFile(config, ".json");
+        File socket = getFile(config, ".sock");
+        try (FileChannel lockChannel = FileChannel.open(getFile(config, ".lock").toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = lockChannel.tryLock()) {
+            if (lock == null) {
+                this.logger.log("Another daemon is running.");
+                return;
+            }
+            this.server = DaemonEndpoint.bind(socket);
+            this.endpoint = DaemonEndpoint.create(this.server, socket);
+            ScheduledExecutorService idle = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "daemon-idle");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                this.endpoint.write(endpointFile);
+                this.logger.log("Listening on " + this.endpoint + ", stopping after " + idleTimeout + " ms without clients.");
+                idle.scheduleWithFixedDelay(() -> {
+                    if (this.shell.getRunningJobCount() > 0) {
+                        this.lastActive = System.currentTimeMillis();
+                    }
+                    else if (this.connections.get() == 0 && System.currentTimeMillis() - this.lastActive >= idleTimeout) {
+                        this.logger.log("Idle for " + idleTimeout + " ms, stopping.");
+                        this.stop();
+                    }
+                }, 1, 1, TimeUnit.SECONDS);
+                this.accept();
+            }
+            finally {
+                idle.shutdownNow();
+                this.stop();
+                this.shell.cancelJobs();
+                Files.deleteIfExists(endpointFile.toPath());
+                Files.deleteIfExists(socket.toPath());
+                // waits for the current request
+                synchronized (this.requests) {
+                    this.logger.log("Stopped.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting clients. The current request is finished.
+     */
+    public void stop() {
+        ServerSocketChannel server = this.server;
+        if (server != null) {
+            try {
+                server.close();
+            }
+            catch (IOException e) {
+                this.logger.debug("Can't close socket: " + e.getMessage());
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = this.server.accept();
+            }
+            catch (ClosedChannelException e) {
+                return;
+            }
+            this.connections.incrementAndGet();
+            Thread thread = new Thread(() -> this.serve(channel), "daemon-client");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        try (SocketChannel client = channel) {
+            // requests and responses alternate, the streams of the channel are never used at the same time
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client)));
+            byte[] expected = this.endpoint.getToken().getBytes(StandardCharsets.UTF_8);
+            // limited before anything is allocated, the client is not authenticated yet
+            byte[] token = readString(in, expected.length * 2).getBytes(StandardCharsets.UTF_8);
+            if (!MessageDigest.isEqual(expected, token)) {
+                this.logger.warn("Rejected a client with a wrong token.");
+                return;
+            }
+            out.writeByte(ACCEPTED);
+            out.flush();
+            int type;
+            while ((type = in.read()) != -1) {
+                if (type == REQUEST_STOP) {
+                    this.logger.log("Stopped by a client.");
+                    this.stop();
+                    out.writeByte(RESPONSE_RESULT);
+                    out.writeInt(0);
+                    out.flush();
+                    return;
+                }
+                File directory = new File(readString(in));
+                String commands = readString(in);
+                int failed;
+                synchronized (this.requests) {
+                    if (!this.server.isOpen()) {
+                        // stopped, the state of the shell is being closed
+                        return;
+                    }
+                    failed = this.execute(type, commands, directory, in, out);
+                }
+                out.writeByte(RESPONSE_RESULT);
+                out.writeInt(failed);
+                out.flush();
+            }
+        }
+        catch (IOException e) {
+            this.logger.debug("Client disconnected: " + e.getMessage());
+        }
+        finally {
+            this.lastActive = System.currentTimeMillis();
+            this.connections.decrementAndGet();
+        }
+    }
+
+    private int execute(int type, String commands, File directory, DataInputStream request, DataOutputStream response) throws IOException {
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FrameOutputStream(response)), true, StandardCharsets.UTF_8.name());
+        this.context.setWorkingDirectory(directory);
+        this.context.setPasswordSource(user -> {
+            try {
+                out.flush();
+                response.writeByte(RESPONSE_PASSWORD);
+                writeString(response, user);
+                response.flush();
+                if (!request.readBoolean()) {
+                    throw new IllegalStateException("no password for " + user);
+                }
+                return readString(request);
+            }
+            catch (IOException e) {
+                throw new IllegalStateException("can't read the password from the client: " + e.getMessage());
+            }
+        });
+        try {
+            if (type == REQUEST_LINE) {
+                return this.shell.executeInteractive(commands, out).isSuccess() ? 0 : 1;
+            }
+            if (type != REQUEST_BATCH) {
+                throw new IOException("unknown request " + type);
+            }
+            BatchRunner runner = new BatchRunner(this.shell, Math.max(1, this.context.getConfig().getInt("batch", "parallel")));
+            try {
+                return runner.run(new BufferedReader(new StringReader(commands)), out);
+            }
+            catch (IOException e) {
+                out.println("batch: " + e.getMessage());
+                return 1;
+            }
+        }
+        finally {
+            out.flush();
+            this.context.setWorkingDirectory(null);
+            this.context.setPasswordSource(null);
+        }
+    }
+
+    /**
+     * Gets a file of the daemon (next to the config file).
+     *
+     * @param config The config.
+     * @param suffix The suffix of the file (e.g. {@code .log}).
+     * @return The file.
+     */
+    static File getFile(Config config, String suffix) {
+        return new File(config.getDirectory(), Constants.PROGRAM_NAME.toLowerCase() + "-daemon" + suffix);
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        return readString(in, MAX_STRING_LENGTH);
+    }
+
+    private static String readString(DataInputStream in, int maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException("invalid length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sends the written bytes as output frames.
+     */
+    private static class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+
+        private FrameOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0) {
+                this.out.writeByte(RESPONSE_OUTPUT);
+                this.out.writeInt(len);
+                this.out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.out.flush();
+        }
+    }
+}
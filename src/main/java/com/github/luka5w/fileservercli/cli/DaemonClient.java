@@ -0,0 +1,252 @@
+package com.github.luka5w.fileservercli.cli;
+
+import com.github.luka5w.fileservercli.Config;
+import com.github.luka5w.fileservercli.Main;
+import com.github.luka5w.fileservercli.cli.commands.ConnectCommand;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends commands to the {@link Daemon} and writes its output.
+ *
+ * <p>When no daemon is running, it is started in the background (with the same config file), its log is written to
+ * {@code <name>-daemon.log} next to the config file.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class DaemonClient implements Closeable {
+
+    private static final long START_TIMEOUT = 10000;
+    private static final long START_POLL_INTERVAL = 50;
+
+    private final SocketChannel channel;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private BufferedReader input;
+
+    private DaemonClient(SocketChannel channel) throws IOException {
+        this.channel = channel;
+        this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    /**
+     * Connects to the daemon. When no daemon is running, it is started.
+     *
+     * @param config The config.
+     * @param arguments The arguments of the program for the daemon (the config file and overridden values).
+     * @return The client.
+     * @throws IOException When the daemon can't be started.
+     */
+    public static DaemonClient connect(Config config, List<String> arguments) throws IOException {
+        DaemonClient client = tryConnect(config);
+        if (client != null) {
+            return client;
+        }
+        File log = Daemon.getFile(config, ".log");
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin" + File.separator + "java").getPath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Main.class.getName());
+        command.addAll(arguments);
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log));
+        // passwords are sent by the clients when they are needed
+        builder.environment().remove(ConnectCommand.ENV_PASSWORD);
+        Main.getLogger("Daemon").debug(() -> "Starting daemon: " + String.join(" ", command));
+        builder.start().getOutputStream().close();
+        long deadline = System.currentTimeMillis() + START_TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(START_POLL_INTERVAL);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("start of the daemon interrupted");
+            }
+            client = tryConnect(config);
+            if (client != null) {
+                return client;
+            }
+        }
+        throw new IOException("the daemon has not been started, see " + log);
+    }
+
+    /**
+     * Stops the running daemon.
+     *
+     * @param config The config.
+     * @return {false} when no daemon is running.
+     * @throws IOException When the request fails.
+     */
+    public static boolean stop(Config config) throws IOException {
+        DaemonClient client = tryConnect(config);
+        if (client == null) {
+            return false;
+        }
+        try {
+            client.out.writeByte(Daemon.REQUEST_STOP);
+            client.out.flush();
+            client.readResponse(null);
+            return true;
+        }
+        finally {
+            client.close();
+        }
+    }
+
+    private static DaemonClient tryConnect(Config config) {
+        DaemonEndpoint endpoint = DaemonEndpoint.read(Daemon.getFile(config, ".json"));
+        if (endpoint == null) {
+            return null;
+        }
+        try {
+            DaemonClient client = new DaemonClient(endpoint.connect());
+            try {
+                Daemon.writeString(client.out, endpoint.getToken());
+                client.out.flush();
+                if (client.in.read() == Daemon.ACCEPTED) {
+                    return client;
+                }
+            }
+            catch (IOException e) {
+                // e.g. the daemon is stopping
+            }
+            client.close();
+        }
+        catch (IOException e) {
+            Main.getLogger("Daemon").debug("Can't connect to daemon " + endpoint + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Executes a script of commands (see {@link BatchRunner}).
+     *
+     * @param script The commands.
+     * @param output The output.
+     * @return The number of failed commands.
+     * @throws IOException When the daemon can't be reached.
+     */
+    public int runBatch(String script, PrintStream output) throws IOException {
+        return this.request(Daemon.REQUEST_BATCH, script, output);
+    }
+
+    /**
+     * Executes one command.
+     *
+     * @param line The command line.
+     * @param output The output.
+     * @return {true} when the command succeeded.
+     * @throws IOException When the daemon can't be reached.
+     */
+    public boolean execute(String line, PrintStream output) throws IOException {
+        return this.request(Daemon.REQUEST_LINE, line, output) == 0;
+    }
+
+    /**
+     * Reads and executes commands until the input ends or {@code exit} is entered (like {@link Shell#run}).
+     *
+     * @param input The input.
+     * @param output The output.
+     * @throws IOException When the input can't be read or the daemon can't be reached.
+     */
+    public void runShell(BufferedReader input, PrintStream output) throws IOException {
+        // the passwords queried by the daemon are read from the same input
+        this.input = input;
+        output.print(Shell.PROMPT);
+        output.flush();
+        String line;
+        while ((line = input.readLine()) != null) {
+            line = line.trim();
+            if (Shell.EXIT.equals(line)) {
+                break;
+            }
+            if (!line.isEmpty()) {
+                this.execute(line, output);
+            }
+            output.print(Shell.PROMPT);
+            output.flush();
+        }
+    }
+
+    private int request(int type, String commands, PrintStream output) throws IOException {
+        this.out.writeByte(type);
+        Daemon.writeString(this.out, System.getProperty("user.dir"));
+        Daemon.writeString(this.out, commands);
+        this.out.flush();
+        return this.readResponse(output);
+    }
+
+    private int readResponse(PrintStream output) throws IOException {
+        byte[] buffer = new byte[8192];
+        try {
+            while (true) {
+                int type = this.in.readUnsignedByte();
+                if (type == Daemon.RESPONSE_RESULT) {
+                    return this.in.readInt();
+                }
+                if (type == Daemon.RESPONSE_PASSWORD) {
+                    // queried here, as the daemon can't query the user
+                    String user = Daemon.readString(this.in);
+                    String password;
+                    try {
+                        password = ConnectCommand.readPassword(user, this.input, output);
+                    }
+                    catch (IllegalStateException e) {
+                        // no console and no input (or the end of the input)
+                        password = null;
+                    }
+                    this.out.writeBoolean(password != null);
+                    if (password != null) {
+                        Daemon.writeString(this.out, password);
+                    }
+                    this.out.flush();
+                    continue;
+                }
+                if (type != Daemon.RESPONSE_OUTPUT) {
+                    throw new IOException("invalid response of the daemon");
+                }
+                int length = this.in.readInt();
+                while (length > 0) {
+                    int n = this.in.read(buffer, 0, Math.min(buffer.length, length));
+                    if (n < 0) {
+                        throw new EOFException();
+                    }
+                    if (output != null) {
+                        output.write(buffer, 0, n);
+                    }
+                    length -= n;
+                }
+                if (output != null) {
+                    output.flush();
+                }
+            }
+        }
+        catch (EOFException e) {
+            throw new IOException("the daemon closed the connection");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
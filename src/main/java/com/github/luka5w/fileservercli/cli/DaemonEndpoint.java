@@ -0,0 +1,175 @@
+package com.github.luka5w.fileservercli.cli;
+
+import com.github.luka5w.fileservercli.Main;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * The address of a running daemon and the token, which clients must send first.
+ *
+ * <p>The daemon listens on a Unix domain socket when the JVM supports them (Java 16+), otherwise on a port of the
+ * loopback interface. The address and the token are stored in a file which can only be read by the user (on file
+ * systems with POSIX permissions), so other users of the machine can't send commands.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+final class DaemonEndpoint {
+
+    private static final String UNIX = "unix:";
+    private static final String TCP = "tcp:";
+
+    private final String address;
+    private final String token;
+
+    private DaemonEndpoint(String address, String token) {
+        this.address = address;
+        this.token = token;
+    }
+
+    /**
+     * Opens the socket of a new daemon.
+     *
+     * @param socket The path of the Unix domain socket.
+     * @return The socket.
+     * @throws IOException When no socket can be opened.
+     */
+    static ServerSocketChannel bind(File socket) throws IOException {
+        ServerSocketChannel server = null;
+        try {
+            SocketAddress address = unixAddress(socket.getAbsolutePath());
+            server = (ServerSocketChannel) ServerSocketChannel.class.getMethod("open", ProtocolFamily.class).invoke(null, StandardProtocolFamily.valueOf("UNIX"));
+            Files.deleteIfExists(socket.toPath());
+            server.bind(address);
+            return server;
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            if (server != null) {
+                server.close();
+            }
+            Main.getLogger("Daemon").debug("Unix domain sockets not available, using the loopback interface.");
+        }
+        catch (IOException e) {
+            server.close();
+            Main.getLogger("Daemon").debug("Can't bind " + socket + " (" + e.getMessage() + "), using the loopback interface.");
+        }
+        return ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    /**
+     * Creates the endpoint of a new daemon with a random token.
+     *
+     * @param server The socket of the daemon.
+     * @param socket The path of the Unix domain socket.
+     * @return The endpoint.
+     * @throws IOException When the address of the socket can't be read.
+     */
+    static DaemonEndpoint create(ServerSocketChannel server, File socket) throws IOException {
+        SocketAddress local = server.getLocalAddress();
+        String address = local instanceof InetSocketAddress ? TCP + ((InetSocketAddress) local).getPort() : UNIX + socket.getAbsolutePath();
+        byte[] token = new byte[32];
+        new SecureRandom().nextBytes(token);
+        return new DaemonEndpoint(address, Base64.getUrlEncoder().withoutPadding().encodeToString(token));
+    }
+
+    /**
+     * Reads the endpoint of the running daemon.
+     *
+     * @param file The file of the endpoint.
+     * @return The endpoint or {null} when no daemon is running (or it has not written the file yet).
+     */
+    static DaemonEndpoint read(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            JSONObject json = new JSONObject(new JSONTokener(reader));
+            return new DaemonEndpoint(json.getString("address"), json.getString("token"));
+        }
+        catch (IOException | JSONException e) {
+            Main.getLogger("Daemon").debug("Can't read " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the endpoint (readable only by the user).
+     *
+     * @param file The file of the endpoint.
+     * @throws IOException When the file can't be written.
+     */
+    void write(File file) throws IOException {
+        Path temp = new File(file.getPath() + ".tmp").toPath();
+        Files.deleteIfExists(temp);
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(temp, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            new JSONObject().put("address", this.address).put("token", this.token).write(writer);
+        }
+        Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Connects to the daemon.
+     *
+     * @return The connection.
+     * @throws IOException When the daemon can't be reached.
+     */
+    SocketChannel connect() throws IOException {
+        if (this.address.startsWith(UNIX)) {
+            try {
+                return SocketChannel.open(unixAddress(this.address.substring(UNIX.length())));
+            }
+            catch (ReflectiveOperationException e) {
+                throw new IOException("Unix domain sockets not available");
+            }
+        }
+        if (this.address.startsWith(TCP)) {
+            try {
+                return SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(this.address.substring(TCP.length()))));
+            }
+            catch (IllegalArgumentException e) {
+                // invalid port
+            }
+        }
+        throw new IOException("invalid address of the daemon: " + this.address);
+    }
+
+    /**
+     * @return The token, which clients must send first.
+     */
+    String getToken() {
+        return this.token;
+    }
+
+    @Override
+    public String toString() {
+        return this.address;
+    }
+
+    private static SocketAddress unixAddress(String path) throws ReflectiveOperationException {
+        return (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", String.class).invoke(null, path);
+    }
+}
@@ -0,0 +1,179 @@
+package com.github.luka5w.fileservercli.cli;
+
+import com.github.luka5w.http.Cancellation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A command executed in the background of the shell ({@code <command> &}).
+ *
+ * <p>The command runs in its own thread, its output is buffered until it has finished. The threads it creates (e.g. for
+ * parallel uploads) inherit the job, so their progress is reported to it and their requests are cancelled with it
+ * (see {@link Cancellation}).</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+final class Job {
+
+    private static final InheritableThreadLocal<Job> CURRENT = new InheritableThreadLocal<>();
+
+    private final int id;
+    private final String line;
+    private final Cancellation cancellation = new Cancellation();
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final Thread thread;
+    private volatile CommandResult result;
+    private volatile long transferred = -1;
+    private volatile long total;
+
+    /**
+     * Creates a new job. The job is started with {@link #start()}.
+     *
+     * @param id The number of the job.
+     * @param line The command line.
+     * @param task Executes the command and writes its output to the passed stream.
+     * @param listener Called (by the thread of the job) when the job has finished.
+     */
+    Job(int id, String line, Function<PrintStream, CommandResult> task, Consumer<Job> listener) {
+        this.id = id;
+        this.line = line;
+        PrintStream out;
+        try {
+            out = new PrintStream(this.output, true, StandardCharsets.UTF_8.name());
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        // created here to inherit the state of the current thread (e.g. the working directory of a daemon client)
+        this.thread = new Thread(() -> {
+            CURRENT.set(this);
+            this.cancellation.bind();
+            CommandResult result = CommandResult.ERROR;
+            try {
+                result = task.apply(out);
+            }
+            catch (RuntimeException e) {
+                out.println(e);
+            }
+            finally {
+                out.flush();
+                this.result = result;
+                listener.accept(this);
+            }
+        }, "job-" + id);
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Reports the progress of a transfer to the job of the current thread (if any).
+     *
+     * @param transferred The number of transferred bytes.
+     * @param total The total number of bytes or {-1} when unknown.
+     */
+    static void reportProgress(long transferred, long total) {
+        Job job = CURRENT.get();
+        if (job != null) {
+            job.total = total;
+            job.transferred = transferred;
+        }
+    }
+
+    /**
+     * Starts the job.
+     */
+    void start() {
+        this.thread.start();
+    }
+
+    /**
+     * Cancels the job: its connections are closed and its thread is interrupted.
+     */
+    void cancel() {
+        this.cancellation.cancel();
+        this.thread.interrupt();
+    }
+
+    /**
+     * Waits until the job has finished.
+     *
+     * @param timeout The maximum time to wait in milliseconds, {0} to wait until the job has finished.
+     * @return {true} when the job has finished.
+     * @throws InterruptedException When the current thread has been interrupted.
+     */
+    boolean await(long timeout) throws InterruptedException {
+        this.thread.join(timeout);
+        return this.isDone();
+    }
+
+    /**
+     * @return The number of the job.
+     */
+    int getId() {
+        return this.id;
+    }
+
+    /**
+     * @return {true} when the job has finished.
+     */
+    boolean isDone() {
+        return this.result != null;
+    }
+
+    /**
+     * @return The result of the command or {null} while it is running.
+     */
+    CommandResult getResult() {
+        return this.result;
+    }
+
+    /**
+     * @return {true} when the job has reported the progress of a transfer.
+     */
+    boolean hasProgress() {
+        return this.transferred >= 0;
+    }
+
+    /**
+     * @return The output of the command (complete when the job has finished).
+     */
+    String getOutput() {
+        return new String(this.output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Describes the job for {@code jobs} and notifications, e.g. {@code [1] running 1.5 MiB of 3.0 MiB (50%)  f -g 1 a}.
+     *
+     * @return The description.
+     */
+    String describe() {
+        return "[" + this.id + "] " + this.getState() + "  " + this.line;
+    }
+
+    private String getState() {
+        CommandResult result = this.result;
+        if (result != null) {
+            if (this.cancellation.isCancelled()) {
+                return "cancelled";
+            }
+            return result.isSuccess() ? "done" : "failed (" + result.getCategory() + ")";
+        }
+        if (this.cancellation.isCancelled()) {
+            return "cancelling";
+        }
+        long transferred = this.transferred;
+        long total = this.total;
+        if (transferred < 0) {
+            return "running";
+        }
+        if (total > 0) {
+            return "running " + ProgressLogger.formatBytes(transferred) + " of " + ProgressLogger.formatBytes(total) + " (" + (transferred * 100 / total) + "%)";
+        }
+        return "running " + ProgressLogger.formatBytes(transferred);
+    }
+}
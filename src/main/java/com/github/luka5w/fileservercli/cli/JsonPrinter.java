@@ -0,0 +1,198 @@
+package com.github.luka5w.fileservercli.cli;
+
+import com.github.luka5w.fileservercli.client.Listing;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Formats a JSON document while it is read.
+ *
+ * <p>Unlike {@link Command#formatJson(Object)}, the document is not parsed into a tree: only one primitive value is
+ * held in memory at a time, so large listings are printed with constant memory and the first entries are printed
+ * before the whole document has been received. The keys are printed in the order of the document. Listings which
+ * are requested page by page ({@link Listing}) are printed entry by entry.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class JsonPrinter {
+
+    private static final int INDENT = 2;
+    private static final long FLUSH_INTERVAL = 100;
+
+    private final Writer out;
+    private JSONTokener tokener;
+    private long lastFlush;
+
+    /**
+     * Creates a new printer.
+     *
+     * @param out The output. It is flushed regularly, but not closed.
+     */
+    public JsonPrinter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Reads and prints a document. Nothing is printed for an empty document.
+     *
+     * @param in The document.
+     * @throws IOException When the document can't be read or the output can't be written.
+     * @throws JSONException When the document is not valid JSON.
+     */
+    public void print(Reader in) throws IOException {
+        this.tokener = new JSONTokener(in);
+        this.lastFlush = 0;
+        if (!this.tokener.more()) {
+            return;
+        }
+        this.printValue(0);
+        this.out.write(System.lineSeparator());
+        this.out.flush();
+    }
+
+    /**
+     * Prints the entries of a listing as array while the pages are received.
+     *
+     * @param listing The listing.
+     * @throws IOException When a page can't be requested or the output can't be written.
+     */
+    public void print(Listing listing) throws IOException {
+        this.lastFlush = 0;
+        if (!listing.hasNext()) {
+            this.out.write("[]" + System.lineSeparator());
+            this.out.flush();
+            return;
+        }
+        this.out.write('[');
+        boolean first = true;
+        while (listing.hasNext()) {
+            if (!first) {
+                this.out.write(',');
+            }
+            first = false;
+            Object entry = listing.next();
+            this.newLine(INDENT);
+            if (entry instanceof JSONObject) {
+                ((JSONObject) entry).write(this.out, INDENT, INDENT);
+            }
+            else if (entry instanceof JSONArray) {
+                ((JSONArray) entry).write(this.out, INDENT, INDENT);
+            }
+            else {
+                this.out.write(JSONObject.valueToString(entry));
+            }
+            if (listing.available() == 0) {
+                // the next page may take a while
+                this.out.flush();
+            }
+            else {
+                this.flushIfDue();
+            }
+        }
+        this.newLine(0);
+        this.out.write(']' + System.lineSeparator());
+        this.out.flush();
+    }
+
+    private void printValue(int indent) throws IOException {
+        char c = this.tokener.nextClean();
+        switch (c) {
+            case '{':
+                this.printObject(indent);
+                break;
+            case '[':
+                this.printArray(indent);
+                break;
+            case '"':
+            case '\'':
+                this.out.write(JSONObject.quote(this.tokener.nextString(c)));
+                break;
+            default:
+                this.tokener.back();
+                this.out.write(JSONObject.valueToString(this.tokener.nextValue()));
+        }
+    }
+
+    private void printObject(int indent) throws IOException {
+        if (this.tokener.nextClean() == '}') {
+            this.out.write("{}");
+            return;
+        }
+        this.tokener.back();
+        this.out.write('{');
+        char c;
+        do {
+            this.newLine(indent + INDENT);
+            c = this.tokener.nextClean();
+            if (c != '"' && c != '\'') {
+                throw this.tokener.syntaxError("A JSONObject key must be a string");
+            }
+            this.out.write(JSONObject.quote(this.tokener.nextString(c)));
+            if (this.tokener.nextClean() != ':') {
+                throw this.tokener.syntaxError("Expected a ':' after a key");
+            }
+            this.out.write(": ");
+            this.printValue(indent + INDENT);
+            c = this.tokener.nextClean();
+            if (c == ',') {
+                this.out.write(',');
+            }
+            else if (c != '}') {
+                throw this.tokener.syntaxError("Expected a ',' or '}'");
+            }
+        }
+        while (c == ',');
+        this.newLine(indent);
+        this.out.write('}');
+    }
+
+    private void printArray(int indent) throws IOException {
+        if (this.tokener.nextClean() == ']') {
+            this.out.write("[]");
+            return;
+        }
+        this.tokener.back();
+        this.out.write('[');
+        char c;
+        do {
+            this.newLine(indent + INDENT);
+            this.printValue(indent + INDENT);
+            c = this.tokener.nextClean();
+            if (c == ',') {
+                this.out.write(',');
+            }
+            else if (c != ']') {
+                throw this.tokener.syntaxError("Expected a ',' or ']'");
+            }
+            this.flushIfDue();
+        }
+        while (c == ',');
+        this.newLine(indent);
+        this.out.write(']');
+    }
+
+    private void newLine(int indent) throws IOException {
+        this.out.write(System.lineSeparator());
+        for (int i = 0; i < indent; i++) {
+            this.out.write(' ');
+        }
+    }
+
+    /**
+     * Flushes the output after an entry of a listing, at most every {@link #FLUSH_INTERVAL} milliseconds.
+     */
+    private void flushIfDue() throws IOException {
+        long now = System.currentTimeMillis();
+        if (now - this.lastFlush >= FLUSH_INTERVAL) {
+            this.out.flush();
+            this.lastFlush = now;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.github.luka5w.fileservercli.cli;
+
+import com.github.luka5w.fileservercli.Main;
+import com.github.luka5w.fileservercli.client.FileDownload;
+import com.github.luka5w.fileservercli.client.FileServerClient;
+import com.github.luka5w.fileservercli.client.TransferListener;
+import com.github.luka5w.http.HttpRequest;
+import com.github.luka5w.http.LatencyHistogram;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives simulated clients through a mix of operations and reports the throughput and the latencies.
+ *
+ * <p>Every simulated client has its own connections and executes one operation after the other until the duration
+ * has passed: {@code g} downloads a file (discarding the content), {@code c} creates a file with content, {@code l}
+ * lists the files. The operations are picked randomly by their weights, e.g. {@code g:70,c:10,l:20}. Before the
+ * clients are started, one file is created, so there is always a file to download.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class LoadGenerator {
+
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    private final List<FileServerClient> clients;
+    private final Map<Character, Integer> mix;
+    private final byte[] content;
+    private final List<String> ids = new CopyOnWriteArrayList<>();
+    private final Map<Character, Stats> stats = new LinkedHashMap<>();
+
+    /**
+     * Creates a new load generator.
+     *
+     * @param clients The simulated clients (one thread per client).
+     * @param mix The weights of the operations ({@code g}, {@code c} and {@code l}).
+     * @param size The size of the content of created files in bytes.
+     */
+    public LoadGenerator(List<FileServerClient> clients, Map<Character, Integer> mix, int size) {
+        if (clients.isEmpty()) {
+            throw new IllegalArgumentException("at least one client is required");
+        }
+        this.clients = clients;
+        this.mix = mix;
+        this.content = new byte[size];
+        new Random().nextBytes(this.content);
+        for (Character operation : mix.keySet()) {
+            this.stats.put(operation, new Stats());
+        }
+    }
+
+    /**
+     * Parses the weights of the operations.
+     *
+     * @param mix The weights, e.g. {@code g:70,c:10,l:20}.
+     * @return The weights by operation.
+     * @throws IllegalArgumentException When the weights are invalid.
+     */
+    public static Map<Character, Integer> parseMix(String mix) {
+        Map<Character, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":", 2);
+            if (parts.length != 2 || parts[0].length() != 1 || "gcl".indexOf(parts[0].charAt(0)) == -1) {
+                throw new IllegalArgumentException("invalid operation in mix: " + entry.trim() + " (expected g, c or l with weight, e.g. g:70)");
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("negative weight in mix: " + entry.trim());
+            }
+            if (weight > 0) {
+                weights.put(parts[0].charAt(0), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("no operation in mix: " + mix);
+        }
+        return weights;
+    }
+
+    /**
+     * Executes the operations and prints the report.
+     *
+     * @param duration The duration in milliseconds.
+     * @param out The output of the report.
+     * @return The number of failed operations.
+     * @throws IOException When the first file can't be created.
+     */
+    public long run(long duration, PrintStream out) throws IOException {
+        this.ids.add(this.create(this.clients.get(0)));
+        ExecutorService executor = Executors.newFixedThreadPool(this.clients.size());
+        long start = System.nanoTime();
+        long end = start + duration * 1000000;
+        List<Future<?>> workers = new ArrayList<>();
+        try {
+            for (FileServerClient client : this.clients) {
+                workers.add(executor.submit(() -> this.work(client, end)));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("load test interrupted");
+        }
+        catch (ExecutionException e) {
+            throw new IOException("simulated client failed unexpectedly: " + e.getCause(), e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        return this.report((System.nanoTime() - start) / 1e9, out);
+    }
+
+    private void work(FileServerClient client, long end) {
+        int total = 0;
+        for (int weight : this.mix.values()) {
+            total += weight;
+        }
+        while (System.nanoTime() < end && !Thread.currentThread().isInterrupted()) {
+            int pick = ThreadLocalRandom.current().nextInt(total);
+            char operation = 0;
+            for (Map.Entry<Character, Integer> entry : this.mix.entrySet()) {
+                operation = entry.getKey();
+                pick -= entry.getValue();
+                if (pick < 0) {
+                    break;
+                }
+            }
+            Stats stats = this.stats.get(operation);
+            long start = System.nanoTime();
+            try {
+                this.execute(client, operation);
+                stats.latencies.record(System.nanoTime() - start);
+            }
+            catch (IOException | RuntimeException e) {
+                stats.errors.increment();
+                Main.getLogger("Bench").debug(() -> "Operation failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void execute(FileServerClient client, char operation) throws IOException {
+        switch (operation) {
+            case 'g':
+                String id = this.ids.get(ThreadLocalRandom.current().nextInt(this.ids.size()));
+                new FileDownload(client, id, TransferListener.NONE).toStream(DISCARD);
+                break;
+            case 'c':
+                this.ids.add(this.create(client));
+                break;
+            default:
+                client.getFiles(false, body -> new JSONTokener(body).nextValue());
+        }
+    }
+
+    private String create(FileServerClient client) throws IOException {
+        String id = client.createFile();
+        client.putFileContent(id, HttpRequest.Body.of(this.content), null, null, null);
+        return id;
+    }
+
+    private long report(double seconds, PrintStream out) {
+        long operations = 0;
+        long errors = 0;
+        for (Stats stats : this.stats.values()) {
+            operations += stats.latencies.getCount();
+            errors += stats.errors.sum();
+        }
+        out.println(String.format(Locale.ROOT, "bench: %d clients, %.1f s, %d operations (%.1f ops/s), %d errors",
+                this.clients.size(), seconds, operations, operations / seconds, errors));
+        for (Map.Entry<Character, Stats> entry : this.stats.entrySet()) {
+            LatencyHistogram latencies = entry.getValue().latencies;
+            out.println(String.format(Locale.ROOT, "  f -%c  n=%-7d %8.1f ops/s  errors=%-4d", entry.getKey(), latencies.getCount(),
+                    latencies.getCount() / seconds, entry.getValue().errors.sum()) + MetricsReport.formatLatencies(latencies));
+        }
+        out.flush();
+        return errors;
+    }
+
+    /**
+     * The results of one operation.
+     */
+    private static class Stats {
+
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+    }
+}
@@ -0,0 +1,191 @@
+package com.github.luka5w.fileservercli.cli;
+
+import com.github.luka5w.http.HttpMetrics;
+import com.github.luka5w.http.HttpStatusCode;
+import com.github.luka5w.http.LatencyHistogram;
+import org.json.JSONObject;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Formats the {@link HttpMetrics} of the program (command {@code stats} and option {@code --metrics}).
+ *
+ * <p>Durations are reported as percentiles (p50, p90, p99, p99.9) and maximum. The table and the JSON document use
+ * milliseconds, the Prometheus text format uses seconds.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public final class MetricsReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String PREFIX = "fileservercli_";
+
+    private MetricsReport() {
+    }
+
+    /**
+     * Formats the status of requests, e.g. {@code 404 Not Found}.
+     *
+     * @param code The status code or {@link HttpMetrics#NO_RESPONSE}.
+     * @return The status.
+     */
+    public static String formatStatus(int code) {
+        if (code == HttpMetrics.NO_RESPONSE) {
+            return "no response";
+        }
+        HttpStatusCode status = HttpStatusCode.findByCode(code);
+        return status == null ? String.valueOf(code) : status.getCode() + " " + status.getDescription();
+    }
+
+    /**
+     * Formats the metrics as table.
+     *
+     * @param metrics The metrics.
+     * @return The table (multiple lines).
+     */
+    public static String toTable(HttpMetrics metrics) {
+        StringBuilder table = new StringBuilder();
+        String nl = System.lineSeparator();
+        Map<String, HttpMetrics.Endpoint> endpoints = metrics.getEndpoints();
+        if (endpoints.isEmpty()) {
+            return "no requests" + nl;
+        }
+        for (HttpMetrics.Endpoint endpoint : endpoints.values()) {
+            table.append(endpoint.getName()).append(nl);
+            table.append(String.format("  requests %d, sent %d bytes, received %d bytes%n", endpoint.getRequests(), endpoint.getBytesSent(), endpoint.getBytesReceived()));
+            for (Map.Entry<Integer, Long> status : endpoint.getStatuses().entrySet()) {
+                table.append(String.format("  %-30s %d%n", formatStatus(status.getKey()), status.getValue()));
+            }
+            appendRow(table, "ttfb", endpoint.getFirstByte());
+            appendRow(table, "total", endpoint.getTotal());
+        }
+        table.append("connections").append(nl);
+        appendRow(table, "dns", metrics.getDns());
+        appendRow(table, "connect", metrics.getConnect());
+        appendRow(table, "tls", metrics.getTls());
+        return table.toString();
+    }
+
+    private static void appendRow(StringBuilder table, String name, LatencyHistogram histogram) {
+        table.append(String.format(Locale.ROOT, "  %-8s n=%-6d", name, histogram.getCount()));
+        table.append(formatLatencies(histogram)).append(System.lineSeparator());
+    }
+
+    /**
+     * Formats the percentiles and the maximum of durations, e.g. {@code  p50=1.2ms ... max=9.8ms}.
+     *
+     * @param histogram The durations.
+     * @return The formatted durations or an empty string when there are no durations.
+     */
+    static String formatLatencies(LatencyHistogram histogram) {
+        if (histogram.getCount() == 0) {
+            return "";
+        }
+        StringBuilder latencies = new StringBuilder();
+        for (double percentile : PERCENTILES) {
+            latencies.append(String.format(Locale.ROOT, " p%s=%.1fms", formatPercentile(percentile), histogram.getPercentile(percentile) / 1000.0));
+        }
+        return latencies.append(String.format(Locale.ROOT, " max=%.1fms", histogram.getMax() / 1000.0)).toString();
+    }
+
+    /**
+     * Formats the metrics as JSON document.
+     *
+     * @param metrics The metrics.
+     * @return The document.
+     */
+    public static JSONObject toJson(HttpMetrics metrics) {
+        JSONObject endpoints = new JSONObject();
+        for (HttpMetrics.Endpoint endpoint : metrics.getEndpoints().values()) {
+            JSONObject statuses = new JSONObject();
+            for (Map.Entry<Integer, Long> status : endpoint.getStatuses().entrySet()) {
+                statuses.put(formatStatus(status.getKey()), status.getValue());
+            }
+            endpoints.put(endpoint.getName(), new JSONObject()
+                    .put("requests", endpoint.getRequests())
+                    .put("bytesSent", endpoint.getBytesSent())
+                    .put("bytesReceived", endpoint.getBytesReceived())
+                    .put("statuses", statuses)
+                    .put("ttfb", toJson(endpoint.getFirstByte()))
+                    .put("total", toJson(endpoint.getTotal())));
+        }
+        return new JSONObject()
+                .put("endpoints", endpoints)
+                .put("connections", new JSONObject()
+                        .put("dns", toJson(metrics.getDns()))
+                        .put("connect", toJson(metrics.getConnect()))
+                        .put("tls", toJson(metrics.getTls())));
+    }
+
+    private static JSONObject toJson(LatencyHistogram histogram) {
+        JSONObject json = new JSONObject().put("count", histogram.getCount());
+        for (double percentile : PERCENTILES) {
+            json.put("p" + formatPercentile(percentile), histogram.getPercentile(percentile) / 1000.0);
+        }
+        return json.put("max", histogram.getMax() / 1000.0).put("sum", histogram.getSum() / 1000.0);
+    }
+
+    /**
+     * Formats the metrics in the Prometheus text format. The durations are exported as summaries.
+     *
+     * @param metrics The metrics.
+     * @return The metrics.
+     */
+    public static String toPrometheus(HttpMetrics metrics) {
+        StringBuilder text = new StringBuilder();
+        Map<String, HttpMetrics.Endpoint> endpoints = metrics.getEndpoints();
+        text.append("# TYPE " + PREFIX + "requests_total counter\n");
+        for (HttpMetrics.Endpoint endpoint : endpoints.values()) {
+            for (Map.Entry<Integer, Long> status : endpoint.getStatuses().entrySet()) {
+                text.append(PREFIX + "requests_total{endpoint=\"").append(escape(endpoint.getName()))
+                        .append("\",code=\"").append(status.getKey()).append("\"} ").append(status.getValue()).append('\n');
+            }
+        }
+        text.append("# TYPE " + PREFIX + "sent_bytes_total counter\n");
+        for (HttpMetrics.Endpoint endpoint : endpoints.values()) {
+            text.append(PREFIX + "sent_bytes_total{endpoint=\"").append(escape(endpoint.getName())).append("\"} ").append(endpoint.getBytesSent()).append('\n');
+        }
+        text.append("# TYPE " + PREFIX + "received_bytes_total counter\n");
+        for (HttpMetrics.Endpoint endpoint : endpoints.values()) {
+            text.append(PREFIX + "received_bytes_total{endpoint=\"").append(escape(endpoint.getName())).append("\"} ").append(endpoint.getBytesReceived()).append('\n');
+        }
+        text.append("# TYPE " + PREFIX + "ttfb_seconds summary\n");
+        for (HttpMetrics.Endpoint endpoint : endpoints.values()) {
+            appendSummary(text, "ttfb_seconds", "endpoint=\"" + escape(endpoint.getName()) + "\"", endpoint.getFirstByte());
+        }
+        text.append("# TYPE " + PREFIX + "request_duration_seconds summary\n");
+        for (HttpMetrics.Endpoint endpoint : endpoints.values()) {
+            appendSummary(text, "request_duration_seconds", "endpoint=\"" + escape(endpoint.getName()) + "\"", endpoint.getTotal());
+        }
+        text.append("# TYPE " + PREFIX + "dns_seconds summary\n");
+        appendSummary(text, "dns_seconds", null, metrics.getDns());
+        text.append("# TYPE " + PREFIX + "connect_seconds summary\n");
+        appendSummary(text, "connect_seconds", null, metrics.getConnect());
+        text.append("# TYPE " + PREFIX + "tls_seconds summary\n");
+        appendSummary(text, "tls_seconds", null, metrics.getTls());
+        return text.toString();
+    }
+
+    private static void appendSummary(StringBuilder text, String name, String labels, LatencyHistogram histogram) {
+        String prefix = labels == null ? "" : labels + ",";
+        String suffix = labels == null ? "" : "{" + labels + "}";
+        for (double percentile : PERCENTILES) {
+            String quantile = BigDecimal.valueOf(percentile).movePointLeft(2).stripTrailingZeros().toPlainString();
+            String value = histogram.getCount() == 0 ? "NaN" : String.valueOf(histogram.getPercentile(percentile) / 1e6);
+            text.append(PREFIX).append(name).append('{').append(prefix).append("quantile=\"").append(quantile).append("\"} ").append(value).append('\n');
+        }
+        text.append(PREFIX).append(name).append("_sum").append(suffix).append(' ').append(histogram.getSum() / 1e6).append('\n');
+        text.append(PREFIX).append(name).append("_count").append(suffix).append(' ').append(histogram.getCount()).append('\n');
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.luka5w.fileservercli.cli;
+
+import com.github.luka5w.fileservercli.client.TransferListener;
+import com.github.luka5w.fileservercli.log.Log;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs the progress of a transfer (info level), at most once per second. The progress is reported to the background job
+ * of the transfer (if any) as well, see {@code jobs}.
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class ProgressLogger implements TransferListener {
+
+    private static final long INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private static final String[] UNITS = {"B", "KiB", "MiB", "GiB", "TiB"};
+
+    private final Log logger;
+    private final String name;
+    private long lastLog;
+
+    /**
+     * Creates a new progress logger.
+     *
+     * @param logger The logger.
+     * @param name The name of the transfer (e.g. the id of the file).
+     */
+    public ProgressLogger(Log logger, String name) {
+        this.logger = logger;
+        this.name = name;
+        this.lastLog = System.nanoTime();
+    }
+
+    @Override
+    public void onProgress(long transferred, long total) {
+        Job.reportProgress(transferred, total);
+        if (!this.logger.isEnabled(Log.INFO)) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - this.lastLog < INTERVAL && transferred != total) {
+            return;
+        }
+        this.lastLog = now;
+        if (total > 0) {
+            this.logger.info(this.name + ": " + formatBytes(transferred) + " of " + formatBytes(total) + " (" + (transferred * 100 / total) + "%)");
+        }
+        else {
+            this.logger.info(this.name + ": " + formatBytes(transferred));
+        }
+    }
+
+    /**
+     * Formats a number of bytes (e.g. {@code 1.5 MiB}).
+     *
+     * @param bytes The number of bytes.
+     * @return The formatted number.
+     */
+    public static String formatBytes(long bytes) {
+        int unit = 0;
+        double value = bytes;
+        while (value >= 1024 && unit < UNITS.length - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return unit == 0 ? bytes + " B" : String.format("%.1f %s", value, UNITS[unit]);
+    }
+}
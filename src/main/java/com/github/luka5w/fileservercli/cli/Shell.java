@@ -0,0 +1,587 @@
+package com.github.luka5w.fileservercli.cli;
+
+import com.github.luka5w.fileservercli.Main;
+import com.github.luka5w.fileservercli.cli.commands.ConnectCommand;
+import com.github.luka5w.fileservercli.log.Log;
+import com.github.luka5w.http.HttpException;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.ParseException;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The interactive shell, which reads and executes the commands.
+ *
+ * <p>Commands which don't change the state of the shell can be executed in the background ({@code <command> &}, see
+ * {@link Job}) and managed with {@code jobs}, {@code wait} and {@code cancel}. When the output is a terminal, the
+ * progress of the running jobs (every {@code [shell] progress-interval} milliseconds) and the notifications of
+ * finished jobs are written while waiting for input (followed by a new prompt), otherwise the notifications are
+ * written before the next prompt.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class Shell {
+
+    static final String PROMPT = "> ";
+    static final String EXIT = "exit";
+    private static final String HELP = "?";
+    private static final String BACKGROUND = "&";
+    private static final String JOBS = "jobs";
+    private static final String WAIT = "wait";
+    private static final String CANCEL = "cancel";
+    private static final long CANCEL_TIMEOUT = 5000;
+
+    private final Log logger = Main.getLogger("Shell");
+    private final Map<String, Supplier<? extends Command>> factories = new LinkedHashMap<>();
+    private final Map<String, Command> commands = new HashMap<>();
+    private final Map<Integer, Job> jobs = new TreeMap<>();
+    private final Context context;
+    private int nextJobId = 1;
+    private volatile Consumer<Job> jobListener;
+    private Map<Integer, String> shownProgress = new HashMap<>();
+
+    /**
+     * Creates a new shell.
+     *
+     * @param context The state shared by the commands.
+     */
+    public Shell(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Registers a command.
+     *
+     * @param command The command.
+     */
+    public void register(Command command) {
+        this.register(command.getName(), () -> command);
+    }
+
+    /**
+     * Registers a command, which is created when it is used first (so runs which don't use it don't load its classes).
+     *
+     * @param name The name of the command.
+     * @param factory Creates the command.
+     */
+    public void register(String name, Supplier<? extends Command> factory) {
+        synchronized (this.commands) {
+            this.factories.put(name, factory);
+            this.commands.remove(name);
+        }
+    }
+
+    /**
+     * Reads and executes commands until the input ends or {@code exit} is entered. Running background jobs are
+     * cancelled on {@code exit} and awaited at the end of the input.
+     *
+     * @param in The input.
+     * @param out The output.
+     * @throws IOException When the input can't be read.
+     */
+    public void run(InputStream in, PrintStream out) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+        Prompt prompt = new Prompt(out, System.console() != null);
+        long interval = this.context.getConfig().getLong("shell", "progress-interval");
+        ScheduledExecutorService progress = null;
+        if (prompt.isTerminal()) {
+            this.jobListener = job -> prompt.printAsync(this::reportFinishedJobs);
+            if (interval > 0) {
+                progress = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "shell-progress");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                progress.scheduleWithFixedDelay(() -> prompt.printAsync(this::printProgress), interval, interval, TimeUnit.MILLISECONDS);
+            }
+        }
+        Function<String, String> passwordSource = this.context.getPasswordSource();
+        if (!prompt.isTerminal()) {
+            // the reader has buffered the input, so the passwords must be read from it, too
+            this.context.setPasswordSource(user -> ConnectCommand.readPassword(user, reader, out));
+        }
+        boolean exit = false;
+        try {
+            prompt.show(this::reportFinishedJobs);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                prompt.hide();
+                line = line.trim();
+                if (EXIT.equals(line)) {
+                    exit = true;
+                    break;
+                }
+                if (!line.isEmpty()) {
+                    this.executeInteractive(line, out);
+                }
+                prompt.show(this::reportFinishedJobs);
+            }
+        }
+        finally {
+            prompt.hide();
+            this.context.setPasswordSource(passwordSource);
+            this.jobListener = null;
+            if (progress != null) {
+                progress.shutdownNow();
+            }
+        }
+        if (exit) {
+            this.cancelJobs();
+        }
+        else {
+            this.awaitJobs();
+        }
+        this.reportFinishedJobs(out);
+    }
+
+    /**
+     * Executes one command line entered by the user: a command, a command in the background ({@code <command> &}) or
+     * one of the commands for background jobs ({@code jobs}, {@code wait [<id>...]}, {@code cancel <id>...}). The
+     * notifications of the jobs which have finished since the last command are written first.
+     *
+     * @param line The command line.
+     * @param out The output.
+     * @return The result of the command (of the waited jobs for {@code wait}).
+     */
+    public CommandResult executeInteractive(String line, PrintStream out) {
+        this.reportFinishedJobs(out);
+        String[] args;
+        try {
+            args = tokenize(line);
+        }
+        catch (IllegalArgumentException e) {
+            out.println(e.getMessage());
+            return CommandResult.ERROR;
+        }
+        if (args.length == 0) {
+            return CommandResult.SUCCESS;
+        }
+        switch (args[0]) {
+            case JOBS:
+                this.listJobs(out);
+                return CommandResult.SUCCESS;
+            case WAIT:
+                return this.waitForJobs(Arrays.copyOfRange(args, 1, args.length), out);
+            case CANCEL:
+                return this.cancelJobs(Arrays.copyOfRange(args, 1, args.length), out);
+            default:
+                break;
+        }
+        // a quoted & ends with the quote
+        if (line.endsWith(BACKGROUND)) {
+            return this.startJob(line.substring(0, line.length() - BACKGROUND.length()).trim(), out);
+        }
+        return this.execute(line, out);
+    }
+
+    /**
+     * Executes one command. Errors are written to the output.
+     *
+     * @param line The command line.
+     * @param out The output.
+     * @return The result of the command.
+     */
+    public CommandResult execute(String line, PrintStream out) {
+        String[] args;
+        try {
+            args = tokenize(line);
+        }
+        catch (IllegalArgumentException e) {
+            out.println(e.getMessage());
+            return CommandResult.ERROR;
+        }
+        if (args.length == 0) {
+            return CommandResult.SUCCESS;
+        }
+        if (HELP.equals(args[0])) {
+            this.printHelp(out);
+            return CommandResult.SUCCESS;
+        }
+        Command command = this.getCommand(args[0]);
+        if (command == null) {
+            out.println("unknown command: " + args[0] + " (type " + HELP + " for help)");
+            return CommandResult.ERROR;
+        }
+        try {
+            CommandLine cmd = new DefaultParser().parse(command.getOptions(), Arrays.copyOfRange(args, 1, args.length));
+            command.execute(cmd, this.context, out);
+            return CommandResult.SUCCESS;
+        }
+        catch (ParseException | IllegalArgumentException | IllegalStateException e) {
+            out.println(command.getName() + ": " + e.getMessage());
+        }
+        catch (HttpException e) {
+            out.println(command.getName() + ": " + e.getStatusCode() + " " + e.getMessage());
+            return CommandResult.httpError(e.getStatusCode());
+        }
+        catch (IOException e) {
+            // written to the output of the command to keep the order of the outputs in batch mode
+            out.println(command.getName() + ": request failed: " + (e.getMessage() == null ? e.getClass().getName() : e.getMessage()));
+            this.logger.debug(command.getName() + ": " + e);
+        }
+        return CommandResult.ERROR;
+    }
+
+    /**
+     * Gets a registered command by the first argument of a command line.
+     *
+     * @param name The name of the command.
+     * @return The command or {null} when no command with the name is registered.
+     */
+    public Command getCommand(String name) {
+        synchronized (this.commands) {
+            Command command = this.commands.get(name);
+            if (command == null && this.factories.containsKey(name)) {
+                command = this.factories.get(name).get();
+                this.commands.put(name, command);
+            }
+            return command;
+        }
+    }
+
+    /**
+     * @return The number of background jobs which are running.
+     */
+    int getRunningJobCount() {
+        synchronized (this.jobs) {
+            return (int) this.jobs.values().stream().filter(job -> !job.isDone()).count();
+        }
+    }
+
+    /**
+     * Cancels all running background jobs and waits until they have finished.
+     */
+    void cancelJobs() {
+        List<Job> jobs = this.getJobs();
+        jobs.forEach(Job::cancel);
+        for (Job job : jobs) {
+            try {
+                job.await(CANCEL_TIMEOUT);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits until all running background jobs have finished.
+     */
+    void awaitJobs() {
+        for (Job job : this.getJobs()) {
+            try {
+                job.await(0);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes the notifications (and the output) of the finished background jobs, which have not been reported yet.
+     *
+     * @param out The output.
+     */
+    void reportFinishedJobs(PrintStream out) {
+        List<Job> finished = new ArrayList<>();
+        synchronized (this.jobs) {
+            Iterator<Job> iterator = this.jobs.values().iterator();
+            while (iterator.hasNext()) {
+                Job job = iterator.next();
+                if (job.isDone()) {
+                    finished.add(job);
+                    iterator.remove();
+                }
+            }
+        }
+        for (Job job : finished) {
+            out.println(job.describe());
+            out.print(job.getOutput());
+        }
+    }
+
+    private CommandResult startJob(String line, PrintStream out) {
+        String[] args = tokenize(line);
+        if (args.length == 0) {
+            out.println("missing command before " + BACKGROUND);
+            return CommandResult.ERROR;
+        }
+        Command command = this.getCommand(args[0]);
+        if (command != null && !command.isIndependent()) {
+            out.println(command.getName() + " changes the state of the shell, it can't run in the background");
+            return CommandResult.ERROR;
+        }
+        Job job;
+        synchronized (this.jobs) {
+            job = new Job(this.nextJobId++, line, output -> this.execute(line, output), this::onJobFinished);
+            this.jobs.put(job.getId(), job);
+        }
+        job.start();
+        out.println("[" + job.getId() + "] started");
+        return CommandResult.SUCCESS;
+    }
+
+    private void onJobFinished(Job job) {
+        Consumer<Job> listener = this.jobListener;
+        if (listener != null) {
+            listener.accept(job);
+        }
+    }
+
+    private void listJobs(PrintStream out) {
+        List<Job> jobs = this.getJobs();
+        if (jobs.isEmpty()) {
+            out.println("no jobs");
+        }
+        for (Job job : jobs) {
+            out.println(job.describe());
+        }
+    }
+
+    private void printProgress(PrintStream out) {
+        Map<Integer, String> shown = new HashMap<>();
+        for (Job job : this.getJobs()) {
+            if (!job.isDone() && job.hasProgress()) {
+                String progress = job.describe();
+                // unchanged progress is not written again
+                if (!progress.equals(this.shownProgress.get(job.getId()))) {
+                    out.println(progress);
+                }
+                shown.put(job.getId(), progress);
+            }
+        }
+        this.shownProgress = shown;
+    }
+
+    private CommandResult waitForJobs(String[] ids, PrintStream out) {
+        List<Job> jobs = ids.length == 0 ? this.getJobs() : this.findJobs(WAIT, ids, out);
+        if (jobs == null) {
+            return CommandResult.ERROR;
+        }
+        CommandResult result = CommandResult.SUCCESS;
+        for (Job job : jobs) {
+            try {
+                job.await(0);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                out.println(WAIT + ": interrupted");
+                return CommandResult.ERROR;
+            }
+            if (result.isSuccess() && !job.getResult().isSuccess()) {
+                result = job.getResult();
+            }
+        }
+        this.reportFinishedJobs(out);
+        return result;
+    }
+
+    private CommandResult cancelJobs(String[] ids, PrintStream out) {
+        if (ids.length == 0) {
+            out.println(CANCEL + ": missing job (see " + JOBS + ")");
+            return CommandResult.ERROR;
+        }
+        List<Job> jobs = this.findJobs(CANCEL, ids, out);
+        if (jobs == null) {
+            return CommandResult.ERROR;
+        }
+        jobs.forEach(Job::cancel);
+        for (Job job : jobs) {
+            try {
+                // the connections of the job are closed, so it finishes quickly
+                if (!job.await(CANCEL_TIMEOUT)) {
+                    out.println(job.describe());
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        this.reportFinishedJobs(out);
+        return CommandResult.SUCCESS;
+    }
+
+    private List<Job> findJobs(String command, String[] ids, PrintStream out) {
+        List<Job> jobs = new ArrayList<>();
+        synchronized (this.jobs) {
+            for (String id : ids) {
+                Job job = null;
+                try {
+                    job = this.jobs.get(Integer.parseInt(id.startsWith("%") ? id.substring(1) : id));
+                }
+                catch (NumberFormatException e) {
+                    // not a job
+                }
+                if (job == null) {
+                    out.println(command + ": no job " + id + " (see " + JOBS + ")");
+                    return null;
+                }
+                jobs.add(job);
+            }
+        }
+        return jobs;
+    }
+
+    private List<Job> getJobs() {
+        synchronized (this.jobs) {
+            return new ArrayList<>(this.jobs.values());
+        }
+    }
+
+    private void printHelp(PrintStream out) {
+        HelpFormatter formatter = new HelpFormatter();
+        PrintWriter writer = new PrintWriter(out);
+        List<String> names;
+        synchronized (this.commands) {
+            names = new ArrayList<>(this.factories.keySet());
+        }
+        for (String name : names) {
+            Command command = this.getCommand(name);
+            formatter.printHelp(writer, formatter.getWidth(), command.getUsage(), command.getDescription(), command.getOptions(), formatter.getLeftPadding(), formatter.getDescPadding(), null);
+        }
+        writer.println("<command> " + BACKGROUND + "        Executes the command in the background");
+        writer.println(JOBS + "                Lists the background jobs and their progress");
+        writer.println(WAIT + " [<id>...]      Waits for background jobs (all by default)");
+        writer.println(CANCEL + " <id>...      Cancels background jobs");
+        writer.flush();
+    }
+
+    /**
+     * Splits a command line into arguments. Arguments can be quoted with {@code "} or {@code '}.
+     *
+     * @param line The command line.
+     * @return The arguments.
+     */
+    static String[] tokenize(String line) {
+        List<String> args = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inArg = false;
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+                else {
+                    current.append(c);
+                }
+            }
+            else if (c == '"' || c == '\'') {
+                quote = c;
+                inArg = true;
+            }
+            else if (Character.isWhitespace(c)) {
+                if (inArg) {
+                    args.add(current.toString());
+                    current.setLength(0);
+                    inArg = false;
+                }
+            }
+            else {
+                current.append(c);
+                inArg = true;
+            }
+        }
+        if (quote != 0) {
+            throw new IllegalArgumentException("unterminated quote");
+        }
+        if (inArg) {
+            args.add(current.toString());
+        }
+        return args.toArray(new String[0]);
+    }
+
+    /**
+     * Writes the prompt and the asynchronous output of the shell (progress and notifications of background jobs).
+     *
+     * <p>On a terminal, asynchronous output is written while the shell waits for input: the output is written on the
+     * lines after the prompt and the prompt is written again, so text typed so far stays visible above. It is not
+     * written while a command is executed, so it isn't mixed with the output of the command.</p>
+     */
+    private static class Prompt {
+
+        private final PrintStream out;
+        private final boolean terminal;
+        private boolean shown = false;
+
+        private Prompt(PrintStream out, boolean terminal) {
+            this.out = out;
+            this.terminal = terminal;
+        }
+
+        private boolean isTerminal() {
+            return this.terminal;
+        }
+
+        /**
+         * Writes the pending output and the prompt.
+         *
+         * @param pending Writes the pending output.
+         */
+        private synchronized void show(Consumer<PrintStream> pending) {
+            pending.accept(this.out);
+            this.out.print(PROMPT);
+            this.out.flush();
+            this.shown = true;
+        }
+
+        /**
+         * Marks the prompt as answered (a line has been read).
+         */
+        private synchronized void hide() {
+            this.shown = false;
+        }
+
+        /**
+         * Writes output below the prompt and writes the prompt again, if the prompt is shown on a terminal.
+         *
+         * <p>The line of the prompt is not erased: the terminal doesn't tell what has been typed so far (it is read
+         * line by line), so the typed text is kept visible on that line. It remains part of the line entered next.</p>
+         *
+         * @param writer Writes the output.
+         */
+        private synchronized void printAsync(Consumer<PrintStream> writer) {
+            if (!this.terminal || !this.shown) {
+                return;
+            }
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            PrintStream text = new PrintStream(buffer, true);
+            writer.accept(text);
+            if (buffer.size() == 0) {
+                return;
+            }
+            this.out.println();
+            this.out.print(buffer.toString());
+            this.out.print(PROMPT);
+            this.out.flush();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.luka5w.fileservercli.cli.commands;
+
+import com.github.luka5w.fileservercli.Config;
+import com.github.luka5w.fileservercli.cli.Command;
+import com.github.luka5w.fileservercli.cli.Context;
+import com.github.luka5w.fileservercli.cli.LoadGenerator;
+import com.github.luka5w.fileservercli.client.FileServerClient;
+import com.github.luka5w.fileservercli.stub.StubFileServer;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code bench}: Load test with simulated clients against the current server or an embedded stub server.
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class BenchCommand implements Command {
+
+    @Override
+    public String getName() {
+        return "bench";
+    }
+
+    @Override
+    public String getUsage() {
+        return "bench [-s] [-n <clients>] [-t <seconds>] [-m <mix>] [-z <size>]";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Executes a mix of downloads (g), uploads of new files (c) and listings (l) with simulated clients and prints the operations per second and the latencies. With -s, an embedded stub server is used instead of the current connection.";
+    }
+
+    @Override
+    public Options getOptions() {
+        return new Options()
+                .addOption(Option.builder("s").desc("Runs against an embedded stub server.").build())
+                .addOption(Option.builder("n").hasArg().argName("clients").desc("The number of simulated clients, overrides [bench] clients.").build())
+                .addOption(Option.builder("t").hasArg().argName("seconds").desc("The duration, overrides [bench] duration.").build())
+                .addOption(Option.builder("m").hasArg().argName("mix").desc("The weights of the operations (e.g. g:70,c:10,l:20), overrides [bench] mix.").build())
+                .addOption(Option.builder("z").hasArg().argName("size").desc("The size of created files (e.g. 64K), overrides [bench] size.").build());
+    }
+
+    /**
+     * The load test runs alone, so other commands don't distort the results.
+     */
+    @Override
+    public boolean isIndependent() {
+        return false;
+    }
+
+    @Override
+    public void execute(CommandLine cmd, Context context, PrintStream out) throws IOException {
+        Config config = context.getConfig();
+        int clients = cmd.hasOption("n") ? Integer.parseInt(cmd.getOptionValue("n")) : config.getInt("bench", "clients");
+        long duration = cmd.hasOption("t") ? Long.parseLong(cmd.getOptionValue("t")) : config.getLong("bench", "duration");
+        long size = cmd.hasOption("z") ? Config.parseSize(cmd.getOptionValue("z")) : config.getSize("bench", "size");
+        String mix = cmd.hasOption("m") ? cmd.getOptionValue("m") : config.getString("bench", "mix");
+        Map<Character, Integer> weights = LoadGenerator.parseMix(mix);
+        if (clients < 1 || duration < 1 || size < 0 || size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("usage: " + this.getUsage());
+        }
+
+        StubFileServer server = null;
+        List<FileServerClient> simulated = new ArrayList<>();
+        try {
+            FileServerClient template;
+            if (cmd.hasOption("s")) {
+                server = new StubFileServer(0);
+                template = new FileServerClient(server.getUri(), "bench", "bench", config.getSessionConfig());
+                template.getSession().setMetrics(context.getMetrics());
+                simulated.add(template);
+            }
+            else {
+                template = context.getClient();
+            }
+            while (simulated.size() < clients) {
+                simulated.add(template.newClient());
+            }
+            out.println("bench: " + clients + " clients for " + duration + " s against " + template.getServer() + ", mix " + mix);
+            long errors = new LoadGenerator(simulated, weights, (int) size).run(duration * 1000, out);
+            if (errors > 0) {
+                throw new IOException(errors + " operations failed");
+            }
+        }
+        finally {
+            for (FileServerClient client : simulated) {
+                client.close();
+            }
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.github.luka5w.fileservercli.cli.commands;
+
+import com.github.luka5w.fileservercli.Config;
+import com.github.luka5w.fileservercli.cli.Context;
+import com.github.luka5w.fileservercli.client.BulkOperation;
+import com.github.luka5w.http.HttpException;
+import com.github.luka5w.http.HttpStatusCode;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the targets of bulk operations ({@code f -d}, {@code o -d}, {@code o -m}) and prints their results.
+ *
+ * <p>A target is an id or a name, a range of numeric ids ({@code 1-500}) or a glob pattern ({@code *}, {@code ?} and
+ * {@code [...]}), which is matched against the listing of the collection. With {@code --from <file>}, the targets are
+ * read from a file (one per line, empty lines and lines starting with {@code #} are skipped). Every target is used
+ * once.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+final class BulkTargets {
+
+    private static final String OPTION_FROM = "from";
+    private static final String OPTION_DRY_RUN = "dry-run";
+    private static final String COMMENT = "#";
+    private static final Pattern RANGE = Pattern.compile("(\\d+)-(\\d+)");
+    private static final int MAX_TARGETS = 100000;
+    private static final int MAX_LISTED_TARGETS = 5;
+
+    private BulkTargets() {
+    }
+
+    /**
+     * Adds the options of bulk operations ({@code --from}, {@code --dry-run}).
+     *
+     * @param options The options of the command.
+     * @return The options.
+     */
+    static Options addOptions(Options options) {
+        return options
+                .addOption(Option.builder().longOpt(OPTION_FROM).hasArg().argName("file").desc("Reads the targets from a file (one per line).").build())
+                .addOption(Option.builder().longOpt(OPTION_DRY_RUN).desc("Prints the targets without changing them.").build());
+    }
+
+    /**
+     * Resolves the targets passed as arguments and with {@code --from}.
+     *
+     * @param cmd The parsed arguments.
+     * @param context The state of the shell.
+     * @param collection Lists the ids or names of the collection (only called when a glob pattern is used).
+     * @return The targets.
+     * @throws IOException When the file or the listing can't be read.
+     * @throws IllegalArgumentException When no target is passed or matched, a range is invalid or there are too many
+     * targets.
+     */
+    static List<String> resolve(CommandLine cmd, Context context, CollectionLister collection) throws IOException {
+        List<String> patterns = new ArrayList<>();
+        for (String arg : cmd.getArgs()) {
+            patterns.add(arg);
+        }
+        if (cmd.hasOption(OPTION_FROM)) {
+            for (String line : Files.readAllLines(context.resolve(cmd.getOptionValue(OPTION_FROM)).toPath(), StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith(COMMENT)) {
+                    patterns.add(line);
+                }
+            }
+        }
+        if (patterns.isEmpty()) {
+            throw new IllegalArgumentException("no targets (ids, ranges like 1-500, glob patterns or --from <file>)");
+        }
+        Set<String> targets = new LinkedHashSet<>();
+        List<String> listing = null;
+        for (String pattern : patterns) {
+            Matcher range = RANGE.matcher(pattern);
+            if (range.matches()) {
+                long first = Long.parseLong(range.group(1));
+                long last = Long.parseLong(range.group(2));
+                if (first > last || last - first >= MAX_TARGETS) {
+                    throw new IllegalArgumentException("invalid range " + pattern + " (at most " + MAX_TARGETS + " ids)");
+                }
+                for (long id = first; id <= last; id++) {
+                    targets.add(String.valueOf(id));
+                }
+            }
+            else if (isGlob(pattern)) {
+                if (listing == null) {
+                    listing = collection.list();
+                }
+                Pattern regex = toRegex(pattern);
+                for (String name : listing) {
+                    if (regex.matcher(name).matches()) {
+                        targets.add(name);
+                    }
+                }
+            }
+            else {
+                targets.add(pattern);
+            }
+            if (targets.size() > MAX_TARGETS) {
+                throw new IllegalArgumentException("too many targets (at most " + MAX_TARGETS + ")");
+            }
+        }
+        if (targets.isEmpty()) {
+            throw new IllegalArgumentException("no targets match " + String.join(" ", patterns));
+        }
+        return new ArrayList<>(targets);
+    }
+
+    /**
+     * Gets the ids or names of a collection for glob patterns.
+     *
+     * @param listing The listing of the collection (without {@code all}): ids or names, or objects with them.
+     * @return The ids or names.
+     * @throws IOException When the listing is not an array.
+     */
+    static List<String> list(Object listing) throws IOException {
+        if (!(listing instanceof JSONArray)) {
+            throw new IOException("invalid listing");
+        }
+        JSONArray entries = (JSONArray) listing;
+        List<String> names = new ArrayList<>(entries.length());
+        for (int i = 0; i < entries.length(); i++) {
+            Object entry = entries.get(i);
+            if (entry instanceof JSONObject) {
+                JSONObject object = (JSONObject) entry;
+                names.add(object.optString("id", object.optString("name")));
+            }
+            else {
+                names.add(String.valueOf(entry));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Applies a bulk operation to the targets (or prints them with {@code --dry-run}) and prints a summary of the
+     * results, grouped by status code.
+     *
+     * @param name The name of the operation for the output (e.g. {@code f -d}).
+     * @param operation The operation.
+     * @param targets The targets.
+     * @param cmd The parsed arguments.
+     * @param config The config ({@code [bulk]}).
+     * @param out The output.
+     * @throws HttpException When the operation failed for any target and all failed targets have the same status code.
+     * @throws IOException When the operation failed for any target.
+     */
+    static void run(String name, BulkOperation operation, List<String> targets, CommandLine cmd, Config config, PrintStream out) throws IOException {
+        if (cmd.hasOption(OPTION_DRY_RUN)) {
+            targets.forEach(out::println);
+            out.println(name + ": " + targets.size() + " targets (dry run)");
+            return;
+        }
+        List<BulkOperation.Result> results = operation.run(targets, Math.max(1, config.getInt("bulk", "parallel")), Math.max(1, config.getInt("bulk", "batch-size")));
+        Map<Integer, List<BulkOperation.Result>> byStatus = new TreeMap<>();
+        int failed = 0;
+        for (BulkOperation.Result result : results) {
+            byStatus.computeIfAbsent(result.getStatusCode(), status -> new ArrayList<>()).add(result);
+            if (!result.isSuccess()) {
+                failed++;
+            }
+        }
+        out.println(name + ": " + results.size() + " targets, " + (results.size() - failed) + " succeeded, " + failed + " failed");
+        for (Map.Entry<Integer, List<BulkOperation.Result>> entry : byStatus.entrySet()) {
+            List<BulkOperation.Result> group = entry.getValue();
+            StringBuilder line = new StringBuilder("  ").append(getCategory(entry.getKey())).append(": ").append(group.size());
+            if (!group.get(0).isSuccess()) {
+                // the failed targets, to repeat the operation with them
+                line.append(" (");
+                for (int i = 0; i < Math.min(group.size(), MAX_LISTED_TARGETS); i++) {
+                    line.append(i == 0 ? "" : ", ").append(group.get(i).getTarget());
+                }
+                if (group.size() > MAX_LISTED_TARGETS) {
+                    line.append(", ... ").append(group.size() - MAX_LISTED_TARGETS).append(" more");
+                }
+                line.append(")");
+                if (group.get(0).getError() != null) {
+                    line.append(": ").append(group.get(0).getError());
+                }
+            }
+            out.println(line);
+        }
+        if (failed > 0) {
+            String message = failed + " of " + results.size() + " targets failed";
+            int statusCode = getFailedStatusCode(byStatus);
+            throw statusCode != BulkOperation.NO_RESPONSE ? new HttpException(statusCode, message) : new IOException(message);
+        }
+    }
+
+    /**
+     * @return The status code of all failed targets or {@link BulkOperation#NO_RESPONSE} when they differ.
+     */
+    private static int getFailedStatusCode(Map<Integer, List<BulkOperation.Result>> byStatus) {
+        int statusCode = BulkOperation.NO_RESPONSE;
+        for (Map.Entry<Integer, List<BulkOperation.Result>> entry : byStatus.entrySet()) {
+            if (!entry.getValue().get(0).isSuccess()) {
+                if (statusCode != BulkOperation.NO_RESPONSE) {
+                    return BulkOperation.NO_RESPONSE;
+                }
+                statusCode = entry.getKey();
+            }
+        }
+        return statusCode;
+    }
+
+    private static String getCategory(int statusCode) {
+        if (statusCode == BulkOperation.NO_RESPONSE) {
+            return "error";
+        }
+        HttpStatusCode status = HttpStatusCode.findByCode(statusCode);
+        return status == null ? String.valueOf(statusCode) : statusCode + " " + status.getDescription();
+    }
+
+    private static boolean isGlob(String pattern) {
+        return pattern.indexOf('*') >= 0 || pattern.indexOf('?') >= 0 || pattern.indexOf('[') >= 0;
+    }
+
+    /**
+     * Converts a glob pattern ({@code *}, {@code ?} and {@code [...]}) to a regular expression.
+     *
+     * @param glob The pattern.
+     * @return The regular expression.
+     */
+    static Pattern toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            int end;
+            if (c == '*') {
+                regex.append(".*");
+            }
+            else if (c == '?') {
+                regex.append('.');
+            }
+            else if (c == '[' && (end = glob.indexOf(']', i + 2)) > 0) {
+                regex.append('[');
+                for (int j = i + 1; j < end; j++) {
+                    char member = glob.charAt(j);
+                    if (j == i + 1 && member == '!') {
+                        regex.append('^');
+                    }
+                    else {
+                        // ranges (a-z) are kept, other special characters of character classes are escaped
+                        regex.append(member == '\\' || member == '[' || member == '&' || member == '^' ? "\\" + member : String.valueOf(member));
+                    }
+                }
+                regex.append(']');
+                i = end;
+            }
+            else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * Lists the ids or names of a collection.
+     */
+    interface CollectionLister {
+
+        /**
+         * @return The ids or names.
+         * @throws IOException When the listing fails.
+         */
+        List<String> list() throws IOException;
+    }
+}
@@ -0,0 +1,178 @@
+package com.github.luka5w.fileservercli.cli.commands;
+
+import com.github.luka5w.fileservercli.Main;
+import com.github.luka5w.fileservercli.cli.Command;
+import com.github.luka5w.fileservercli.cli.Context;
+import com.github.luka5w.fileservercli.client.FileServerClient;
+import com.github.luka5w.fileservercli.client.SessionTokenStore;
+import com.github.luka5w.http.HttpException;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+
+import java.io.BufferedReader;
+import java.io.Console;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.util.function.Function;
+
+/**
+ * {@code c user@https://example.com:8443}: Connects to a server (after querying password).
+ *
+ * <p>When the server issues session tokens, the token is stored ({@code [connection] session-tokens}) and used by
+ * the next {@code c} for the same user and server instead of the password, until it expires.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class ConnectCommand implements Command {
+
+    /**
+     * The environment variable with the password for non-interactive use (e.g. batch mode).
+     */
+    public static final String ENV_PASSWORD = "FILESERVERCLI_PASSWORD";
+
+    @Override
+    public String getName() {
+        return "c";
+    }
+
+    @Override
+    public String getUsage() {
+        return "c user@https://example.com:8443";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Connects to a server (after querying password, or with the password in " + ENV_PASSWORD + "). A stored session token of the user is used instead of the password. The scheme defaults to https.";
+    }
+
+    @Override
+    public Options getOptions() {
+        return new Options();
+    }
+
+    @Override
+    public boolean isIndependent() {
+        return false;
+    }
+
+    @Override
+    public void execute(CommandLine cmd, Context context, PrintStream out) throws IOException {
+        if (cmd.getArgs().length != 1) {
+            throw new IllegalArgumentException("usage: " + this.getUsage());
+        }
+        String target = cmd.getArgs()[0];
+        int at = target.indexOf('@');
+        if (at <= 0 || at == target.length() - 1) {
+            throw new IllegalArgumentException("expected user@host[:port], got " + target);
+        }
+        String user = target.substring(0, at);
+        String url = target.substring(at + 1);
+        URI server = URI.create(url.contains("://") ? url : "https://" + url);
+
+        SessionTokenStore tokens = context.getSessionTokens();
+        SessionTokenStore.Token token = tokens != null ? tokens.get(server, user) : null;
+        FileServerClient client = null;
+        if (token != null) {
+            client = createClient(context, server, user, null);
+            client.setSessionToken(tokens, token);
+            try {
+                client.getSelf();
+                Main.getLogger("Connect").debug("Using the stored session token of " + user + ".");
+            }
+            catch (HttpException e) {
+                client.close();
+                if (e.getStatusCode() != 401) {
+                    throw e;
+                }
+                Main.getLogger("Connect").debug("Stored session token of " + user + " rejected.");
+                tokens.remove(server, user);
+                client = null;
+            }
+            catch (IOException e) {
+                client.close();
+                throw e;
+            }
+        }
+        if (client == null) {
+            client = createClient(context, server, user, readPassword(context, user));
+            try {
+                // the request of a token checks the credentials, too
+                if (tokens == null || !client.createSessionToken(tokens)) {
+                    client.getSelf();
+                }
+            }
+            catch (IOException e) {
+                client.close();
+                throw e;
+            }
+        }
+        context.setClient(client);
+        Main.getLogger("Connect").debug("Connected to " + server + " as " + user + ".");
+        out.println("connected to " + server + " as " + user);
+    }
+
+    private static FileServerClient createClient(Context context, URI server, String user, String password) {
+        FileServerClient client = new FileServerClient(server, user, password, context.getConfig().getSessionConfig());
+        client.getSession().setMetrics(context.getMetrics());
+        client.setMetadataCache(context.getMetadataCache());
+        client.setContentCache(context.getContentCache());
+        return client;
+    }
+
+    private static String readPassword(Context context, String user) {
+        Function<String, String> source = context.getPasswordSource();
+        return source != null ? source.apply(user) : readPassword(user);
+    }
+
+    /**
+     * Reads the password of a user from {@value #ENV_PASSWORD} or queries it on the console.
+     *
+     * @param user The user.
+     * @return The password.
+     * @throws IllegalStateException When the password is not set and there is no console.
+     */
+    public static String readPassword(String user) {
+        return readPassword(user, null, null);
+    }
+
+    /**
+     * Reads the password of a user from {@value #ENV_PASSWORD}, queries it on the console or reads it from the input
+     * of the shell. The input of the shell must be passed when there is no console, as it has already buffered the
+     * standard input.
+     *
+     * @param user The user.
+     * @param input The input of the shell or {null}.
+     * @param out The output for the query (required when the input is passed).
+     * @return The password.
+     * @throws IllegalStateException When the password is not set and can't be queried (no console and no input, or
+     * the input has ended).
+     */
+    public static String readPassword(String user, BufferedReader input, PrintStream out) {
+        String password = System.getenv(ENV_PASSWORD);
+        if (password != null) {
+            return password;
+        }
+        Console console = System.console();
+        if (console != null) {
+            char[] chars = console.readPassword("password for %s: ", user);
+            return chars == null ? "" : new String(chars);
+        }
+        if (input == null) {
+            throw new IllegalStateException("can't query the password of " + user + " without a console, set " + ENV_PASSWORD);
+        }
+        out.print("password for " + user + ": ");
+        out.flush();
+        try {
+            password = input.readLine();
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("can't read the password of " + user + ": " + e.getMessage());
+        }
+        if (password == null) {
+            throw new IllegalStateException("no password for " + user + " (end of the input), set " + ENV_PASSWORD);
+        }
+        return password;
+    }
+}
@@ -0,0 +1,223 @@
+package com.github.luka5w.fileservercli.cli.commands;
+
+import com.github.luka5w.fileservercli.Config;
+import com.github.luka5w.fileservercli.Constants;
+import com.github.luka5w.fileservercli.Main;
+import com.github.luka5w.fileservercli.cli.Command;
+import com.github.luka5w.fileservercli.cli.Context;
+import com.github.luka5w.fileservercli.cli.JsonPrinter;
+import com.github.luka5w.fileservercli.cli.ProgressLogger;
+import com.github.luka5w.fileservercli.client.BulkOperation;
+import com.github.luka5w.fileservercli.client.DeltaUpload;
+import com.github.luka5w.fileservercli.client.DirectorySync;
+import com.github.luka5w.fileservercli.client.FileDownload;
+import com.github.luka5w.fileservercli.client.FileServerClient;
+import com.github.luka5w.fileservercli.client.FileUpload;
+import com.github.luka5w.fileservercli.client.Listing;
+import com.github.luka5w.http.ContentCodec;
+import com.github.luka5w.http.ContentCodecs;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionGroup;
+import org.apache.commons.cli.Options;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@code f}: File management.
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class FileCommand implements Command {
+
+    @Override
+    public String getName() {
+        return "f";
+    }
+
+    @Override
+    public String getUsage() {
+        return "f -l [-a] | -g <id> [<output>] | -G <id> [<output>] | -c [<input>] | -m <id> <input> | -s <directory> | -d <id>... [--from <file>] [--dry-run]";
+    }
+
+    @Override
+    public String getDescription() {
+        return "File management.";
+    }
+
+    @Override
+    public Options getOptions() {
+        OptionGroup actions = new OptionGroup();
+        actions.setRequired(true);
+        actions.addOption(Option.builder("l").desc("Lists all own files.").build());
+        actions.addOption(Option.builder("g").hasArg().argName("id").desc("Gets the content of a file. When an output file is passed, it writes the content to a file (an interrupted download is resumed).").build());
+        actions.addOption(Option.builder("G").hasArg().argName("id").desc("Gets the metadata of a file. When an output file is passed, it writes the metadata to a file.").build());
+        actions.addOption(Option.builder("c").desc("Creates a new file. When the input file is passed, it is uploaded as content of the new file.").build());
+        actions.addOption(Option.builder("m").hasArg().argName("id").desc("Modifies the content of a file (an interrupted upload is resumed). With --delta, only the changed blocks are sent.").build());
+        actions.addOption(Option.builder("s").hasArg().argName("directory").desc("Synchronizes a local directory with the files on the server: changed files are uploaded or downloaded, deleted files are deleted on the other side.").build());
+        actions.addOption(Option.builder("d").desc("Deletes files: ids, ranges of ids (1-500), glob patterns of ids or --from <file>.").build());
+        return BulkTargets.addOptions(new Options()
+                .addOptionGroup(actions)
+                .addOption(Option.builder("a").desc("Lists the files with their metadata (with -l).").build()));
+    }
+
+    @Override
+    public void execute(CommandLine cmd, Context context, PrintStream out) throws IOException {
+        FileServerClient client = context.getClient();
+        if (cmd.hasOption("l")) {
+            this.list(client, context.getConfig(), cmd.hasOption("a"), out);
+        }
+        else if (cmd.hasOption("g")) {
+            this.get(client, context, cmd.getOptionValue("g"), cmd.getArgs(), out);
+        }
+        else if (cmd.hasOption("G")) {
+            this.getMetadata(client, context, cmd.getOptionValue("G"), cmd.getArgs(), out);
+        }
+        else if (cmd.hasOption("c")) {
+            this.create(client, context, cmd.getArgs(), out);
+        }
+        else if (cmd.hasOption("m")) {
+            if (cmd.getArgs().length != 1) {
+                throw new IllegalArgumentException("usage: f -m <id> <input>");
+            }
+            this.upload(client, context.getConfig(), cmd.getOptionValue("m"), context.resolve(cmd.getArgs()[0]), context.getConfig().getBoolean("upload", "delta"), out);
+        }
+        else if (cmd.hasOption("s")) {
+            this.sync(client, context.getConfig(), context.resolve(cmd.getOptionValue("s")), out);
+        }
+        else if (cmd.hasOption("d")) {
+            List<String> ids = BulkTargets.resolve(cmd, context, () -> BulkTargets.list(client.getFiles(false)));
+            BulkTargets.run("f -d", BulkOperation.deleteFiles(client), ids, cmd, context.getConfig(), out);
+        }
+    }
+
+    private void list(FileServerClient client, Config config, boolean all, PrintStream out) throws IOException {
+        int pageSize = config.getInt("listing", "page-size");
+        long limit = config.getLong("listing", "limit");
+        JsonPrinter printer = new JsonPrinter(new OutputStreamWriter(out));
+        if (pageSize <= 0 && limit <= 0) {
+            client.getFiles(all, printer::print);
+            return;
+        }
+        try (Listing listing = client.listFiles(all, Math.max(pageSize, 0), Math.max(limit, 0))) {
+            printer.print(listing);
+        }
+    }
+
+    private void get(FileServerClient client, Context context, String id, String[] args, PrintStream out) throws IOException {
+        if (args.length > 1) {
+            throw new IllegalArgumentException("usage: f -g <id> [<output>]");
+        }
+        FileDownload download = new FileDownload(client, id, new ProgressLogger(Main.getLogger("Download"), id));
+        download.setVerify(context.getConfig().getBoolean("integrity", "verify"));
+        if (args.length == 1) {
+            long size = download.toFile(context.resolve(args[0]));
+            out.println(ProgressLogger.formatBytes(size) + " written to " + args[0]);
+        }
+        else {
+            download.toStream(out);
+        }
+    }
+
+    private void getMetadata(FileServerClient client, Context context, String id, String[] args, PrintStream out) throws IOException {
+        if (args.length > 1) {
+            throw new IllegalArgumentException("usage: f -G <id> [<output>]");
+        }
+        String metadata = Command.formatJson(client.getFileMetadata(id));
+        if (args.length == 1) {
+            Files.write(context.resolve(args[0]).toPath(), metadata.getBytes(StandardCharsets.UTF_8));
+            out.println("metadata written to " + args[0]);
+        }
+        else {
+            out.println(metadata);
+        }
+    }
+
+    private void create(FileServerClient client, Context context, String[] args, PrintStream out) throws IOException {
+        if (args.length > 1) {
+            throw new IllegalArgumentException("usage: f -c [<input>]");
+        }
+        File input = args.length == 1 ? context.resolve(args[0]) : null;
+        if (input != null && !input.isFile()) {
+            throw new IllegalArgumentException("input file not found: " + input);
+        }
+        String id = client.createFile();
+        out.println("created file " + id);
+        if (input != null) {
+            this.upload(client, context.getConfig(), id, input, false, out);
+        }
+    }
+
+    private void upload(FileServerClient client, Config config, String id, File input, boolean delta, PrintStream out) throws IOException {
+        if (!input.isFile()) {
+            throw new IllegalArgumentException("input file not found: " + input);
+        }
+        FileUpload upload = new FileUpload(client, id, input, config.getSize("upload", "chunk-size"), config.getInt("upload", "parallel"), getJournalDirectory(config), new ProgressLogger(Main.getLogger("Upload"), id));
+        ContentCodec codec = getCompression(config);
+        if (codec != null) {
+            upload.setCompression(codec, getCompressionSkip(config));
+        }
+        upload.setVerify(config.getBoolean("integrity", "verify"));
+        if (!delta) {
+            long size = upload.upload();
+            out.println(ProgressLogger.formatBytes(size) + " uploaded to " + id);
+            return;
+        }
+        long blockSize = config.getSize("upload", "delta-block-size");
+        if (blockSize < 1 || blockSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("delta-block-size must be between 1 byte and 2 GiB");
+        }
+        File signatures = new File(config.getDirectory(), Constants.PROGRAM_NAME.toLowerCase() + "-signatures");
+        DeltaUpload deltaUpload = new DeltaUpload(client, id, input, (int) blockSize, signatures, upload, new ProgressLogger(Main.getLogger("Upload"), id));
+        long size = deltaUpload.upload();
+        String sent = deltaUpload.getSentBytes() >= 0 ? " (delta: " + ProgressLogger.formatBytes(deltaUpload.getSentBytes()) + " sent)" : "";
+        out.println(ProgressLogger.formatBytes(size) + " uploaded to " + id + sent);
+    }
+
+    private void sync(FileServerClient client, Config config, File directory, PrintStream out) throws IOException {
+        if (!directory.isDirectory()) {
+            throw new IllegalArgumentException("directory not found: " + directory);
+        }
+        File manifests = new File(config.getDirectory(), Constants.PROGRAM_NAME.toLowerCase() + "-sync");
+        DirectorySync sync = new DirectorySync(client, directory, manifests, config.getInt("sync", "parallel"), config.getSize("upload", "chunk-size"), config.getInt("upload", "parallel"), getJournalDirectory(config));
+        ContentCodec codec = getCompression(config);
+        if (codec != null) {
+            sync.setCompression(codec, getCompressionSkip(config));
+        }
+        sync.setVerify(config.getBoolean("integrity", "verify"));
+        int failed = sync.sync(out);
+        if (failed > 0) {
+            throw new IOException(failed + " transfers failed");
+        }
+    }
+
+    private static File getJournalDirectory(Config config) {
+        return new File(config.getDirectory(), Constants.PROGRAM_NAME.toLowerCase() + "-uploads");
+    }
+
+    private static ContentCodec getCompression(Config config) {
+        String compression = config.getString("upload", "compression");
+        if (compression.equalsIgnoreCase("none")) {
+            return null;
+        }
+        ContentCodec codec = ContentCodecs.get(compression);
+        if (codec == null) {
+            throw new IllegalArgumentException("unsupported compression: " + compression + " (supported: " + ContentCodecs.getAcceptEncoding() + ")");
+        }
+        return codec;
+    }
+
+    private static Set<String> getCompressionSkip(Config config) {
+        return new HashSet<>(Arrays.asList(config.getString("upload", "compression-skip").toLowerCase().split("\\s*,\\s*")));
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.luka5w.fileservercli.cli.commands;
+
+import com.github.luka5w.fileservercli.Config;
+import com.github.luka5w.fileservercli.cli.Command;
+import com.github.luka5w.fileservercli.cli.Context;
+import com.github.luka5w.fileservercli.cli.JsonPrinter;
+import com.github.luka5w.fileservercli.client.BulkOperation;
+import com.github.luka5w.fileservercli.client.FileServerClient;
+import com.github.luka5w.fileservercli.client.Listing;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionGroup;
+import org.apache.commons.cli.Options;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * {@code o}: Management of other users (admin required).
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class OtherCommand implements Command {
+
+    @Override
+    public String getName() {
+        return "o";
+    }
+
+    @Override
+    public String getUsage() {
+        return "o -l [-a] | -d <user>... | -m <user>... --set <key>=<value>... [--from <file>] [--dry-run]";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Management of other users (admin required).";
+    }
+
+    @Override
+    public Options getOptions() {
+        OptionGroup actions = new OptionGroup();
+        actions.setRequired(true);
+        actions.addOption(Option.builder("l").desc("Lists all users.").build());
+        actions.addOption(Option.builder("d").desc("Deletes users: names, glob patterns of names or --from <file>.").build());
+        actions.addOption(Option.builder("m").desc("Modifies users (names, glob patterns of names or --from <file>): sets the properties passed with --set.").build());
+        return BulkTargets.addOptions(new Options()
+                .addOptionGroup(actions)
+                .addOption(Option.builder("a").desc("Lists the users with their data (with -l).").build())
+                .addOption(Option.builder().longOpt("set").hasArg().argName("key=value").desc("A property set by -m (values are JSON literals or strings), can be repeated.").build()));
+    }
+
+    @Override
+    public void execute(CommandLine cmd, Context context, PrintStream out) throws IOException {
+        FileServerClient client = context.getClient();
+        if (cmd.hasOption("l")) {
+            this.list(client, context.getConfig(), cmd.hasOption("a"), out);
+        }
+        else if (cmd.hasOption("d")) {
+            List<String> users = BulkTargets.resolve(cmd, context, () -> BulkTargets.list(client.getUsers(false)));
+            BulkTargets.run("o -d", BulkOperation.deleteUsers(client), users, cmd, context.getConfig(), out);
+        }
+        else if (cmd.hasOption("m")) {
+            JSONObject changes = parseChanges(cmd.getOptionValues("set"));
+            List<String> users = BulkTargets.resolve(cmd, context, () -> BulkTargets.list(client.getUsers(false)));
+            BulkTargets.run("o -m", BulkOperation.modifyUsers(client, changes), users, cmd, context.getConfig(), out);
+        }
+    }
+
+    private static JSONObject parseChanges(String[] values) {
+        if (values == null) {
+            throw new IllegalArgumentException("usage: o -m <user>... --set <key>=<value>...");
+        }
+        JSONObject changes = new JSONObject();
+        for (String value : values) {
+            int separator = value.indexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("invalid property " + value + " (<key>=<value>)");
+            }
+            changes.put(value.substring(0, separator), JSONObject.stringToValue(value.substring(separator + 1)));
+        }
+        return changes;
+    }
+
+    private void list(FileServerClient client, Config config, boolean all, PrintStream out) throws IOException {
+        int pageSize = config.getInt("listing", "page-size");
+        long limit = config.getLong("listing", "limit");
+        JsonPrinter printer = new JsonPrinter(new OutputStreamWriter(out));
+        if (pageSize <= 0 && limit <= 0) {
+            client.getUsers(all, printer::print);
+            return;
+        }
+        try (Listing listing = client.listUsers(all, Math.max(pageSize, 0), Math.max(limit, 0))) {
+            printer.print(listing);
+        }
+    }
+}
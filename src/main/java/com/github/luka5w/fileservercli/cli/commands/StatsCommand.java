@@ -0,0 +1,65 @@
+package com.github.luka5w.fileservercli.cli.commands;
+
+import com.github.luka5w.fileservercli.cli.Command;
+import com.github.luka5w.fileservercli.cli.Context;
+import com.github.luka5w.fileservercli.cli.MetricsReport;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionGroup;
+import org.apache.commons.cli.Options;
+
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * {@code stats}: Prints the metrics of the requests sent since the program has been started.
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class StatsCommand implements Command {
+
+    @Override
+    public String getName() {
+        return "stats";
+    }
+
+    @Override
+    public String getUsage() {
+        return "stats [-j | -p]";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Prints the number of requests, the transferred bytes, the status codes and the latencies per endpoint (-j as JSON, -p in the Prometheus text format).";
+    }
+
+    @Override
+    public Options getOptions() {
+        OptionGroup formats = new OptionGroup();
+        formats.addOption(Option.builder("j").desc("Prints the metrics as JSON.").build());
+        formats.addOption(Option.builder("p").desc("Prints the metrics in the Prometheus text format.").build());
+        return new Options().addOptionGroup(formats);
+    }
+
+    /**
+     * In batch mode, the metrics include the requests of all previous commands.
+     */
+    @Override
+    public boolean isIndependent() {
+        return false;
+    }
+
+    @Override
+    public void execute(CommandLine cmd, Context context, PrintStream out) throws IOException {
+        if (cmd.hasOption("j")) {
+            out.println(Command.formatJson(MetricsReport.toJson(context.getMetrics())));
+        }
+        else if (cmd.hasOption("p")) {
+            out.print(MetricsReport.toPrometheus(context.getMetrics()));
+        }
+        else {
+            out.print(MetricsReport.toTable(context.getMetrics()));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.luka5w.fileservercli.cli.commands;
+
+import com.github.luka5w.fileservercli.cli.Command;
+import com.github.luka5w.fileservercli.cli.Context;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * {@code v}: Gets the API versions, supported by the server.
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class VersionsCommand implements Command {
+
+    @Override
+    public String getName() {
+        return "v";
+    }
+
+    @Override
+    public String getUsage() {
+        return "v";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Gets the API versions, supported by the server.";
+    }
+
+    @Override
+    public Options getOptions() {
+        return new Options();
+    }
+
+    @Override
+    public void execute(CommandLine cmd, Context context, PrintStream out) throws IOException {
+        out.println(Command.formatJson(context.getClient().getVersions()));
+    }
+}
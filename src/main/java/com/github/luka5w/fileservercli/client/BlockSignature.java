@@ -0,0 +1,321 @@
+package com.github.luka5w.fileservercli.client;
+
+import com.github.luka5w.fileservercli.Main;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * The signature of a content: the checksums of its blocks, used to find the blocks of the content in a new version
+ * (like rsync).
+ *
+ * <p>The content is split into blocks of a fixed size (the last block may be shorter). Every block has a weak
+ * checksum, which can be moved over the new version byte by byte ({@link #roll(int, int, int, int)}), and a strong
+ * checksum (the first 16 bytes of the SHA-256 hash), which confirms a match of the weak checksum.</p>
+ *
+ * <p>The JSON form is {@code {"blockSize": 65536, "size": 1234567, "weak": [...], "strong": ["<hex>", ...]}}.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class BlockSignature {
+
+    static final int STRONG_LENGTH = 16;
+
+    private final int blockSize;
+    private final long size;
+    private final int[] weak;
+    private final byte[][] strong;
+
+    private BlockSignature(int blockSize, long size, int[] weak, byte[][] strong) {
+        this.blockSize = blockSize;
+        this.size = size;
+        this.weak = weak;
+        this.strong = strong;
+    }
+
+    /**
+     * Computes the signature of a content.
+     *
+     * @param content The content.
+     * @param blockSize The size of the blocks.
+     * @return The signature.
+     */
+    public static BlockSignature compute(byte[] content, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("block size must be at least 1 byte");
+        }
+        int blocks = (content.length + blockSize - 1) / blockSize;
+        int[] weak = new int[blocks];
+        byte[][] strong = new byte[blocks][];
+        MessageDigest sha256 = newSha256();
+        for (int i = 0; i < blocks; i++) {
+            int offset = i * blockSize;
+            int length = Math.min(blockSize, content.length - offset);
+            weak[i] = weak(content, offset, length);
+            strong[i] = strong(sha256, content, offset, length);
+        }
+        return new BlockSignature(blockSize, content.length, weak, strong);
+    }
+
+    /**
+     * Computes the signature of a file.
+     *
+     * @param file The file.
+     * @param blockSize The size of the blocks.
+     * @return The signature.
+     */
+    static BlockSignature compute(MappedFile file, int blockSize) {
+        long size = file.size();
+        long blocks = (size + blockSize - 1) / blockSize;
+        if (blocks > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("block size is too small for " + size + " bytes");
+        }
+        int[] weak = new int[(int) blocks];
+        byte[][] strong = new byte[(int) blocks][];
+        MessageDigest sha256 = newSha256();
+        byte[] block = new byte[(int) Math.min(blockSize, size)];
+        for (int i = 0; i < blocks; i++) {
+            long offset = (long) i * blockSize;
+            int length = (int) Math.min(blockSize, size - offset);
+            file.get(offset, block, 0, length);
+            weak[i] = weak(block, 0, length);
+            strong[i] = strong(sha256, block, 0, length);
+        }
+        return new BlockSignature(blockSize, size, weak, strong);
+    }
+
+    /**
+     * Parses the JSON form of a signature.
+     *
+     * @param json The JSON form.
+     * @return The signature.
+     * @throws JSONException When the signature is invalid.
+     */
+    public static BlockSignature fromJson(JSONObject json) {
+        int blockSize = json.getInt("blockSize");
+        long size = json.getLong("size");
+        JSONArray weakArray = json.getJSONArray("weak");
+        JSONArray strongArray = json.getJSONArray("strong");
+        if (blockSize < 1 || size < 0 || weakArray.length() != (size + blockSize - 1) / blockSize || strongArray.length() != weakArray.length()) {
+            throw new JSONException("the blocks don't match the size");
+        }
+        int[] weak = new int[weakArray.length()];
+        byte[][] strong = new byte[weak.length][];
+        for (int i = 0; i < weak.length; i++) {
+            weak[i] = weakArray.getInt(i);
+            strong[i] = fromHex(strongArray.getString(i));
+        }
+        return new BlockSignature(blockSize, size, weak, strong);
+    }
+
+    /**
+     * @return The JSON form of the signature.
+     */
+    public JSONObject toJson() {
+        JSONArray weak = new JSONArray();
+        JSONArray strong = new JSONArray();
+        for (int i = 0; i < this.weak.length; i++) {
+            weak.put(this.weak[i]);
+            strong.put(toHex(this.strong[i]));
+        }
+        return new JSONObject()
+                .put("blockSize", this.blockSize)
+                .put("size", this.size)
+                .put("weak", weak)
+                .put("strong", strong);
+    }
+
+    /**
+     * Loads a signature stored by {@link #store(File, String, String)}.
+     *
+     * @param directory The directory of the signatures.
+     * @param key The key (server, user and id of the file).
+     * @param version The version of the file on the server.
+     * @return The signature or {null} when none is stored for the version.
+     */
+    static BlockSignature load(File directory, String key, String version) {
+        File file = new File(directory, UploadJournal.hash(key) + ".json");
+        if (!file.isFile()) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            JSONObject json = new JSONObject(new JSONTokener(reader));
+            if (!key.equals(json.optString("key")) || !version.equals(json.optString("version"))) {
+                return null;
+            }
+            return fromJson(json.getJSONObject("signature"));
+        }
+        catch (IOException | JSONException e) {
+            Main.getLogger("Delta").debug("Can't read signature " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the signature of the version of a file, which has been uploaded.
+     *
+     * @param directory The directory of the signatures.
+     * @param key The key (server, user and id of the file).
+     * @param version The version of the file on the server.
+     * @throws IOException When the signature can't be written.
+     */
+    void store(File directory, String key, String version) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("can't create directory " + directory);
+        }
+        File file = new File(directory, UploadJournal.hash(key) + ".json");
+        File temp = new File(file.getPath() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+            new JSONObject().put("key", key).put("version", version).put("signature", this.toJson()).write(writer);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @return The size of the blocks.
+     */
+    public int getBlockSize() {
+        return this.blockSize;
+    }
+
+    /**
+     * @return The size of the content.
+     */
+    public long getSize() {
+        return this.size;
+    }
+
+    /**
+     * @return The number of blocks.
+     */
+    public int getBlockCount() {
+        return this.weak.length;
+    }
+
+    /**
+     * @param block The index of a block.
+     * @return The length of the block (only the last block may be shorter than the block size).
+     */
+    long getBlockLength(int block) {
+        return Math.min(this.blockSize, this.size - (long) block * this.blockSize);
+    }
+
+    /**
+     * @param block The index of a block.
+     * @return The weak checksum of the block.
+     */
+    int getWeak(int block) {
+        return this.weak[block];
+    }
+
+    /**
+     * @param block The index of a block.
+     * @param strong The strong checksum of a range of the new version.
+     * @return {true} when the block has the strong checksum.
+     */
+    boolean matches(int block, byte[] strong) {
+        return Arrays.equals(this.strong[block], strong);
+    }
+
+    /**
+     * @param block The index of a block.
+     * @return The strong checksum of the block (must not be modified).
+     */
+    byte[] getStrong(int block) {
+        return this.strong[block];
+    }
+
+    /**
+     * Computes the weak checksum of a range (rsync's checksum: the sum of the bytes and the sum of the partial sums,
+     * both modulo 2^16).
+     *
+     * @param data The data.
+     * @param offset The first byte.
+     * @param length The number of bytes.
+     * @return The checksum.
+     */
+    static int weak(byte[] data, int offset, int length) {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < length; i++) {
+            a += data[offset + i] & 0xFF;
+            b += (length - i) * (data[offset + i] & 0xFF);
+        }
+        return (a & 0xFFFF) | (b << 16);
+    }
+
+    /**
+     * Moves the range of a weak checksum by one byte.
+     *
+     * @param checksum The checksum of the range.
+     * @param length The length of the range.
+     * @param removed The first byte of the range (0 to 255).
+     * @param added The byte after the range (0 to 255).
+     * @return The checksum of the range starting one byte later.
+     */
+    static int roll(int checksum, int length, int removed, int added) {
+        int a = (checksum - removed + added) & 0xFFFF;
+        int b = ((checksum >>> 16) - length * removed + a) & 0xFFFF;
+        return a | (b << 16);
+    }
+
+    /**
+     * Computes the strong checksum of a range.
+     *
+     * @param sha256 A SHA-256 digest (reset before and after).
+     * @param data The data.
+     * @param offset The first byte.
+     * @param length The number of bytes.
+     * @return The checksum.
+     */
+    static byte[] strong(MessageDigest sha256, byte[] data, int offset, int length) {
+        sha256.update(data, offset, length);
+        return Arrays.copyOf(sha256.digest(), STRONG_LENGTH);
+    }
+
+    static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    private static byte[] fromHex(String hex) {
+        if (hex.length() != STRONG_LENGTH * 2) {
+            throw new JSONException("invalid strong checksum: " + hex);
+        }
+        byte[] bytes = new byte[STRONG_LENGTH];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new JSONException("invalid strong checksum: " + hex);
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.luka5w.fileservercli.client;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads the body of a response while it is received (e.g. to print a large listing).
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public interface BodyHandler {
+
+    /**
+     * Reads the body.
+     *
+     * @param body The decoded body. It is closed by the caller.
+     * @throws IOException When the body can't be read or processed.
+     */
+    void handle(Reader body) throws IOException;
+}
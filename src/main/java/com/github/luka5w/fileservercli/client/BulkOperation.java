@@ -0,0 +1,290 @@
+package com.github.luka5w.fileservercli.client;
+
+import com.github.luka5w.fileservercli.Main;
+import com.github.luka5w.http.Cancellation;
+import com.github.luka5w.http.HttpException;
+import com.github.luka5w.http.HttpMethod;
+import com.github.luka5w.http.HttpRequest;
+import com.github.luka5w.http.HttpResponse;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Applies one operation to many files or users (e.g. {@code f -d 1-500}).
+ *
+ * <p>The targets are sent to the batch endpoint of the collection ({@code POST /api/v1/files/batch} with
+ * {@code {"action": "delete", "ids": [...]}}, answered with the status of every target:
+ * {@code {"results": [{"id": "1", "status": 204}, ...]}}) in requests of at most {@code batchSize} targets. When the
+ * server has no batch endpoint, one request is sent per target instead. These requests are sent at the same time over
+ * the pooled connections, at most {@code parallelism} at once, so their round trips overlap.</p>
+ *
+ * <p>The operation does not stop at failed targets, the status code of every target is returned.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class BulkOperation {
+
+    /**
+     * The status code of a target for which no response has been received (e.g. a connection error).
+     */
+    public static final int NO_RESPONSE = -1;
+
+    private static final String CONTENT_TYPE_JSON = "application/json; charset=utf-8";
+
+    private final FileServerClient client;
+    private final String collection;
+    private final String action;
+    private final HttpMethod method;
+    private final JSONObject changes;
+
+    private BulkOperation(FileServerClient client, String collection, String action, HttpMethod method, JSONObject changes) {
+        this.client = client;
+        this.collection = collection;
+        this.action = action;
+        this.method = method;
+        this.changes = changes;
+    }
+
+    /**
+     * Creates an operation which deletes files.
+     *
+     * @param client The client.
+     * @return The operation.
+     */
+    public static BulkOperation deleteFiles(FileServerClient client) {
+        return new BulkOperation(client, FileServerClient.PATH_FILES, "delete", HttpMethod.DELETE, null);
+    }
+
+    /**
+     * Creates an operation which deletes users (admin required).
+     *
+     * @param client The client.
+     * @return The operation.
+     */
+    public static BulkOperation deleteUsers(FileServerClient client) {
+        return new BulkOperation(client, FileServerClient.PATH_USERS, "delete", HttpMethod.DELETE, null);
+    }
+
+    /**
+     * Creates an operation which modifies users (admin required).
+     *
+     * @param client The client.
+     * @param changes The changed properties of the users (e.g. {@code {"admin": false}}).
+     * @return The operation.
+     */
+    public static BulkOperation modifyUsers(FileServerClient client, JSONObject changes) {
+        return new BulkOperation(client, FileServerClient.PATH_USERS, "modify", HttpMethod.PATCH, changes);
+    }
+
+    /**
+     * Applies the operation to the targets.
+     *
+     * @param targets The ids of the files or the names of the users.
+     * @param parallelism The maximum number of requests sent at the same time.
+     * @param batchSize The maximum number of targets per request to the batch endpoint.
+     * @return The results in the order of the targets.
+     * @throws IOException When the operation has been cancelled or interrupted.
+     */
+    public List<Result> run(List<String> targets, int parallelism, int batchSize) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batch size must be at least 1");
+        }
+        List<Result> results = new ArrayList<>(targets.size());
+        if (targets.isEmpty()) {
+            return results;
+        }
+        List<Callable<List<Result>>> tasks = new ArrayList<>();
+        List<String> first = targets.subList(0, Math.min(batchSize, targets.size()));
+        List<Result> batch = this.sendBatch(first);
+        if (batch != null) {
+            results.addAll(batch);
+            for (int i = first.size(); i < targets.size(); i += batchSize) {
+                List<String> part = targets.subList(i, Math.min(i + batchSize, targets.size()));
+                tasks.add(() -> {
+                    List<Result> partResults = this.sendBatch(part);
+                    return partResults != null ? partResults : this.sendEach(part);
+                });
+            }
+        }
+        else {
+            Main.getLogger("Bulk").debug(() -> "Server has no batch endpoint for " + this.collection + ", sending " + targets.size() + " requests.");
+            for (String target : targets) {
+                tasks.add(() -> Collections.singletonList(this.send(target)));
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, tasks.size())));
+        try {
+            List<Future<List<Result>>> futures = new ArrayList<>();
+            for (Callable<List<Result>> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<List<Result>> future : futures) {
+                results.addAll(future.get());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(this.action + " interrupted");
+        }
+        catch (ExecutionException e) {
+            throw new IOException(this.action + " failed unexpectedly: " + e.getCause(), e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        Cancellation cancellation = Cancellation.current();
+        if (cancellation != null) {
+            // the remaining targets have failed without a request
+            cancellation.check();
+        }
+        return results;
+    }
+
+    /**
+     * Sends targets to the batch endpoint.
+     *
+     * @param targets The targets.
+     * @return The results or {null} when the server has no batch endpoint.
+     */
+    private List<Result> sendBatch(List<String> targets) {
+        JSONObject body = new JSONObject().put("action", this.action).put("ids", new JSONArray(targets));
+        if (this.changes != null) {
+            body.put("changes", this.changes);
+        }
+        HttpRequest request = new HttpRequest(HttpMethod.POST, this.collection + "/batch")
+                .header("Content-Type", CONTENT_TYPE_JSON)
+                .body(HttpRequest.Body.of(body.toString().getBytes(StandardCharsets.UTF_8)));
+        Object response;
+        try {
+            response = this.client.requestJson(request);
+        }
+        catch (HttpException e) {
+            if (isUnsupported(e)) {
+                return null;
+            }
+            return fail(targets, e.getStatusCode(), e.getMessage());
+        }
+        catch (IOException e) {
+            return fail(targets, NO_RESPONSE, e.getMessage());
+        }
+        Map<String, Result> byTarget = new HashMap<>();
+        try {
+            JSONArray entries = ((JSONObject) response).getJSONArray("results");
+            for (int i = 0; i < entries.length(); i++) {
+                JSONObject entry = entries.getJSONObject(i);
+                String id = entry.getString("id");
+                byTarget.put(id, new Result(id, entry.getInt("status"), entry.optString("error", null)));
+            }
+        }
+        catch (ClassCastException | JSONException e) {
+            return fail(targets, NO_RESPONSE, "invalid response of the batch endpoint");
+        }
+        List<Result> results = new ArrayList<>(targets.size());
+        for (String target : targets) {
+            Result result = byTarget.get(target);
+            results.add(result != null ? result : new Result(target, NO_RESPONSE, "missing in the response of the batch endpoint"));
+        }
+        return results;
+    }
+
+    private List<Result> sendEach(List<String> targets) {
+        List<Result> results = new ArrayList<>(targets.size());
+        for (String target : targets) {
+            results.add(this.send(target));
+        }
+        return results;
+    }
+
+    private Result send(String target) {
+        HttpRequest request = new HttpRequest(this.method, this.collection + "/" + FileServerClient.encode(target));
+        if (this.changes != null) {
+            request.header("Content-Type", CONTENT_TYPE_JSON)
+                    .body(HttpRequest.Body.of(this.changes.toString().getBytes(StandardCharsets.UTF_8)));
+        }
+        try (HttpResponse response = this.client.execute(request)) {
+            return new Result(target, response.getStatusCode(), null);
+        }
+        catch (HttpException e) {
+            return new Result(target, e.getStatusCode(), e.getMessage());
+        }
+        catch (IOException e) {
+            return new Result(target, NO_RESPONSE, e.getMessage() == null ? e.getClass().getName() : e.getMessage());
+        }
+    }
+
+    private static List<Result> fail(List<String> targets, int statusCode, String error) {
+        List<Result> results = new ArrayList<>(targets.size());
+        for (String target : targets) {
+            results.add(new Result(target, statusCode, error));
+        }
+        return results;
+    }
+
+    private static boolean isUnsupported(HttpException e) {
+        int code = e.getStatusCode();
+        return code == 404 || code == 405 || code == 501;
+    }
+
+    /**
+     * The result of the operation for one target.
+     */
+    public static final class Result {
+
+        private final String target;
+        private final int statusCode;
+        private final String error;
+
+        private Result(String target, int statusCode, String error) {
+            this.target = target;
+            this.statusCode = statusCode;
+            this.error = error;
+        }
+
+        /**
+         * @return The id of the file or the name of the user.
+         */
+        public String getTarget() {
+            return this.target;
+        }
+
+        /**
+         * @return The status code of the response or {@link #NO_RESPONSE}.
+         */
+        public int getStatusCode() {
+            return this.statusCode;
+        }
+
+        /**
+         * @return {true} when the operation succeeded (2XX).
+         */
+        public boolean isSuccess() {
+            return this.statusCode >= 200 && this.statusCode < 300;
+        }
+
+        /**
+         * @return The error message of the server or the connection or {null}.
+         */
+        public String getError() {
+            return this.error;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.github.luka5w.fileservercli.client;
+
+import com.github.luka5w.fileservercli.Main;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the content of downloaded files on disk.
+ *
+ * <p>The content is stored by its SHA-256 hash ({@code objects/<hash>}), so files with the same content are stored
+ * once. The index maps a file (server, user and id) to the hash and the validator (ETag or Last-Modified) of the
+ * downloaded version. A cached file is revalidated with a conditional request and, when the server answers with 304,
+ * the output is created as copy of the cached content. Contents are always copied into and out of the cache, so the
+ * outputs can be changed without changing the cached content or other outputs. The content is verified against its
+ * hash before it is used.</p>
+ *
+ * <p>When the total size exceeds the limit, the least recently used contents are removed.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class ContentCache {
+
+    private static final String INDEX = "index.json";
+    private static final String OBJECTS = "objects";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File directory;
+    private final File objects;
+    private final long maxSize;
+    private final Map<String, Entry> entries = new HashMap<>();
+    /**
+     * hash -> size, in access order
+     */
+    private final LinkedHashMap<String, Long> contents = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+
+    /**
+     * Opens the cache in a directory. The directory is created when the first content is stored.
+     *
+     * @param directory The directory of the cache.
+     * @param maxSize The maximum total size of the cached contents in bytes.
+     */
+    public ContentCache(File directory, long maxSize) {
+        this.directory = directory;
+        this.objects = new File(directory, OBJECTS);
+        this.maxSize = maxSize;
+        this.load();
+    }
+
+    /**
+     * Gets the cached version of a file.
+     *
+     * @param key The key (server, user and id of the file).
+     * @return The entry or {null}.
+     */
+    synchronized Entry get(String key) {
+        Entry entry = this.entries.get(key);
+        return entry != null && this.contents.containsKey(entry.hash) ? entry : null;
+    }
+
+    /**
+     * Creates the output from a cached content. The content is verified before; invalid contents are removed.
+     *
+     * @param entry The cached version.
+     * @param output The output file (will be overwritten).
+     * @return {true} when the output has been created, {false} when the content is missing or invalid.
+     * @throws IOException When the output can't be written.
+     */
+    boolean copyTo(Entry entry, File output) throws IOException {
+        Path content = this.getContent(entry.hash);
+        String hash = Files.isRegularFile(content) ? hash(content) : null;
+        if (!entry.hash.equals(hash)) {
+            Main.getLogger("ContentCache").warn("Cached content " + entry.hash + " is missing or corrupted, removing it.");
+            synchronized (this) {
+                this.removeContent(entry.hash);
+                this.save();
+            }
+            return false;
+        }
+        synchronized (this) {
+            // updates the access order
+            this.contents.get(entry.hash);
+            this.save();
+        }
+        Path temp = new File(output.getPath() + FileDownload.PART_SUFFIX).toPath();
+        Files.copy(content, temp, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(temp, output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    /**
+     * Adds a downloaded file to the cache (as copy).
+     *
+     * @param key The key (server, user and id of the file).
+     * @param validator The ETag or Last-Modified value of the downloaded version.
+     * @param file The downloaded file.
+     * @throws IOException When the file can't be read or the cache can't be written.
+     */
+    void put(String key, String validator, File file) throws IOException {
+        long length = file.length();
+        if (length > this.maxSize) {
+            return;
+        }
+        String hash = hash(file.toPath());
+        Path content = this.getContent(hash);
+        if (!Files.isRegularFile(content)) {
+            if (!this.objects.isDirectory() && !this.objects.mkdirs()) {
+                throw new IOException("can't create cache directory " + this.objects);
+            }
+            Path temp = new File(content + ".tmp").toPath();
+            Files.copy(file.toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, content, StandardCopyOption.REPLACE_EXISTING);
+        }
+        synchronized (this) {
+            this.entries.put(key, new Entry(validator, hash, length));
+            if (this.contents.put(hash, length) == null) {
+                this.size += length;
+            }
+            Iterator<Map.Entry<String, Long>> eldest = this.contents.entrySet().iterator();
+            while (this.size > this.maxSize && eldest.hasNext()) {
+                Map.Entry<String, Long> evicted = eldest.next();
+                if (!evicted.getKey().equals(hash)) {
+                    eldest.remove();
+                    this.deleteContent(evicted.getKey(), evicted.getValue());
+                }
+            }
+            this.save();
+        }
+    }
+
+    private Path getContent(String hash) {
+        return new File(this.objects, hash).toPath();
+    }
+
+    private void removeContent(String hash) {
+        Long length = this.contents.remove(hash);
+        if (length != null) {
+            this.deleteContent(hash, length);
+        }
+    }
+
+    /**
+     * Deletes a content and the entries referencing it. It must already be removed from {@link #contents}.
+     */
+    private void deleteContent(String hash, long length) {
+        this.entries.values().removeIf(entry -> entry.hash.equals(hash));
+        this.size -= length;
+        try {
+            Files.deleteIfExists(this.getContent(hash));
+        }
+        catch (IOException e) {
+            Main.getLogger("ContentCache").debug("Can't delete cached content " + hash + ": " + e.getMessage());
+        }
+    }
+
+    private void load() {
+        File index = new File(this.directory, INDEX);
+        if (!index.isFile()) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(index.toPath(), StandardCharsets.UTF_8)) {
+            JSONObject json = new JSONObject(new JSONTokener(reader));
+            JSONArray contents = json.getJSONArray("contents");
+            for (int i = 0; i < contents.length(); i++) {
+                JSONObject content = contents.getJSONObject(i);
+                this.contents.put(content.getString("hash"), content.getLong("size"));
+                this.size += content.getLong("size");
+            }
+            JSONObject entries = json.getJSONObject("entries");
+            for (String key : entries.keySet()) {
+                JSONObject entry = entries.getJSONObject(key);
+                this.entries.put(key, new Entry(entry.getString("validator"), entry.getString("hash"), entry.getLong("size")));
+            }
+        }
+        catch (IOException | JSONException e) {
+            Main.getLogger("ContentCache").warn("Can't load cache index " + index + ": " + e.getMessage());
+            this.contents.clear();
+            this.entries.clear();
+            this.size = 0;
+        }
+    }
+
+    private void save() {
+        JSONArray contents = new JSONArray();
+        for (Map.Entry<String, Long> content : this.contents.entrySet()) {
+            contents.put(new JSONObject().put("hash", content.getKey()).put("size", content.getValue()));
+        }
+        JSONObject entries = new JSONObject();
+        for (Map.Entry<String, Entry> entry : this.entries.entrySet()) {
+            entries.put(entry.getKey(), new JSONObject()
+                    .put("validator", entry.getValue().validator)
+                    .put("hash", entry.getValue().hash)
+                    .put("size", entry.getValue().size));
+        }
+        File index = new File(this.directory, INDEX);
+        File temp = new File(index.getPath() + ".tmp");
+        try {
+            if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+                throw new IOException("can't create directory " + this.directory);
+            }
+            try (Writer writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+                new JSONObject().put("contents", contents).put("entries", entries).write(writer);
+            }
+            Files.move(temp.toPath(), index.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (IOException e) {
+            Main.getLogger("ContentCache").warn("Can't store cache index " + index + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Computes the SHA-256 hash of a file.
+     *
+     * @param file The file.
+     * @return The hash (hex).
+     * @throws IOException When the file can't be read.
+     */
+    static String hash(Path file) throws IOException {
+        MessageDigest sha256 = BlockSignature.newSha256();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                sha256.update(buffer, 0, n);
+            }
+        }
+        return BlockSignature.toHex(sha256.digest());
+    }
+
+    /**
+     * A cached version of a file.
+     */
+    static class Entry {
+
+        final String validator;
+        final String hash;
+        final long size;
+
+        Entry(String validator, String hash, long size) {
+            this.validator = validator;
+            this.hash = hash;
+            this.size = size;
+        }
+    }
+}
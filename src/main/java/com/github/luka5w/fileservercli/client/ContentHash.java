@@ -0,0 +1,125 @@
+package com.github.luka5w.fileservercli.client;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The hash tree of a content, built while the content is transferred.
+ *
+ * <p>The content is split into chunks of a fixed size (the chunks of a {@link FileUpload}). The leaves of the tree are
+ * the SHA-256 hashes of the chunks (truncated like the strong checksums of a {@link BlockSignature}), so they are
+ * computed by the threads which transfer the chunks in parallel, from the data they read anyway. The root is the
+ * SHA-256 hash of the leaves.</p>
+ *
+ * <p>The block signature of the server with the chunk size as block size has the same leaves, so the content on the
+ * server is verified by comparing the roots and, when they differ, the chunks which differ are found by comparing the
+ * leaves, without reading the content again.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+final class ContentHash {
+
+    private final long size;
+    private final long chunkSize;
+    private final byte[][] leaves;
+
+    /**
+     * Creates a new tree without leaves.
+     *
+     * @param size The size of the content.
+     * @param chunkSize The size of the chunks.
+     */
+    ContentHash(long size, long chunkSize) {
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.leaves = new byte[(int) ((size + chunkSize - 1) / chunkSize)][];
+    }
+
+    /**
+     * @return The number of chunks.
+     */
+    int getChunkCount() {
+        return this.leaves.length;
+    }
+
+    /**
+     * Sets the hash of a chunk. May be called by multiple threads for different chunks.
+     *
+     * @param chunk The index of the chunk.
+     * @param sha256 The SHA-256 hash of the chunk.
+     */
+    void setLeaf(int chunk, byte[] sha256) {
+        byte[] leaf = Arrays.copyOf(sha256, BlockSignature.STRONG_LENGTH);
+        synchronized (this.leaves) {
+            this.leaves[chunk] = leaf;
+        }
+    }
+
+    /**
+     * @param chunk The index of a chunk.
+     * @return {true} when the hash of the chunk has been set.
+     */
+    boolean hasLeaf(int chunk) {
+        synchronized (this.leaves) {
+            return this.leaves[chunk] != null;
+        }
+    }
+
+    /**
+     * Compares the tree with the block signature of the content on the server.
+     *
+     * @param signature The signature.
+     * @return The indices of the chunks which differ from the blocks of the signature or {null} when the signature has
+     * other blocks (the server does not support the chunk size as block size).
+     * @throws IllegalStateException When the hash of a chunk has not been set.
+     */
+    List<Integer> compare(BlockSignature signature) {
+        if (signature.getBlockSize() != this.chunkSize) {
+            return null;
+        }
+        List<Integer> differing = new ArrayList<>();
+        synchronized (this.leaves) {
+            if (signature.getSize() == this.size && Arrays.equals(this.getRoot(), root(signature))) {
+                return differing;
+            }
+            for (int i = 0; i < this.leaves.length; i++) {
+                if (i >= signature.getBlockCount() || signature.getBlockLength(i) != this.getChunkLength(i) || !signature.matches(i, this.leaves[i])) {
+                    differing.add(i);
+                }
+            }
+        }
+        return differing;
+    }
+
+    /**
+     * @return The root of the tree.
+     * @throws IllegalStateException When the hash of a chunk has not been set.
+     */
+    byte[] getRoot() {
+        MessageDigest sha256 = BlockSignature.newSha256();
+        synchronized (this.leaves) {
+            for (int i = 0; i < this.leaves.length; i++) {
+                if (this.leaves[i] == null) {
+                    throw new IllegalStateException("no hash of chunk " + i);
+                }
+                sha256.update(this.leaves[i]);
+            }
+        }
+        return sha256.digest();
+    }
+
+    private long getChunkLength(int chunk) {
+        return Math.min(this.chunkSize, this.size - chunk * this.chunkSize);
+    }
+
+    private static byte[] root(BlockSignature signature) {
+        MessageDigest sha256 = BlockSignature.newSha256();
+        for (int i = 0; i < signature.getBlockCount(); i++) {
+            sha256.update(signature.getStrong(i));
+        }
+        return sha256.digest();
+    }
+}
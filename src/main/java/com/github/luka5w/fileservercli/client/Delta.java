@@ -0,0 +1,253 @@
+package com.github.luka5w.fileservercli.client;
+
+import com.github.luka5w.http.HttpRequest;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The difference between a content (known by its {@link BlockSignature}) and a new version: the new version as
+ * sequence of blocks of the content and literal data.
+ *
+ * <p>The blocks are found like rsync does: the weak checksum is moved over the new version byte by byte, a block is
+ * used when the weak and the strong checksum match. Blocks are found at any position, so data inserted or removed
+ * before a block does not prevent its reuse.</p>
+ *
+ * <p>The binary form ({@value #CONTENT_TYPE}, big-endian) is {@code "FSD1"}, the block size (int) and the size of the
+ * new version (long), followed by records: {@code 'C'} with the first block and the number of blocks (ints) to copy,
+ * {@code 'D'} with a length (int) and the literal data, and {@code 'E'} at the end.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class Delta implements HttpRequest.Body {
+
+    /**
+     * The media type of the binary form.
+     */
+    public static final String CONTENT_TYPE = "application/vnd.fileserver.delta";
+
+    private static final byte[] MAGIC = {'F', 'S', 'D', '1'};
+    private static final int COPY = 'C';
+    private static final int DATA = 'D';
+    private static final int END = 'E';
+    private static final int MAX_DATA_LENGTH = 1024 * 1024;
+    private static final int FILTER_SHIFT = 12;
+
+    private final MappedFile input;
+    private final int blockSize;
+    /**
+     * {COPY, first block, count} or {DATA, offset, length}
+     */
+    private final List<long[]> records = new ArrayList<>();
+    private long literalBytes = 0;
+
+    private Delta(MappedFile input, int blockSize) {
+        this.input = input;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Computes the difference between a content and a new version.
+     *
+     * @param base The signature of the content.
+     * @param input The new version. It must not be closed until the delta has been sent.
+     * @return The difference.
+     */
+    static Delta compute(BlockSignature base, MappedFile input) {
+        Delta delta = new Delta(input, base.getBlockSize());
+        int blockSize = base.getBlockSize();
+        long size = input.size();
+        // weak checksum -> blocks (only full blocks, the last block is checked at the end)
+        Map<Integer, List<Integer>> index = new HashMap<>();
+        // 2^20 bits, checked before the map for every position
+        long[] filter = new long[1 << (32 - FILTER_SHIFT - 6)];
+        for (int i = 0; i < base.getBlockCount(); i++) {
+            if (base.getBlockLength(i) == blockSize) {
+                index.computeIfAbsent(base.getWeak(i), weak -> new ArrayList<>(1)).add(i);
+                int bit = filterBit(base.getWeak(i));
+                filter[bit >>> 6] |= 1L << bit;
+            }
+        }
+        MessageDigest sha256 = BlockSignature.newSha256();
+        byte[] block = new byte[blockSize];
+        long literal = 0;
+        long position = 0;
+        int weak = 0;
+        boolean rolled = false;
+        while (position + blockSize <= size) {
+            if (!rolled) {
+                input.get(position, block, 0, blockSize);
+                weak = BlockSignature.weak(block, 0, blockSize);
+            }
+            int bit = filterBit(weak);
+            List<Integer> candidates = (filter[bit >>> 6] & (1L << bit)) != 0 ? index.get(weak) : null;
+            int match = -1;
+            if (candidates != null) {
+                if (rolled) {
+                    input.get(position, block, 0, blockSize);
+                }
+                byte[] strong = BlockSignature.strong(sha256, block, 0, blockSize);
+                for (int candidate : candidates) {
+                    if (base.matches(candidate, strong)) {
+                        match = candidate;
+                        break;
+                    }
+                }
+            }
+            if (match >= 0) {
+                delta.addData(literal, position - literal);
+                delta.addCopy(match);
+                position += blockSize;
+                literal = position;
+                rolled = false;
+            }
+            else {
+                if (position + blockSize < size) {
+                    weak = BlockSignature.roll(weak, blockSize, input.get(position), input.get(position + blockSize));
+                }
+                position++;
+                rolled = true;
+            }
+        }
+        int last = base.getBlockCount() - 1;
+        long tail = size - literal;
+        if (last >= 0 && tail >= base.getBlockLength(last) && base.getBlockLength(last) < blockSize) {
+            // the shorter last block at the end of the new version
+            int length = (int) base.getBlockLength(last);
+            input.get(size - length, block, 0, length);
+            if (BlockSignature.weak(block, 0, length) == base.getWeak(last) && base.matches(last, BlockSignature.strong(sha256, block, 0, length))) {
+                delta.addData(literal, size - length - literal);
+                delta.addCopy(last);
+                literal = size;
+            }
+        }
+        delta.addData(literal, size - literal);
+        return delta;
+    }
+
+    private static int filterBit(int weak) {
+        return (weak * 0x9E3779B9) >>> FILTER_SHIFT;
+    }
+
+    private void addCopy(int block) {
+        long[] previous = this.records.isEmpty() ? null : this.records.get(this.records.size() - 1);
+        if (previous != null && previous[0] == COPY && previous[1] + previous[2] == block && previous[2] < Integer.MAX_VALUE) {
+            previous[2]++;
+        }
+        else {
+            this.records.add(new long[]{COPY, block, 1});
+        }
+    }
+
+    private void addData(long offset, long length) {
+        this.literalBytes += length;
+        while (length > 0) {
+            int n = (int) Math.min(MAX_DATA_LENGTH, length);
+            this.records.add(new long[]{DATA, offset, n});
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * @return The number of bytes of the new version which are sent as literal data.
+     */
+    public long getLiteralBytes() {
+        return this.literalBytes;
+    }
+
+    @Override
+    public long getLength() {
+        long length = MAGIC.length + 4 + 8 + 1;
+        for (long[] record : this.records) {
+            length += record[0] == COPY ? 9 : 5 + record[2];
+        }
+        return length;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(MAGIC);
+        data.writeInt(this.blockSize);
+        data.writeLong(this.input.size());
+        for (long[] record : this.records) {
+            data.writeByte((int) record[0]);
+            if (record[0] == COPY) {
+                data.writeInt((int) record[1]);
+                data.writeInt((int) record[2]);
+            }
+            else {
+                data.writeInt((int) record[2]);
+                this.input.writeTo(record[1], record[2], data);
+            }
+        }
+        data.writeByte(END);
+        data.flush();
+    }
+
+    /**
+     * Applies a delta to a content (used by servers).
+     *
+     * @param base The content the delta has been computed for.
+     * @param in The binary form of the delta.
+     * @return The new version.
+     * @throws IOException When the delta is invalid or does not fit the content.
+     */
+    public static byte[] apply(byte[] base, InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] magic = new byte[MAGIC.length];
+        data.readFully(magic);
+        if (magic[0] != MAGIC[0] || magic[1] != MAGIC[1] || magic[2] != MAGIC[2] || magic[3] != MAGIC[3]) {
+            throw new IOException("invalid delta: unknown format");
+        }
+        int blockSize = data.readInt();
+        long size = data.readLong();
+        if (blockSize < 1 || size < 0 || size > Integer.MAX_VALUE) {
+            throw new IOException("invalid delta: block size " + blockSize + ", size " + size);
+        }
+        byte[] content = new byte[(int) size];
+        int position = 0;
+        try {
+            for (int type = data.readUnsignedByte(); type != END; type = data.readUnsignedByte()) {
+                if (type == COPY) {
+                    long first = (long) data.readInt() * blockSize;
+                    long length = Math.min((long) data.readInt() * blockSize, base.length - first);
+                    if (first < 0 || length < 0 || first >= base.length || position + length > content.length) {
+                        throw new IOException("invalid delta: blocks out of range");
+                    }
+                    System.arraycopy(base, (int) first, content, position, (int) length);
+                    position += length;
+                }
+                else if (type == DATA) {
+                    int length = data.readInt();
+                    if (length < 0 || position + (long) length > content.length) {
+                        throw new IOException("invalid delta: data out of range");
+                    }
+                    data.readFully(content, position, length);
+                    position += length;
+                }
+                else {
+                    throw new IOException("invalid delta: unknown record " + type);
+                }
+            }
+        }
+        catch (EOFException e) {
+            throw new IOException("invalid delta: unexpected end");
+        }
+        if (position != content.length) {
+            throw new IOException("invalid delta: " + position + " of " + size + " bytes");
+        }
+        return content;
+    }
+}
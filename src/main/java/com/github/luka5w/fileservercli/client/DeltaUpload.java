@@ -0,0 +1,191 @@
+package com.github.luka5w.fileservercli.client;
+
+import com.github.luka5w.fileservercli.Main;
+import com.github.luka5w.http.HttpException;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Uploads only the changed blocks of a file (like rsync).
+ *
+ * <p>The block signature of the current content on the server is taken from the signature stored after the last
+ * upload of the file (when the version on the server is still the same) or requested from the server. The input is
+ * memory-mapped and compared with the signature ({@link Delta}); blocks which are found in the current content are
+ * referenced, only the other data is sent. The server applies the delta and verifies the result with the
+ * {@code Digest} header.</p>
+ *
+ * <p>When there is no signature or the server can't apply the delta (e.g. it does not support deltas or the content
+ * has been changed in the meantime), the file is uploaded completely. After every upload, the signature of the input
+ * is stored for the next upload.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class DeltaUpload {
+
+    private final FileServerClient client;
+    private final String id;
+    private final File input;
+    private final int blockSize;
+    private final File signatureDirectory;
+    private final FileUpload fallback;
+    private final TransferListener listener;
+    private long sentBytes = -1;
+
+    /**
+     * Creates a new upload.
+     *
+     * @param client The client.
+     * @param id The id of the file on the server.
+     * @param input The local file.
+     * @param blockSize The size of the blocks of new signatures.
+     * @param signatureDirectory The directory of the stored signatures.
+     * @param fallback The upload of the whole file, used when no delta can be sent.
+     * @param listener Receives the progress.
+     */
+    public DeltaUpload(FileServerClient client, String id, File input, int blockSize, File signatureDirectory, FileUpload fallback, TransferListener listener) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("block size must be at least 1 byte");
+        }
+        this.client = client;
+        this.id = id;
+        this.input = input;
+        this.blockSize = blockSize;
+        this.signatureDirectory = signatureDirectory;
+        this.fallback = fallback;
+        this.listener = listener;
+    }
+
+    /**
+     * Uploads the file.
+     *
+     * @return The size of the file.
+     * @throws IOException When the upload fails.
+     */
+    public long upload() throws IOException {
+        String key = this.client.getServer() + " " + this.client.getUser() + " " + this.id;
+        long size;
+        try (MappedFile input = new MappedFile(this.input)) {
+            size = input.size();
+            BlockSignature base = this.getSignature(key);
+            if (base == null || !this.sendDelta(base, input)) {
+                size = this.fallback.upload();
+            }
+        }
+        this.storeSignature(key);
+        return size;
+    }
+
+    /**
+     * @return The number of bytes sent as delta or {-1} when the file has been uploaded completely.
+     */
+    public long getSentBytes() {
+        return this.sentBytes;
+    }
+
+    private BlockSignature getSignature(String key) throws IOException {
+        String version = FileServerClient.getVersion(this.getMetadata());
+        BlockSignature signature = BlockSignature.load(this.signatureDirectory, key, version);
+        if (signature != null) {
+            Main.getLogger("Delta").debug(() -> "Using the stored signature of " + this.id + " (" + signature.getBlockCount() + " blocks).");
+            return signature;
+        }
+        try {
+            Object json = this.client.getFileSignature(this.id, this.blockSize);
+            if (!(json instanceof JSONObject)) {
+                throw new JSONException("no object");
+            }
+            return BlockSignature.fromJson((JSONObject) json);
+        }
+        catch (HttpException e) {
+            if (!isUnsupported(e)) {
+                throw e;
+            }
+            Main.getLogger("Delta").debug("Server sends no signature of " + this.id + " (" + e.getStatusCode() + "), uploading " + this.input + " completely.");
+            return null;
+        }
+        catch (JSONException e) {
+            Main.getLogger("Delta").debug("Invalid signature of " + this.id + " (" + e.getMessage() + "), uploading " + this.input + " completely.");
+            return null;
+        }
+    }
+
+    /**
+     * @return {false} when the server can't apply the delta.
+     */
+    private boolean sendDelta(BlockSignature base, MappedFile input) throws IOException {
+        long started = System.nanoTime();
+        Delta delta = Delta.compute(base, input);
+        String digest = input.digest();
+        Main.getLogger("Delta").debug(() -> String.format("Delta of %s: %d of %d bytes changed, computed in %d ms.",
+                this.input, delta.getLiteralBytes(), input.size(), (System.nanoTime() - started) / 1_000_000));
+        for (int attempt = 1; ; attempt++) {
+            try {
+                this.client.patchFileContent(this.id, delta, digest);
+                break;
+            }
+            catch (HttpException e) {
+                if (isUnsupported(e)) {
+                    Main.getLogger("Delta").debug("Server can't apply the delta to " + this.id + " (" + e.getStatusCode() + " " + e.getMessage() + "), uploading " + this.input + " completely.");
+                    return false;
+                }
+                this.retryOrThrow(e, attempt);
+            }
+            catch (IOException e) {
+                this.retryOrThrow(e, attempt);
+            }
+        }
+        this.sentBytes = delta.getLength();
+        this.listener.onProgress(input.size(), input.size());
+        return true;
+    }
+
+    private void retryOrThrow(IOException e, int attempt) throws IOException {
+        if (attempt == FileUpload.MAX_ATTEMPTS || !FileUpload.isRetryable(e)) {
+            throw e;
+        }
+        Main.getLogger("Delta").debug("Upload of the delta of " + this.input + " failed (" + e.getMessage() + "), retrying.");
+        try {
+            Thread.sleep(FileUpload.RETRY_DELAY << (attempt - 1));
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("upload interrupted");
+        }
+    }
+
+    /**
+     * Stores the signature of the uploaded input together with the new version on the server. Failures are only
+     * logged, the next upload is sent completely.
+     */
+    private void storeSignature(String key) {
+        try (MappedFile input = new MappedFile(this.input)) {
+            BlockSignature signature = BlockSignature.compute(input, this.blockSize);
+            signature.store(this.signatureDirectory, key, FileServerClient.getVersion(this.getMetadata()));
+        }
+        catch (IOException | RuntimeException e) {
+            Main.getLogger("Delta").warn("Can't store the signature of " + this.input + ": " + e.getMessage());
+        }
+    }
+
+    private JSONObject getMetadata() throws IOException {
+        Object metadata = this.client.getFileMetadata(this.id);
+        if (!(metadata instanceof JSONObject)) {
+            throw new IOException("invalid response: the metadata of " + this.id + " is no object");
+        }
+        return (JSONObject) metadata;
+    }
+
+    /**
+     * @return {true} for status codes of servers which don't support signatures or deltas, and of deltas which don't
+     * fit the current content.
+     */
+    private static boolean isUnsupported(HttpException e) {
+        int code = e.getStatusCode();
+        return code == 400 || code == 404 || code == 405 || code == 409 || code == 412 || code == 415 || code == 422 || code == 501;
+    }
+}
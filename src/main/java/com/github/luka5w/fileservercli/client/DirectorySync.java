@@ -0,0 +1,429 @@
+package com.github.luka5w.fileservercli.client;
+
+import com.github.luka5w.fileservercli.Main;
+import com.github.luka5w.http.ContentCodec;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Mirrors a local directory and the files of the account.
+ *
+ * <p>A sync runs in three steps:</p>
+ * <ol>
+ *     <li>The local files are listed and hashed (SHA-256) in parallel on a fork-join pool. Files whose size and
+ *     modification time are unchanged since the last run are not hashed again (see {@link SyncManifest}).</li>
+ *     <li>The local files and the files on the server (listing with metadata) are compared with the state of the last
+ *     sync. Files changed locally are uploaded, files changed on the server are downloaded, new local files are
+ *     created on the server, and files deleted on one side are deleted on the other side. Files changed on both sides
+ *     are reported as conflicts and left unchanged. Files on the server which have never been synchronized with the
+ *     directory are ignored.</li>
+ *     <li>The transfers are executed with a bounded number of concurrent transfers.</li>
+ * </ol>
+ *
+ * <p>The version of a file on the server is its {@code sha256} metadata, if the server provides it, otherwise the
+ * whole metadata (e.g. size and modification time).</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class DirectorySync {
+
+    private final FileServerClient client;
+    private final File directory;
+    private final SyncManifest manifest;
+    private final int transfers;
+    private final long chunkSize;
+    private final int chunkParallelism;
+    private final File journalDirectory;
+    private ContentCodec compression;
+    private Set<String> skipExtensions;
+    private boolean verify = false;
+
+    /**
+     * Creates a new sync.
+     *
+     * @param client The client.
+     * @param directory The local directory.
+     * @param manifestDirectory The directory of the manifests (the state of the last sync).
+     * @param transfers The maximum number of concurrent transfers.
+     * @param chunkSize The size of the chunks of uploads (see {@link FileUpload}).
+     * @param chunkParallelism The number of chunks of an upload uploaded at the same time.
+     * @param journalDirectory The directory of the upload journals.
+     */
+    public DirectorySync(FileServerClient client, File directory, File manifestDirectory, int transfers, long chunkSize, int chunkParallelism, File journalDirectory) {
+        if (transfers < 1) {
+            throw new IllegalArgumentException("transfers must be at least 1");
+        }
+        this.client = client;
+        this.directory = directory.getAbsoluteFile();
+        this.manifest = SyncManifest.open(manifestDirectory, client.getServer() + " " + client.getUser() + " " + this.directory);
+        this.transfers = transfers;
+        this.chunkSize = chunkSize;
+        this.chunkParallelism = chunkParallelism;
+        this.journalDirectory = journalDirectory;
+    }
+
+    /**
+     * Compresses uploads (see {@link FileUpload#setCompression(ContentCodec, Set)}).
+     *
+     * @param compression The coding or {null}.
+     * @param skipExtensions File extensions of compressed formats.
+     */
+    public void setCompression(ContentCodec compression, Set<String> skipExtensions) {
+        this.compression = compression;
+        this.skipExtensions = skipExtensions;
+    }
+
+    /**
+     * Verifies the transfers (see {@link FileUpload#setVerify(boolean)} and {@link FileDownload#setVerify(boolean)}).
+     *
+     * @param verify Whether the transfers are verified.
+     */
+    public void setVerify(boolean verify) {
+        this.verify = verify;
+    }
+
+    /**
+     * Synchronizes the directory. Every transfer is printed when it is done, followed by a summary. The state is
+     * stored, even when transfers fail.
+     *
+     * @param out The output.
+     * @return The number of failed transfers.
+     * @throws IOException When the directory can't be read or the listing can't be requested.
+     */
+    public int sync(PrintStream out) throws IOException {
+        if (!this.directory.isDirectory()) {
+            throw new IllegalArgumentException("directory not found: " + this.directory);
+        }
+        Map<String, LocalFile> local = this.scan();
+        Map<String, JSONObject> remote = this.listRemote();
+        Map<String, SyncManifest.Entry> previous = this.manifest.getEntries();
+
+        List<Action> actions = new ArrayList<>();
+        int unchanged = 0;
+        int conflicts = 0;
+        Set<String> paths = new TreeSet<>(local.keySet());
+        paths.addAll(previous.keySet());
+        for (String path : paths) {
+            LocalFile file = local.get(path);
+            SyncManifest.Entry entry = previous.get(path);
+            JSONObject metadata = entry != null && entry.id != null ? this.getRemote(remote, entry.id) : null;
+            Action action = plan(path, file, entry, metadata);
+            if (action == null) {
+                unchanged++;
+            }
+            else if (action.type == ActionType.CONFLICT) {
+                conflicts++;
+                out.println("conflict: " + path + " has been changed locally and on the server, skipped");
+            }
+            else if (action.type == ActionType.FORGET) {
+                this.manifest.put(path, null);
+            }
+            else {
+                actions.add(action);
+            }
+        }
+
+        Map<ActionType, Integer> done = new TreeMap<>();
+        int failed = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(this.transfers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Action action : actions) {
+                futures.add(executor.submit(() -> {
+                    this.execute(action);
+                    if (action.type != ActionType.RECORD) {
+                        out.println(action.type.past + " " + action.path);
+                    }
+                    return null;
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                    done.merge(actions.get(i).type, 1, Integer::sum);
+                }
+                catch (ExecutionException e) {
+                    failed++;
+                    out.println("failed: " + actions.get(i).type.past + " " + actions.get(i).path + ": " + e.getCause().getMessage());
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("sync interrupted");
+        }
+        finally {
+            executor.shutdownNow();
+            this.manifest.save();
+        }
+        out.println("sync: " + (done.getOrDefault(ActionType.CREATE, 0) + done.getOrDefault(ActionType.UPLOAD, 0)) + " uploaded, "
+                + done.getOrDefault(ActionType.DOWNLOAD, 0) + " downloaded, "
+                + (done.getOrDefault(ActionType.DELETE_LOCAL, 0) + done.getOrDefault(ActionType.DELETE_REMOTE, 0)) + " deleted, "
+                + (unchanged + done.getOrDefault(ActionType.RECORD, 0)) + " unchanged, " + conflicts + " conflicts, " + failed + " failed");
+        return failed;
+    }
+
+    /**
+     * Decides what to do with a file.
+     *
+     * @return The action or {null} when the file is unchanged.
+     */
+    private static Action plan(String path, LocalFile file, SyncManifest.Entry entry, JSONObject metadata) {
+        if (entry == null || entry.id == null) {
+            return file != null ? new Action(ActionType.CREATE, path, file, null, null) : new Action(ActionType.FORGET, path, null, null, null);
+        }
+        boolean localChanged = file == null || !file.hash.equals(entry.synced);
+        boolean remoteChanged = metadata == null || !FileServerClient.getVersion(metadata).equals(entry.remote);
+        if (file == null && metadata == null) {
+            return new Action(ActionType.FORGET, path, null, entry.id, null);
+        }
+        if (file != null && metadata != null && file.hash.equals(metadata.optString("sha256", null))) {
+            // same content on both sides, e.g. after an interrupted sync
+            return localChanged || remoteChanged ? new Action(ActionType.RECORD, path, file, entry.id, metadata) : null;
+        }
+        if (localChanged && remoteChanged) {
+            return new Action(ActionType.CONFLICT, path, file, entry.id, metadata);
+        }
+        if (file == null) {
+            return new Action(ActionType.DELETE_REMOTE, path, null, entry.id, metadata);
+        }
+        if (metadata == null) {
+            return new Action(ActionType.DELETE_LOCAL, path, file, entry.id, null);
+        }
+        if (localChanged) {
+            return new Action(ActionType.UPLOAD, path, file, entry.id, metadata);
+        }
+        return remoteChanged ? new Action(ActionType.DOWNLOAD, path, file, entry.id, metadata) : null;
+    }
+
+    private void execute(Action action) throws IOException {
+        switch (action.type) {
+            case CREATE:
+                String id = this.client.createFile();
+                this.upload(action.file, id);
+                this.record(action.path, action.file, id, this.getMetadata(id));
+                break;
+            case UPLOAD:
+                this.upload(action.file, action.id);
+                this.record(action.path, action.file, action.id, this.getMetadata(action.id));
+                break;
+            case DOWNLOAD:
+                File output = this.resolve(action.path);
+                FileDownload download = new FileDownload(this.client, action.id, TransferListener.NONE);
+                download.setVerify(this.verify);
+                download.toFile(output);
+                this.record(action.path, hash(output.toPath(), this.toPath(output)), action.id, action.metadata);
+                break;
+            case DELETE_REMOTE:
+                this.client.deleteFile(action.id);
+                this.manifest.put(action.path, null);
+                break;
+            case DELETE_LOCAL:
+                Files.deleteIfExists(this.resolve(action.path).toPath());
+                this.manifest.put(action.path, null);
+                break;
+            case RECORD:
+                this.record(action.path, action.file, action.id, action.metadata);
+                break;
+            default:
+                throw new IllegalStateException("unexpected action " + action.type);
+        }
+    }
+
+    private void upload(LocalFile file, String id) throws IOException {
+        FileUpload upload = new FileUpload(this.client, id, this.resolve(file.path), this.chunkSize, this.chunkParallelism, this.journalDirectory, TransferListener.NONE);
+        if (this.compression != null) {
+            upload.setCompression(this.compression, this.skipExtensions);
+        }
+        upload.setVerify(this.verify);
+        upload.upload();
+    }
+
+    private void record(String path, LocalFile file, String id, JSONObject metadata) {
+        this.manifest.put(path, new SyncManifest.Entry(file.size, file.modified, file.hash, id, file.hash, FileServerClient.getVersion(metadata)));
+    }
+
+    /**
+     * Lists the local files and hashes the new and modified ones in parallel.
+     */
+    private Map<String, LocalFile> scan() throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(this.directory.toPath())) {
+            files = walk.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().endsWith(FileDownload.PART_SUFFIX)
+                            && !path.getFileName().toString().endsWith(FileDownload.PART_SUFFIX + FileDownload.VALIDATOR_SUFFIX))
+                    .collect(Collectors.toList());
+        }
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            List<LocalFile> hashed = pool.submit(() -> files.parallelStream().map(file -> {
+                try {
+                    return this.hash(file);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).collect(Collectors.toList())).get();
+            Map<String, LocalFile> local = new TreeMap<>();
+            for (LocalFile file : hashed) {
+                local.put(file.path, file);
+            }
+            return local;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("sync interrupted");
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException("can't hash files: " + e.getCause(), e.getCause());
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    private LocalFile hash(Path file) throws IOException {
+        String path = this.toPath(file.toFile());
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        SyncManifest.Entry entry = this.manifest.get(path);
+        if (entry != null && entry.size == size && entry.modified == modified) {
+            return new LocalFile(path, size, modified, entry.hash);
+        }
+        LocalFile hashed = hash(file, path);
+        if (entry != null) {
+            // keeps the sync state, only the cached hash is updated
+            this.manifest.put(path, new SyncManifest.Entry(hashed.size, hashed.modified, hashed.hash, entry.id, entry.synced, entry.remote));
+        }
+        return hashed;
+    }
+
+    private static LocalFile hash(Path file, String path) throws IOException {
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        return new LocalFile(path, size, modified, ContentCache.hash(file));
+    }
+
+    private Map<String, JSONObject> listRemote() throws IOException {
+        Map<String, JSONObject> remote = new HashMap<>();
+        try (Listing listing = this.client.listFiles(true, Listing.MAX_PAGE_SIZE, 0)) {
+            while (listing.hasNext()) {
+                Object file = listing.next();
+                if (file instanceof JSONObject && ((JSONObject) file).has("id")) {
+                    remote.put(String.valueOf(((JSONObject) file).get("id")), (JSONObject) file);
+                }
+                else {
+                    // no metadata in the listing, requested for the synchronized files
+                    remote.put(String.valueOf(file), null);
+                }
+            }
+        }
+        return remote;
+    }
+
+    /**
+     * @return The metadata of a file or {null} when the file does not exist on the server.
+     */
+    private JSONObject getRemote(Map<String, JSONObject> remote, String id) throws IOException {
+        if (!remote.containsKey(id)) {
+            return null;
+        }
+        JSONObject metadata = remote.get(id);
+        return metadata != null ? metadata : this.getMetadata(id);
+    }
+
+    private JSONObject getMetadata(String id) throws IOException {
+        Object metadata = this.client.getFileMetadata(id);
+        if (!(metadata instanceof JSONObject)) {
+            throw new IOException("invalid response: the metadata of " + id + " is no object");
+        }
+        return (JSONObject) metadata;
+    }
+
+    private File resolve(String path) throws IOException {
+        File file = new File(this.directory, path);
+        File parent = file.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("can't create directory " + parent);
+        }
+        return file;
+    }
+
+    private String toPath(File file) {
+        return this.directory.toPath().relativize(file.getAbsoluteFile().toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    private enum ActionType {
+        CREATE("created"),
+        UPLOAD("uploaded"),
+        DOWNLOAD("downloaded"),
+        DELETE_REMOTE("deleted on server"),
+        DELETE_LOCAL("deleted locally"),
+        RECORD("recorded"),
+        CONFLICT("conflict"),
+        FORGET("forgotten");
+
+        private final String past;
+
+        ActionType(String past) {
+            this.past = past;
+        }
+    }
+
+    private static class Action {
+
+        private final ActionType type;
+        private final String path;
+        private final LocalFile file;
+        private final String id;
+        private final JSONObject metadata;
+
+        Action(ActionType type, String path, LocalFile file, String id, JSONObject metadata) {
+            this.type = type;
+            this.path = path;
+            this.file = file;
+            this.id = id;
+            this.metadata = metadata;
+        }
+    }
+
+    private static class LocalFile {
+
+        private final String path;
+        private final long size;
+        private final long modified;
+        private final String hash;
+
+        LocalFile(String path, long size, long modified, String hash) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+    }
+}
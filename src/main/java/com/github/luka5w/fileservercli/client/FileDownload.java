@@ -0,0 +1,325 @@
+package com.github.luka5w.fileservercli.client;
+
+import com.github.luka5w.fileservercli.Main;
+import com.github.luka5w.http.HttpException;
+import com.github.luka5w.http.HttpResponse;
+import com.github.luka5w.http.HttpStatusCode;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/**
+ * Downloads the content of a file with constant memory use.
+ *
+ * <p>The body is streamed from the connection into a {@link FileChannel}. While downloading, the content is written to
+ * {@code <output>.part}, which is renamed when the download is complete. When the partial file exists, the download is
+ * resumed with a Range request (guarded by If-Range with the validator of the partial content).</p>
+ *
+ * <p>When the client has a {@link ContentCache}, a cached version is revalidated and used instead of downloading the
+ * content again. Complete downloads are added to the cache.</p>
+ *
+ * <p>When verification is enabled, the SHA-256 hash of the content is computed while it is received and compared with
+ * the {@code sha256} of the metadata of the file. Downloads to a file which differ are discarded and started again, so
+ * the output is never replaced by a corrupted content.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class FileDownload {
+
+    static final String PART_SUFFIX = ".part";
+    static final String VALIDATOR_SUFFIX = ".validator";
+
+    /**
+     * The maximum number of downloads of a file which differ from the hash on the server (with {@code verify}).
+     */
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long TRANSFER_SIZE = 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileServerClient client;
+    private final String id;
+    private final TransferListener listener;
+    private boolean verify = false;
+
+    /**
+     * Creates a new download.
+     *
+     * @param client The client.
+     * @param id The id of the file.
+     * @param listener Receives the progress.
+     */
+    public FileDownload(FileServerClient client, String id, TransferListener listener) {
+        this.client = client;
+        this.id = id;
+        this.listener = listener;
+    }
+
+    /**
+     * Compares the hash of the downloaded content with the hash on the server.
+     *
+     * @param verify Whether the download is verified.
+     */
+    public void setVerify(boolean verify) {
+        this.verify = verify;
+    }
+
+    /**
+     * Downloads the file to a local file, resuming a previous partial download.
+     *
+     * @param output The output file (will be overwritten).
+     * @return The size of the file.
+     * @throws IOException When the download fails. The partial file is kept to resume later.
+     */
+    public long toFile(File output) throws IOException {
+        return this.toFile(output, 1);
+    }
+
+    private long toFile(File output, int attempt) throws IOException {
+        File part = new File(output.getPath() + PART_SUFFIX);
+        File validatorFile = new File(part.getPath() + VALIDATOR_SUFFIX);
+        long offset = part.isFile() ? part.length() : 0;
+        String validator = offset > 0 && validatorFile.isFile() ? new String(Files.readAllBytes(validatorFile.toPath()), StandardCharsets.UTF_8) : null;
+        ContentCache cache = this.client.getContentCache();
+        String key = this.client.getServer() + " " + this.client.getUser() + " " + this.id;
+        ContentCache.Entry cached = cache != null && offset == 0 ? cache.get(key) : null;
+
+        HttpResponse response;
+        try {
+            response = this.client.getFileContent(this.id, offset, validator, cached != null ? cached.validator : null);
+        }
+        catch (HttpException e) {
+            if (offset > 0 && e.getStatus() == HttpStatusCode.RANGE_NOT_SATISFIABLE) {
+                // the partial file does not match the file on the server, start again
+                Files.delete(part.toPath());
+                Files.deleteIfExists(validatorFile.toPath());
+                return this.toFile(output, attempt);
+            }
+            throw e;
+        }
+        try {
+            if (response.getStatus() == HttpStatusCode.NOT_MODIFIED) {
+                response.close();
+                if (cache.copyTo(cached, output)) {
+                    Main.getLogger("Download").debug("Using cached content of " + this.id + ".");
+                    this.listener.onProgress(cached.size, cached.size);
+                    return cached.size;
+                }
+                return this.toFile(output, attempt);
+            }
+            boolean append = response.getStatus() == HttpStatusCode.PARTIAL_CONTENT;
+            long total;
+            if (append) {
+                total = parseContentRange(response.getHeaders().get("Content-Range"), offset);
+            }
+            else {
+                offset = 0;
+                total = response.getHeaders().getContentLength();
+            }
+            String newValidator = getValidator(response);
+            if (newValidator != null) {
+                Files.write(validatorFile.toPath(), newValidator.getBytes(StandardCharsets.UTF_8));
+            }
+            else {
+                Files.deleteIfExists(validatorFile.toPath());
+            }
+
+            long position = offset;
+            MessageDigest sha256 = this.verify ? BlockSignature.newSha256() : null;
+            try (FileChannel channel = FileChannel.open(part.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                if (!append) {
+                    channel.truncate(0);
+                }
+                else if (sha256 != null) {
+                    hash(channel, offset, sha256);
+                }
+                ReadableByteChannel source = Channels.newChannel(response.getBody());
+                if (sha256 != null) {
+                    source = new DigestChannel(source, sha256);
+                }
+                long n;
+                while ((n = channel.transferFrom(source, position, TRANSFER_SIZE)) > 0) {
+                    position += n;
+                    this.listener.onProgress(position, total);
+                }
+            }
+            if (total >= 0 && position != total) {
+                throw new IOException("incomplete download: " + position + " of " + total + " bytes");
+            }
+            if (sha256 != null && !this.matches(sha256.digest())) {
+                response.close();
+                Files.delete(part.toPath());
+                Files.deleteIfExists(validatorFile.toPath());
+                if (attempt == MAX_ATTEMPTS) {
+                    throw new IOException("integrity check failed: the download of " + this.id + " differs from the hash on the server");
+                }
+                Main.getLogger("Download").warn("The download of " + this.id + " differs from the hash on the server, downloading it again.");
+                return this.toFile(output, attempt + 1);
+            }
+            Files.move(part.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(validatorFile.toPath());
+            if (cache != null && newValidator != null) {
+                try {
+                    cache.put(key, newValidator, output);
+                }
+                catch (IOException e) {
+                    Main.getLogger("Download").warn("Can't cache content of " + this.id + ": " + e.getMessage());
+                }
+            }
+            return position;
+        }
+        finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Downloads the file to a stream (e.g. stdout).
+     *
+     * @param out The stream. It is not closed.
+     * @return The size of the file.
+     * @throws IOException When the download fails.
+     */
+    public long toStream(OutputStream out) throws IOException {
+        try (HttpResponse response = this.client.getFileContent(this.id, 0, null)) {
+            long total = response.getHeaders().getContentLength();
+            InputStream in = response.getBody();
+            MessageDigest sha256 = this.verify ? BlockSignature.newSha256() : null;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long transferred = 0;
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                if (sha256 != null) {
+                    sha256.update(buffer, 0, n);
+                }
+                out.write(buffer, 0, n);
+                transferred += n;
+                this.listener.onProgress(transferred, total);
+            }
+            out.flush();
+            if (sha256 != null && !this.matches(sha256.digest())) {
+                throw new IOException("integrity check failed: the content of " + this.id + " differs from the hash on the server");
+            }
+            return transferred;
+        }
+    }
+
+    /**
+     * Compares a hash with the {@code sha256} of the metadata of the file.
+     *
+     * @return {false} when the hashes differ.
+     */
+    private boolean matches(byte[] sha256) throws IOException {
+        String expected = this.client.getFileSha256(this.id);
+        if (expected == null) {
+            Main.getLogger("Download").debug("Server sends no hash of " + this.id + ", download not verified.");
+            return true;
+        }
+        return expected.equals(BlockSignature.toHex(sha256));
+    }
+
+    /**
+     * Hashes the start of a partial download.
+     */
+    private static void hash(FileChannel channel, long length, MessageDigest sha256) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long position = 0;
+        while (position < length) {
+            buffer.clear().limit((int) Math.min(BUFFER_SIZE, length - position));
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new EOFException("partial download truncated");
+            }
+            buffer.flip();
+            sha256.update(buffer);
+            position += n;
+        }
+    }
+
+    /**
+     * Gets the validator of the content (ETag, or Last-Modified when no ETag is sent).
+     *
+     * @param response The response.
+     * @return The validator or {null}.
+     */
+    static String getValidator(HttpResponse response) {
+        String etag = response.getHeaders().get("ETag");
+        if (etag != null && !etag.startsWith("W/")) {
+            // If-Range requires a strong validator
+            return etag;
+        }
+        return response.getHeaders().get("Last-Modified");
+    }
+
+    /**
+     * Parses a Content-Range header ({@code bytes <first>-<last>/<total>}).
+     *
+     * @param contentRange The value of the header.
+     * @param offset The expected first byte.
+     * @return The total size or {-1} when unknown.
+     * @throws IOException When the header is missing or does not start at the offset.
+     */
+    static long parseContentRange(String contentRange, long offset) throws IOException {
+        if (contentRange == null || !contentRange.startsWith("bytes " + offset + "-")) {
+            throw new IOException("unexpected Content-Range: " + contentRange);
+        }
+        int slash = contentRange.indexOf('/');
+        if (slash == -1 || contentRange.endsWith("*")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentRange.substring(slash + 1).trim());
+        }
+        catch (NumberFormatException e) {
+            throw new IOException("unexpected Content-Range: " + contentRange);
+        }
+    }
+
+    /**
+     * Updates a digest with the bytes read from a channel.
+     */
+    private static class DigestChannel implements ReadableByteChannel {
+
+        private final ReadableByteChannel source;
+        private final MessageDigest digest;
+
+        private DigestChannel(ReadableByteChannel source, MessageDigest digest) {
+            this.source = source;
+            this.digest = digest;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int start = dst.position();
+            int n = this.source.read(dst);
+            if (n > 0) {
+                ByteBuffer read = dst.duplicate();
+                read.limit(dst.position()).position(start);
+                this.digest.update(read);
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return this.source.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.source.close();
+        }
+    }
+}
@@ -0,0 +1,663 @@
+package com.github.luka5w.fileservercli.client;
+
+import com.github.luka5w.fileservercli.Main;
+import com.github.luka5w.http.Cancellation;
+import com.github.luka5w.http.HttpException;
+import com.github.luka5w.http.HttpMethod;
+import com.github.luka5w.http.HttpRequest;
+import com.github.luka5w.http.HttpResponse;
+import com.github.luka5w.http.HttpSession;
+import com.github.luka5w.http.HttpStatusCode;
+import com.github.luka5w.http.SessionConfig;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The client for the API of the FileServer.
+ *
+ * <p>All requests are sent over one {@link HttpSession}, so the connections to the server are reused. The requests
+ * are authenticated with the password (basic authentication) or, when the server issues them, with a session token
+ * ({@link #setSessionTokens(SessionTokenStore)}), which is renewed in the background before it expires.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class FileServerClient implements Closeable {
+
+    static final String PATH_VERSIONS = "/api/versions";
+    static final String PATH_API = "/api/v1";
+    static final String PATH_SELF = PATH_API + "/users/self";
+    static final String PATH_FILES = PATH_API + "/files";
+    static final String PATH_USERS = PATH_API + "/users";
+    static final String PATH_SESSIONS = PATH_API + "/sessions";
+
+    private static final int MAX_ERROR_LENGTH = 1024;
+    private static final long REFRESH_RETRY_DELAY = 30000;
+    private static final ScheduledExecutorService REFRESH = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        // shared by all commands, the threads must not inherit the cancellation of the command which created them
+        Thread thread = new Thread(() -> {
+            Cancellation.clear();
+            runnable.run();
+        }, "session-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final URI server;
+    private final String user;
+    private final String password;
+    private final HttpSession session;
+    private MetadataCache metadataCache;
+    private ContentCache contentCache;
+    private SessionTokenStore sessionTokens;
+    private volatile SessionTokenStore.Token sessionToken;
+    private ScheduledFuture<?> refresh;
+
+    /**
+     * Creates a new client. No request is sent.
+     *
+     * @param server The url of the server.
+     * @param user The name of the user.
+     * @param password The password of the user or {null} when a session token is used.
+     * @param config The settings for the connections.
+     */
+    public FileServerClient(URI server, String user, String password, SessionConfig config) {
+        this.server = server;
+        this.user = user;
+        this.password = password;
+        this.session = new HttpSession(server, config);
+        this.session.setDefaultHeader("Accept", "application/json");
+        this.session.getScheduler().setListener(message -> Main.getLogger("Scheduler").debug(message));
+        if (password != null) {
+            this.session.setDefaultHeader("Authorization", this.getBasicAuthorization());
+        }
+    }
+
+    private String getBasicAuthorization() {
+        return "Basic " + Base64.getEncoder().encodeToString((this.user + ":" + this.password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates a new client for the same server and user, with its own connections (e.g. to simulate more clients).
+     * The caches are not shared.
+     *
+     * @return The new client. No request is sent.
+     */
+    public FileServerClient newClient() {
+        FileServerClient client = new FileServerClient(this.server, this.user, this.password, this.session.getConfig());
+        client.getSession().setMetrics(this.session.getMetrics());
+        SessionTokenStore.Token token = this.sessionToken;
+        if (token != null) {
+            client.session.setDefaultHeader("Authorization", "Bearer " + token.getValue());
+        }
+        return client;
+    }
+
+    /**
+     * Requests a session token with the password and uses it for the following requests. The token is stored and
+     * renewed in the background before it expires.
+     *
+     * @param store The store of the tokens.
+     * @return {false} when the server does not issue session tokens.
+     * @throws IOException When the request fails (e.g. 401 for wrong credentials).
+     */
+    public boolean createSessionToken(SessionTokenStore store) throws IOException {
+        this.sessionTokens = store;
+        try {
+            this.useSessionToken(this.requestSessionToken());
+            return true;
+        }
+        catch (HttpException e) {
+            if (!isTokenUnsupported(e)) {
+                throw e;
+            }
+            Main.getLogger("Session").debug("Server does not issue session tokens (" + e.getStatusCode() + ").");
+            return false;
+        }
+    }
+
+    /**
+     * Uses a stored session token for the following requests (instead of the password). The token is renewed in the
+     * background before it expires.
+     *
+     * @param store The store of the tokens.
+     * @param token The token.
+     */
+    public void setSessionToken(SessionTokenStore store, SessionTokenStore.Token token) {
+        this.sessionTokens = store;
+        this.useSessionToken(token);
+    }
+
+    private SessionTokenStore.Token requestSessionToken() throws IOException {
+        long issued = System.currentTimeMillis();
+        Object response = this.requestJson(new HttpRequest(HttpMethod.POST, PATH_SESSIONS));
+        try {
+            if (!(response instanceof JSONObject)) {
+                throw new JSONException("no object");
+            }
+            SessionTokenStore.Token token = SessionTokenStore.Token.fromResponse((JSONObject) response, issued);
+            this.sessionTokens.put(this.server, this.user, token);
+            return token;
+        }
+        catch (JSONException e) {
+            throw new IOException("invalid session token: " + e.getMessage(), e);
+        }
+    }
+
+    private synchronized void useSessionToken(SessionTokenStore.Token token) {
+        this.sessionToken = token;
+        this.session.setDefaultHeader("Authorization", "Bearer " + token.getValue());
+        this.scheduleRefresh(Math.max(0, token.getRefreshTime() - System.currentTimeMillis()));
+    }
+
+    private synchronized void scheduleRefresh(long delay) {
+        if (this.refresh != null) {
+            this.refresh.cancel(false);
+        }
+        this.refresh = REFRESH.schedule(this::refreshSessionToken, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void refreshSessionToken() {
+        try {
+            SessionTokenStore.Token token = this.requestSessionToken();
+            Main.getLogger("Session").debug(() -> "Renewed the session token of " + this.user + " on " + this.server + ".");
+            this.useSessionToken(token);
+        }
+        catch (IOException e) {
+            SessionTokenStore.Token token = this.sessionToken;
+            if (!token.isExpired(System.currentTimeMillis())) {
+                Main.getLogger("Session").debug("Can't renew the session token (" + e.getMessage() + "), retrying.");
+                this.scheduleRefresh(Math.min(REFRESH_RETRY_DELAY, token.getExpires() - System.currentTimeMillis()));
+            }
+            else if (this.password != null) {
+                Main.getLogger("Session").debug("Can't renew the session token (" + e.getMessage() + "), using the password.");
+                this.session.setDefaultHeader("Authorization", this.getBasicAuthorization());
+            }
+            else {
+                Main.getLogger("Session").warn("Session token of " + this.user + " on " + this.server + " expired (" + e.getMessage() + "), connect again.");
+            }
+        }
+    }
+
+    /**
+     * @return {true} for status codes of servers which don't issue session tokens.
+     */
+    private static boolean isTokenUnsupported(HttpException e) {
+        int code = e.getStatusCode();
+        return code == 404 || code == 405 || code == 501;
+    }
+
+    /**
+     * Gets the API versions, supported by the server.
+     *
+     * @return The versions (JSONObject or JSONArray).
+     * @throws IOException When the request fails.
+     */
+    public Object getVersions() throws IOException {
+        return this.requestJson(new HttpRequest(HttpMethod.GET, PATH_VERSIONS));
+    }
+
+    /**
+     * Gets information about the own account. Used to verify the credentials.
+     *
+     * @return The information.
+     * @throws IOException When the request fails (e.g. 401 for wrong credentials).
+     */
+    public Object getSelf() throws IOException {
+        return this.requestJson(new HttpRequest(HttpMethod.GET, PATH_SELF));
+    }
+
+    /**
+     * Lists the own files.
+     *
+     * @param all {true} to list the files with their metadata.
+     * @return The files.
+     * @throws IOException When the request fails.
+     */
+    public Object getFiles(boolean all) throws IOException {
+        return this.requestJsonCached(all ? PATH_FILES + "?all=true" : PATH_FILES);
+    }
+
+    /**
+     * Lists the own files while the response is received.
+     *
+     * @param all {true} to list the files with their metadata.
+     * @param handler Reads the listing (JSON).
+     * @throws IOException When the request fails or the handler fails.
+     */
+    public void getFiles(boolean all, BodyHandler handler) throws IOException {
+        this.requestCached(all ? PATH_FILES + "?all=true" : PATH_FILES, handler);
+    }
+
+    /**
+     * Lists all users (admin required).
+     *
+     * @param all {true} to list the users with their data.
+     * @return The users.
+     * @throws IOException When the request fails.
+     */
+    public Object getUsers(boolean all) throws IOException {
+        return this.requestJsonCached(all ? PATH_USERS + "?all=true" : PATH_USERS);
+    }
+
+    /**
+     * Lists all users (admin required) while the response is received.
+     *
+     * @param all {true} to list the users with their data.
+     * @param handler Reads the listing (JSON).
+     * @throws IOException When the request fails or the handler fails.
+     */
+    public void getUsers(boolean all, BodyHandler handler) throws IOException {
+        this.requestCached(all ? PATH_USERS + "?all=true" : PATH_USERS, handler);
+    }
+
+    /**
+     * Lists the own files page by page.
+     *
+     * @param all {true} to list the files with their metadata.
+     * @param pageSize The number of files per request or {0} to use the limit.
+     * @param limit The maximum number of files or {0} for all files.
+     * @return The listing. No request is sent until it is read.
+     */
+    public Listing listFiles(boolean all, int pageSize, long limit) {
+        return new Listing(this, all ? PATH_FILES + "?all=true" : PATH_FILES, pageSize, limit);
+    }
+
+    /**
+     * Lists all users (admin required) page by page.
+     *
+     * @param all {true} to list the users with their data.
+     * @param pageSize The number of users per request or {0} to use the limit.
+     * @param limit The maximum number of users or {0} for all users.
+     * @return The listing. No request is sent until it is read.
+     */
+    public Listing listUsers(boolean all, int pageSize, long limit) {
+        return new Listing(this, all ? PATH_USERS + "?all=true" : PATH_USERS, pageSize, limit);
+    }
+
+    /**
+     * Gets the metadata of a file.
+     *
+     * @param id The id of the file.
+     * @return The metadata.
+     * @throws IOException When the request fails.
+     */
+    public Object getFileMetadata(String id) throws IOException {
+        return this.requestJsonCached(PATH_FILES + "/" + encode(id) + "/metadata");
+    }
+
+    /**
+     * Gets the SHA-256 hash of the content of a file from its metadata.
+     *
+     * @param id The id of the file.
+     * @return The hash (lower case hex) or {null} when the server sends no hash.
+     * @throws IOException When the request fails.
+     */
+    public String getFileSha256(String id) throws IOException {
+        Object metadata = this.getFileMetadata(id);
+        if (!(metadata instanceof JSONObject)) {
+            throw new IOException("invalid response: the metadata of " + id + " is no object");
+        }
+        String sha256 = ((JSONObject) metadata).optString("sha256", null);
+        return sha256 != null ? sha256.toLowerCase() : null;
+    }
+
+    /**
+     * Requests the content of a file. The body of the response is not read.
+     *
+     * @param id The id of the file.
+     * @param offset The first byte to request ({@code Range} header), {0} for the whole file.
+     * @param validator The ETag or Last-Modified value of the partial content ({@code If-Range} header) or {null}.
+     * @return The response (200 with the whole file or 206 with the requested range). It must be closed.
+     * @throws IOException When the request fails.
+     */
+    public HttpResponse getFileContent(String id, long offset, String validator) throws IOException {
+        return this.getFileContent(id, offset, validator, null);
+    }
+
+    /**
+     * Requests the content of a file unless it has not been modified. The body of the response is not read.
+     *
+     * @param id The id of the file.
+     * @param offset The first byte to request ({@code Range} header), {0} for the whole file.
+     * @param validator The ETag or Last-Modified value of the partial content ({@code If-Range} header) or {null}.
+     * @param cachedValidator The ETag or Last-Modified value of a cached version ({@code If-None-Match} or
+     *                        {@code If-Modified-Since} header) or {null}.
+     * @return The response (200 with the whole file, 206 with the requested range or 304 when the cached version is
+     * still valid). It must be closed.
+     * @throws IOException When the request fails.
+     */
+    public HttpResponse getFileContent(String id, long offset, String validator, String cachedValidator) throws IOException {
+        HttpRequest request = new HttpRequest(HttpMethod.GET, PATH_FILES + "/" + encode(id)).header("Accept", "*/*");
+        if (offset > 0) {
+            // the range must refer to the content, not to a compressed representation
+            request.header("Accept-Encoding", "identity");
+            request.header("Range", "bytes=" + offset + "-");
+            if (validator != null) {
+                request.header("If-Range", validator);
+            }
+        }
+        if (cachedValidator == null) {
+            return this.execute(request);
+        }
+        request.header(cachedValidator.startsWith("\"") || cachedValidator.startsWith("W/") ? "If-None-Match" : "If-Modified-Since", cachedValidator);
+        HttpResponse response = this.session.execute(request);
+        if (response.getStatus() == HttpStatusCode.NOT_MODIFIED) {
+            return response;
+        }
+        return check(response);
+    }
+
+    /**
+     * Creates a new (empty) file.
+     *
+     * @return The id of the new file.
+     * @throws IOException When the request fails or the response contains no id.
+     */
+    public String createFile() throws IOException {
+        Object created = this.requestJson(new HttpRequest(HttpMethod.POST, PATH_FILES));
+        if (!(created instanceof JSONObject) || !((JSONObject) created).has("id")) {
+            throw new IOException("invalid response: no id of the new file");
+        }
+        return String.valueOf(((JSONObject) created).get("id"));
+    }
+
+    /**
+     * Replaces the content of a file or a part of it.
+     *
+     * @param id The id of the file.
+     * @param body The content.
+     * @param contentRange The range of the content ({@code bytes <first>-<last>/<total>}) or {null} for the whole content.
+     * @param digest The digest of the content ({@code Digest} header, e.g. {@code sha-256=<base64>}) or {null}.
+     * @param contentEncoding The coding of the body ({@code Content-Encoding} header, e.g. {@code gzip}) or {null}.
+     * @throws IOException When the request fails.
+     */
+    public void putFileContent(String id, HttpRequest.Body body, String contentRange, String digest, String contentEncoding) throws IOException {
+        HttpRequest request = new HttpRequest(HttpMethod.PUT, PATH_FILES + "/" + encode(id))
+                .header("Content-Type", "application/octet-stream")
+                .body(body);
+        if (contentRange != null) {
+            request.header("Content-Range", contentRange);
+        }
+        if (digest != null) {
+            request.header("Digest", digest);
+        }
+        if (contentEncoding != null) {
+            request.header("Content-Encoding", contentEncoding);
+        }
+        this.execute(request).close();
+    }
+
+    /**
+     * Gets the block signature of the content of a file (for {@link DeltaUpload}).
+     *
+     * @param id The id of the file.
+     * @param blockSize The preferred size of the blocks (the server may use another size).
+     * @return The signature (JSON form of {@link BlockSignature}).
+     * @throws IOException When the request fails (e.g. 404 when the server does not support signatures).
+     */
+    public Object getFileSignature(String id, int blockSize) throws IOException {
+        return this.requestJson(new HttpRequest(HttpMethod.GET, PATH_FILES + "/" + encode(id) + "/signature?block-size=" + blockSize));
+    }
+
+    /**
+     * Replaces the content of a file by applying a {@link Delta} to the current content.
+     *
+     * @param id The id of the file.
+     * @param delta The delta.
+     * @param digest The digest of the new content ({@code Digest} header, e.g. {@code sha-256=<base64>}).
+     * @throws IOException When the request fails (e.g. 415 when the server does not support deltas or 400 when the
+     *                     delta does not fit the current content).
+     */
+    public void patchFileContent(String id, Delta delta, String digest) throws IOException {
+        this.execute(new HttpRequest(HttpMethod.PATCH, PATH_FILES + "/" + encode(id))
+                .header("Content-Type", Delta.CONTENT_TYPE)
+                .header("Digest", digest)
+                .body(delta)).close();
+    }
+
+    /**
+     * Deletes a file.
+     *
+     * @param id The id of the file.
+     * @throws IOException When the request fails.
+     */
+    public void deleteFile(String id) throws IOException {
+        this.execute(new HttpRequest(HttpMethod.DELETE, PATH_FILES + "/" + encode(id))).close();
+    }
+
+    /**
+     * Gets the version of a file from its metadata.
+     *
+     * @param metadata The metadata.
+     * @return The SHA-256 hash of the content ({@code sha256:<hex>}) or, when the server sends no hash, the whole
+     * metadata.
+     */
+    static String getVersion(JSONObject metadata) {
+        String sha256 = metadata.optString("sha256", null);
+        return sha256 != null ? "sha256:" + sha256 : metadata.toString();
+    }
+
+    /**
+     * Encodes a path segment (e.g. an id).
+     *
+     * @param segment The segment.
+     * @return The encoded segment.
+     */
+    static String encode(String segment) {
+        try {
+            return URLEncoder.encode(segment, "UTF-8").replace("+", "%20");
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Executes a request and checks the status code.
+     *
+     * @param request The request.
+     * @return The successful response. It must be closed.
+     * @throws HttpException When the status code is not 2XX.
+     * @throws IOException When the request fails.
+     */
+    HttpResponse execute(HttpRequest request) throws IOException {
+        return check(this.session.execute(request));
+    }
+
+    private static HttpResponse check(HttpResponse response) throws IOException {
+        if (!response.isSuccessful()) {
+            try {
+                throw new HttpException(response.getStatusCode(), readError(response));
+            }
+            finally {
+                response.close();
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Executes a request and parses the body as JSON.
+     *
+     * @param request The request.
+     * @return The parsed body (JSONObject, JSONArray or a primitive) or {null} for an empty body.
+     * @throws IOException When the request fails or the body is not valid JSON.
+     */
+    Object requestJson(HttpRequest request) throws IOException {
+        try (HttpResponse response = this.execute(request)) {
+            JSONTokener tokener = new JSONTokener(new InputStreamReader(response.getBody(), response.getCharset()));
+            if (!tokener.more()) {
+                return null;
+            }
+            return tokener.nextValue();
+        }
+        catch (JSONException e) {
+            throw new IOException("invalid response: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Executes a GET request and parses the body as JSON. When a metadata cache is set, a cached response is
+     * revalidated with a conditional request and used when the server answers with 304 (Not Modified).
+     *
+     * @param path The path of the request.
+     * @return The parsed body.
+     * @throws IOException When the request fails or the body is not valid JSON.
+     */
+    Object requestJsonCached(String path) throws IOException {
+        Object[] json = new Object[1];
+        this.requestCached(path, body -> {
+            JSONTokener tokener = new JSONTokener(body);
+            json[0] = tokener.more() ? tokener.nextValue() : null;
+        });
+        return json[0];
+    }
+
+    /**
+     * Executes a GET request and passes the body to a handler while it is received. When a metadata cache is set, a
+     * cached response is revalidated with a conditional request and used when the server answers with 304 (Not
+     * Modified). Bodies larger than the cache are not buffered.
+     *
+     * @param path The path of the request.
+     * @param handler Reads the body.
+     * @throws IOException When the request fails, the body is not valid JSON or the handler fails.
+     */
+    void requestCached(String path, BodyHandler handler) throws IOException {
+        MetadataCache cache = this.metadataCache;
+        String key = this.server + " " + this.user + " " + path;
+        MetadataCache.Entry cached = cache != null ? cache.get(key) : null;
+        HttpRequest request = new HttpRequest(HttpMethod.GET, path);
+        if (cached != null) {
+            if (cached.etag != null) {
+                request.header("If-None-Match", cached.etag);
+            }
+            if (cached.lastModified != null) {
+                request.header("If-Modified-Since", cached.lastModified);
+            }
+        }
+        try (HttpResponse response = this.session.execute(request)) {
+            if (cached != null && response.getStatus() == HttpStatusCode.NOT_MODIFIED) {
+                cache.count(true);
+                handler.handle(new StringReader(cached.body));
+            }
+            else if (response.isSuccessful()) {
+                Reader body = new InputStreamReader(response.getBody(), response.getCharset());
+                if (cache == null) {
+                    handler.handle(body);
+                    return;
+                }
+                cache.count(false);
+                MetadataCache.CapturingReader capturing = cache.capture(body);
+                handler.handle(capturing);
+                String captured = capturing.finish();
+                if (captured != null) {
+                    cache.put(key, response.getHeaders().get("ETag"), response.getHeaders().get("Last-Modified"), captured);
+                }
+            }
+            else {
+                throw new HttpException(response.getStatusCode(), readError(response));
+            }
+        }
+        catch (JSONException e) {
+            throw new IOException("invalid response: " + e.getMessage(), e);
+        }
+    }
+
+    private static String readError(HttpResponse response) {
+        String reason = response.getReason();
+        try {
+            String body = response.readString().trim();
+            if (body.startsWith("{")) {
+                JSONObject error = new JSONObject(body);
+                body = error.optString("error", error.optString("message", body));
+            }
+            if (!body.isEmpty()) {
+                return body.length() > MAX_ERROR_LENGTH ? body.substring(0, MAX_ERROR_LENGTH) + "..." : body;
+            }
+        }
+        catch (IOException | JSONException e) {
+            // use the reason phrase
+        }
+        return reason;
+    }
+
+    /**
+     * @return The url of the server.
+     */
+    public URI getServer() {
+        return this.server;
+    }
+
+    /**
+     * @return The name of the user.
+     */
+    public String getUser() {
+        return this.user;
+    }
+
+    /**
+     * Sets the cache for metadata and listings.
+     *
+     * @param metadataCache The cache or {null} to disable caching.
+     */
+    public void setMetadataCache(MetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+    }
+
+    /**
+     * @return The cache for metadata and listings or {null}.
+     */
+    public MetadataCache getMetadataCache() {
+        return this.metadataCache;
+    }
+
+    /**
+     * Sets the cache for the content of downloaded files.
+     *
+     * @param contentCache The cache or {null} to disable caching.
+     */
+    public void setContentCache(ContentCache contentCache) {
+        this.contentCache = contentCache;
+    }
+
+    /**
+     * @return The cache for the content of downloaded files or {null}.
+     */
+    public ContentCache getContentCache() {
+        return this.contentCache;
+    }
+
+    /**
+     * @return The session used for the requests.
+     */
+    public HttpSession getSession() {
+        return this.session;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (this.refresh != null) {
+                this.refresh.cancel(false);
+            }
+        }
+        this.session.close();
+    }
+}
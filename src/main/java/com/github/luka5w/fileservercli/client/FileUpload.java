@@ -0,0 +1,478 @@
+package com.github.luka5w.fileservercli.client;
+
+import com.github.luka5w.fileservercli.Main;
+import com.github.luka5w.http.ContentCodec;
+import com.github.luka5w.http.ContentCodecs;
+import com.github.luka5w.http.HttpException;
+import com.github.luka5w.http.HttpRequest;
+import com.github.luka5w.http.HttpStatusCode;
+import com.github.luka5w.http.RequestScheduler;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Uploads the content of a file in chunks over parallel connections.
+ *
+ * <p>The input is memory-mapped chunk by chunk. Every chunk is sent with a {@code Content-Range} and a
+ * {@code Digest} (SHA-256) header and retried when the request fails. Uploaded chunks are recorded in a journal, so
+ * an interrupted upload only sends the missing chunks when it is started again.</p>
+ *
+ * <p>Inputs not larger than one chunk are sent with a single request. When the server does not accept partial
+ * content (400 or 501 for the first chunk), the whole input is sent with a single request.</p>
+ *
+ * <p>When a compression is set, the bodies are compressed while they are sent ({@code Content-Encoding}), unless the
+ * input seems to be compressed already (by its extension or the entropy of samples of the content). Ranges and
+ * digests refer to the uncompressed content.</p>
+ *
+ * <p>When verification is enabled, the content on the server is compared with the input after the upload: the hashes
+ * of the chunks, computed for the {@code Digest} headers, are the leaves of a {@link ContentHash}, which is compared
+ * with the block signature of the server, and only the chunks which differ are sent again. When the server sends no
+ * signature with blocks of the chunk size, the SHA-256 hash of the input is compared with the {@code sha256} of the
+ * metadata (and the upload fails when they differ).</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class FileUpload {
+
+    static final int MAX_ATTEMPTS = 3;
+    static final long RETRY_DELAY = 500;
+    private static final int SAMPLE_SIZE = 16 * 1024;
+    private static final double MAX_ENTROPY = 7.5;
+
+    private final FileServerClient client;
+    private final String id;
+    private final File input;
+    private final long chunkSize;
+    private final int parallelism;
+    private final File journalDirectory;
+    private final TransferListener listener;
+    private ContentCodec compression;
+    private boolean verify = false;
+
+    /**
+     * Creates a new upload.
+     *
+     * @param client The client.
+     * @param id The id of the file on the server.
+     * @param input The local file.
+     * @param chunkSize The size of the chunks in bytes (at most 2 GiB).
+     * @param parallelism The number of chunks uploaded at the same time.
+     * @param journalDirectory The directory of the upload journals.
+     * @param listener Receives the progress.
+     */
+    public FileUpload(FileServerClient client, String id, File input, long chunkSize, int parallelism, File journalDirectory, TransferListener listener) {
+        if (chunkSize < 1 || chunkSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("chunk size must be between 1 byte and 2 GiB");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.client = client;
+        this.id = id;
+        this.input = input;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.journalDirectory = journalDirectory;
+        this.listener = listener;
+    }
+
+    /**
+     * Compresses the content while it is sent.
+     *
+     * @param compression The coding or {null} to send the content uncompressed.
+     * @param skipExtensions File extensions (lower case, without dot) of compressed formats, which are sent
+     *                       uncompressed.
+     */
+    public void setCompression(ContentCodec compression, Set<String> skipExtensions) {
+        this.compression = null;
+        if (compression == null) {
+            return;
+        }
+        String name = this.input.getName();
+        String extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+        if (name.contains(".") && skipExtensions.contains(extension)) {
+            Main.getLogger("Upload").debug("Not compressing " + this.input + ", ." + extension + " is compressed already.");
+            return;
+        }
+        try {
+            double entropy = sampleEntropy(this.input);
+            if (entropy > MAX_ENTROPY) {
+                Main.getLogger("Upload").debug("Not compressing " + this.input + ", the content seems to be compressed already (" + String.format("%.2f", entropy) + " bits per byte).");
+                return;
+            }
+        }
+        catch (IOException e) {
+            // the upload fails with a better message
+            return;
+        }
+        this.compression = compression;
+    }
+
+    /**
+     * Compares the content on the server with the input after the upload.
+     *
+     * @param verify Whether the upload is verified.
+     */
+    public void setVerify(boolean verify) {
+        this.verify = verify;
+    }
+
+    /**
+     * Uploads the file.
+     *
+     * @return The size of the file.
+     * @throws IOException When the upload fails. The journal is kept to resume later.
+     */
+    public long upload() throws IOException {
+        try (FileChannel channel = FileChannel.open(this.input.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size <= this.chunkSize) {
+                this.uploadWhole(channel, size);
+                return size;
+            }
+            int chunks = (int) ((size + this.chunkSize - 1) / this.chunkSize);
+            String key = this.client.getServer() + " " + this.id + " " + this.input.getAbsolutePath() + " " + size + " " + this.input.lastModified() + " " + this.chunkSize;
+            UploadJournal journal = UploadJournal.open(this.journalDirectory, key);
+            ContentHash hash = new ContentHash(size, this.chunkSize);
+            try {
+                AtomicLong transferred = new AtomicLong();
+                for (int i = 0; i < chunks; i++) {
+                    if (journal.isDone(i)) {
+                        transferred.addAndGet(this.getChunkLength(i, size));
+                    }
+                }
+                if (journal.getDoneCount() > 0) {
+                    Main.getLogger("Upload").info("Resuming upload of " + this.input + ": " + journal.getDoneCount() + " of " + chunks + " chunks done.");
+                }
+                else {
+                    // the first chunk checks whether the server accepts partial content
+                    try {
+                        this.uploadChunk(channel, 0, size, journal, transferred, hash);
+                    }
+                    catch (HttpException e) {
+                        if (e.getStatus() != HttpStatusCode.BAD_REQUEST && e.getStatus() != HttpStatusCode.NOT_IMPLEMENTED) {
+                            throw e;
+                        }
+                        Main.getLogger("Upload").debug("Server does not accept partial content (" + e.getStatusCode() + "), uploading " + this.input + " with a single request.");
+                        journal.delete();
+                        this.uploadWhole(channel, size);
+                        return size;
+                    }
+                }
+                List<Integer> missing = new ArrayList<>();
+                for (int i = 0; i < chunks; i++) {
+                    if (!journal.isDone(i)) {
+                        missing.add(i);
+                    }
+                }
+                this.uploadChunks(channel, missing, size, journal, transferred, hash);
+                if (this.verify) {
+                    this.verifyChunks(channel, size, journal, hash);
+                }
+            }
+            finally {
+                journal.close();
+            }
+            journal.delete();
+            return size;
+        }
+    }
+
+    private void uploadWhole(FileChannel channel, long size) throws IOException {
+        HttpRequest.Body body;
+        byte[] sha256;
+        if (size <= Integer.MAX_VALUE) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            body = HttpRequest.Body.of(buffer);
+            sha256 = sha256(buffer);
+        }
+        else {
+            body = HttpRequest.Body.of(this.input.toPath());
+            sha256 = null;
+        }
+        for (int attempt = 1; ; attempt++) {
+            this.send(body, null, sha256 != null ? digest(sha256) : null);
+            if (!this.verify || this.matches(sha256 != null ? sha256 : this.hashInput())) {
+                break;
+            }
+            if (attempt == MAX_ATTEMPTS) {
+                throw new IOException("integrity check failed: the content of " + this.id + " on the server differs from " + this.input);
+            }
+            Main.getLogger("Upload").warn("The content of " + this.id + " on the server differs from " + this.input + ", uploading it again.");
+        }
+        this.listener.onProgress(size, size);
+    }
+
+    private void uploadChunks(FileChannel channel, List<Integer> chunks, long size, UploadJournal journal, AtomicLong transferred, ContentHash hash) throws IOException {
+        this.forEachChunk(chunks, chunk -> this.uploadChunk(channel, chunk, size, journal, transferred, hash));
+    }
+
+    /**
+     * Compares the uploaded content with the input and uploads the chunks which differ again.
+     */
+    private void verifyChunks(FileChannel channel, long size, UploadJournal journal, ContentHash hash) throws IOException {
+        // chunks uploaded before the upload has been resumed
+        List<Integer> unhashed = new ArrayList<>();
+        for (int i = 0; i < hash.getChunkCount(); i++) {
+            if (!hash.hasLeaf(i)) {
+                unhashed.add(i);
+            }
+        }
+        this.forEachChunk(unhashed, chunk -> hash.setLeaf(chunk, sha256(channel.map(FileChannel.MapMode.READ_ONLY, chunk * this.chunkSize, this.getChunkLength(chunk, size)))));
+        for (int attempt = 1; ; attempt++) {
+            List<Integer> differing = this.compareSignature(hash);
+            if (differing == null) {
+                Main.getLogger("Upload").debug("Server sends no signature with blocks of " + this.chunkSize + " bytes, comparing the hash of " + this.input + ".");
+                if (!this.matches(this.hashInput())) {
+                    throw new IOException("integrity check failed: the content of " + this.id + " on the server differs from " + this.input);
+                }
+                return;
+            }
+            if (differing.isEmpty()) {
+                Main.getLogger("Upload").debug(() -> "Verified " + hash.getChunkCount() + " chunks of " + this.id + " (root " + BlockSignature.toHex(hash.getRoot()) + ").");
+                return;
+            }
+            if (attempt == MAX_ATTEMPTS) {
+                throw new IOException("integrity check failed: " + differing.size() + " of " + hash.getChunkCount() + " chunks of " + this.id + " on the server differ from " + this.input);
+            }
+            Main.getLogger("Upload").warn(differing.size() + " of " + hash.getChunkCount() + " chunks of " + this.id + " on the server differ from " + this.input + ", uploading them again.");
+            long resent = 0;
+            for (int chunk : differing) {
+                resent += this.getChunkLength(chunk, size);
+            }
+            this.uploadChunks(channel, differing, size, journal, new AtomicLong(size - resent), hash);
+        }
+    }
+
+    /**
+     * @return The chunks which differ from the block signature of the server or {null} when the server sends no
+     * signature with blocks of the chunk size.
+     */
+    private List<Integer> compareSignature(ContentHash hash) throws IOException {
+        Object json;
+        try {
+            json = this.client.getFileSignature(this.id, (int) this.chunkSize);
+        }
+        catch (HttpException e) {
+            if (e.getStatus() != HttpStatusCode.NOT_FOUND && e.getStatus() != HttpStatusCode.METHOD_NOT_ALLOWED
+                    && e.getStatus() != HttpStatusCode.BAD_REQUEST && e.getStatus() != HttpStatusCode.NOT_IMPLEMENTED) {
+                throw e;
+            }
+            return null;
+        }
+        try {
+            return json instanceof JSONObject ? hash.compare(BlockSignature.fromJson((JSONObject) json)) : null;
+        }
+        catch (JSONException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Compares the hash of the input with the {@code sha256} of the metadata of the file.
+     *
+     * @return {false} when the content on the server differs.
+     */
+    private boolean matches(byte[] sha256) throws IOException {
+        String expected = this.client.getFileSha256(this.id);
+        if (expected == null) {
+            Main.getLogger("Upload").debug("Server sends no hash of " + this.id + ", upload of " + this.input + " not verified.");
+            return true;
+        }
+        return expected.equals(BlockSignature.toHex(sha256));
+    }
+
+    /**
+     * @return The SHA-256 hash of the whole input (only used when it has not been computed while uploading).
+     */
+    private byte[] hashInput() throws IOException {
+        try (MappedFile input = new MappedFile(this.input)) {
+            return input.sha256();
+        }
+    }
+
+    /**
+     * Executes a task for chunks in parallel.
+     */
+    private void forEachChunk(List<Integer> chunks, ChunkTask task) throws IOException {
+        if (chunks.isEmpty()) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.parallelism, chunks.size()));
+        try {
+            List<Future<?>> futures = new ArrayList<>(chunks.size());
+            for (int chunk : chunks) {
+                futures.add(executor.submit(() -> {
+                    task.run(chunk);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("upload of chunk failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("upload interrupted");
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void uploadChunk(FileChannel channel, int chunk, long size, UploadJournal journal, AtomicLong transferred, ContentHash hash) throws IOException {
+        long start = chunk * this.chunkSize;
+        long length = this.getChunkLength(chunk, size);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        String range = "bytes " + start + "-" + (start + length - 1) + "/" + size;
+        byte[] sha256 = sha256(buffer);
+        hash.setLeaf(chunk, sha256);
+        this.send(HttpRequest.Body.of(buffer), range, digest(sha256));
+        journal.markDone(chunk);
+        long done = transferred.addAndGet(length);
+        synchronized (this.listener) {
+            this.listener.onProgress(done, size);
+        }
+    }
+
+    private void send(HttpRequest.Body body, String range, String digest) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (this.compression == null) {
+                    this.client.putFileContent(this.id, body, range, digest, null);
+                }
+                else {
+                    this.client.putFileContent(this.id, ContentCodecs.encode(body, this.compression), range, digest, this.compression.getName());
+                }
+                return;
+            }
+            catch (IOException e) {
+                if (attempt == MAX_ATTEMPTS || !isRetryable(e)) {
+                    throw e;
+                }
+                Main.getLogger("Upload").debug("Upload of " + (range == null ? this.input.toString() : range) + " failed (" + e.getMessage() + "), retrying.");
+                try {
+                    Thread.sleep(RETRY_DELAY << (attempt - 1));
+                }
+                catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("upload interrupted");
+                }
+            }
+        }
+    }
+
+    private long getChunkLength(int chunk, long size) {
+        return Math.min(this.chunkSize, size - chunk * this.chunkSize);
+    }
+
+    /**
+     * Checks whether a failed request should be sent again.
+     *
+     * @param e The failure.
+     * @return {true} for connection errors, timeouts and temporary server errors.
+     */
+    static boolean isRetryable(IOException e) {
+        if (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)) {
+            return false;
+        }
+        if (e instanceof HttpException) {
+            int code = ((HttpException) e).getStatusCode();
+            // rejections because of load have already been retried by the session
+            return code == 408 || (code >= 500 && code != 501 && !RequestScheduler.isThrottled(code));
+        }
+        return true;
+    }
+
+    /**
+     * Estimates the entropy of a file from samples at the start, in the middle and at the end.
+     *
+     * @param file The file.
+     * @return The entropy in bits per byte (0 to 8). Compressed data is close to 8.
+     * @throws IOException When the file can't be read.
+     */
+    static double sampleEntropy(File file) throws IOException {
+        long[] counts = new long[256];
+        long total = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer sample = ByteBuffer.allocate(SAMPLE_SIZE);
+            for (long position : new long[]{0, size / 2, Math.max(0, size - SAMPLE_SIZE)}) {
+                sample.clear();
+                channel.read(sample, position);
+                sample.flip();
+                total += sample.remaining();
+                while (sample.hasRemaining()) {
+                    counts[sample.get() & 0xFF]++;
+                }
+                if (size <= SAMPLE_SIZE) {
+                    break;
+                }
+            }
+        }
+        double entropy = 0;
+        for (long count : counts) {
+            if (count > 0) {
+                double p = (double) count / total;
+                entropy -= p * Math.log(p) / Math.log(2);
+            }
+        }
+        return entropy;
+    }
+
+    /**
+     * Computes the SHA-256 hash of a content.
+     *
+     * @param buffer The content. The position is not changed.
+     * @return The hash.
+     */
+    static byte[] sha256(ByteBuffer buffer) {
+        MessageDigest sha256 = BlockSignature.newSha256();
+        sha256.update(buffer.duplicate());
+        return sha256.digest();
+    }
+
+    /**
+     * Computes the value of the Digest header.
+     *
+     * @param sha256 The SHA-256 hash of the content.
+     * @return {@code sha-256=<base64>}.
+     */
+    static String digest(byte[] sha256) {
+        return "sha-256=" + Base64.getEncoder().encodeToString(sha256);
+    }
+
+    /**
+     * A task for one chunk.
+     */
+    private interface ChunkTask {
+
+        void run(int chunk) throws IOException;
+    }
+}
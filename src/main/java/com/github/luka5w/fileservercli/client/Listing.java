@@ -0,0 +1,209 @@
+package com.github.luka5w.fileservercli.client;
+
+import com.github.luka5w.fileservercli.Main;
+import com.github.luka5w.http.Cancellation;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A listing (e.g. of files or users) which is requested page by page ({@code offset} and {@code limit} query
+ * parameters).
+ *
+ * <p>Pages are requested when they are needed; while the entries of a page are processed, the next page is requested
+ * in the background. When the listing is closed before the end (e.g. because of a limit), no further pages are
+ * requested. Servers which ignore the parameters and send the whole listing are detected.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class Listing implements Closeable {
+
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private static final ExecutorService PREFETCH = Executors.newCachedThreadPool(runnable -> {
+        // shared by all commands, the threads must not inherit the cancellation of the command which created them (the
+        // tasks bind the cancellation of the command which submitted them)
+        Thread thread = new Thread(() -> {
+            Cancellation.clear();
+            runnable.run();
+        }, "listing-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final FileServerClient client;
+    private final String path;
+    private final int pageSize;
+    private final long limit;
+    private JSONArray page;
+    private int index = 0;
+    private long offset = 0;
+    private long returned = 0;
+    private String first;
+    private boolean last = false;
+    private Future<JSONArray> next;
+
+    /**
+     * Creates a new listing. No request is sent.
+     *
+     * @param client The client.
+     * @param path The path of the listing (may contain a query).
+     * @param pageSize The number of entries per request or {0} to use the limit (at most {@value #MAX_PAGE_SIZE}).
+     * @param limit The maximum number of entries or {0} for all entries.
+     */
+    Listing(FileServerClient client, String path, int pageSize, long limit) {
+        if (pageSize < 0 || limit < 0 || (pageSize == 0 && limit == 0)) {
+            throw new IllegalArgumentException("page size or limit must be at least 1");
+        }
+        this.client = client;
+        this.path = path;
+        this.pageSize = pageSize > 0 ? pageSize : (int) Math.min(limit, MAX_PAGE_SIZE);
+        this.limit = limit;
+    }
+
+    /**
+     * Checks whether there are more entries. Waits for the next page, if necessary.
+     *
+     * @return {true} when {@link #next()} returns another entry.
+     * @throws IOException When a page can't be requested.
+     */
+    public boolean hasNext() throws IOException {
+        if (this.limit > 0 && this.returned >= this.limit) {
+            return false;
+        }
+        if (this.page != null && this.index < this.page.length()) {
+            return true;
+        }
+        if (this.last) {
+            return false;
+        }
+        this.page = this.nextPage();
+        this.index = 0;
+        return this.page.length() > 0;
+    }
+
+    /**
+     * Gets the next entry.
+     *
+     * @return The entry (usually a JSONObject).
+     * @throws IOException When a page can't be requested.
+     * @throws NoSuchElementException When there are no more entries.
+     */
+    public Object next() throws IOException {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        this.returned++;
+        return this.page.get(this.index++);
+    }
+
+    /**
+     * @return The number of entries which can be read without waiting for a request.
+     */
+    public int available() {
+        if (this.page == null) {
+            return 0;
+        }
+        int available = this.page.length() - this.index;
+        return this.limit > 0 ? (int) Math.min(available, this.limit - this.returned) : available;
+    }
+
+    private JSONArray nextPage() throws IOException {
+        JSONArray page;
+        if (this.next == null) {
+            page = this.request(this.offset);
+        }
+        else {
+            try {
+                page = this.next.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("listing interrupted");
+            }
+            catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("request of page failed: " + e.getCause().getMessage(), e.getCause());
+            }
+            this.next = null;
+        }
+        if (page.length() > this.pageSize) {
+            Main.getLogger("Listing").debug("Server does not support pages, received " + page.length() + " entries.");
+            this.last = true;
+            return page;
+        }
+        if (page.length() > 0) {
+            String first = String.valueOf(page.get(0));
+            if (this.offset == 0) {
+                this.first = first;
+            }
+            else if (first.equals(this.first)) {
+                Main.getLogger("Listing").debug("Server does not support pages, received the first page again.");
+                this.last = true;
+                return new JSONArray();
+            }
+        }
+        this.offset += page.length();
+        this.last = page.length() < this.pageSize || (this.limit > 0 && this.offset >= this.limit);
+        if (!this.last) {
+            long offset = this.offset;
+            Cancellation cancellation = Cancellation.current();
+            this.next = PREFETCH.submit(() -> {
+                // the request is cancelled with the command
+                if (cancellation != null) {
+                    cancellation.bind();
+                }
+                try {
+                    return this.request(offset);
+                }
+                finally {
+                    Cancellation.clear();
+                }
+            });
+        }
+        return page;
+    }
+
+    private JSONArray request(long offset) throws IOException {
+        String separator = this.path.contains("?") ? "&" : "?";
+        Object page = this.client.requestJsonCached(this.path + separator + "offset=" + offset + "&limit=" + this.pageSize);
+        if (page instanceof JSONArray) {
+            return (JSONArray) page;
+        }
+        if (page instanceof JSONObject) {
+            // e.g. {"files": [...], "total": 1234}
+            for (String key : ((JSONObject) page).keySet()) {
+                Object value = ((JSONObject) page).get(key);
+                if (value instanceof JSONArray) {
+                    return (JSONArray) value;
+                }
+            }
+        }
+        throw new IOException("invalid response: the page contains no listing");
+    }
+
+    /**
+     * Stops the listing. A page which is being requested in the background is discarded, {@link #hasNext()} returns
+     * {false}.
+     */
+    @Override
+    public void close() {
+        if (this.next != null) {
+            this.next.cancel(true);
+            this.next = null;
+        }
+        this.page = null;
+        this.last = true;
+    }
+}
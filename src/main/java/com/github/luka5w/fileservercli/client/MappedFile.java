@@ -0,0 +1,127 @@
+package com.github.luka5w.fileservercli.client;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/**
+ * A file which is memory-mapped in segments, so files larger than 2 GiB can be read by position.
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+class MappedFile implements Closeable {
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Maps a file.
+     *
+     * @param file The file.
+     * @throws IOException When the file can't be opened or mapped.
+     */
+    MappedFile(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            this.size = this.channel.size();
+            this.segments = new MappedByteBuffer[(int) ((this.size + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < this.segments.length; i++) {
+                long start = (long) i << SEGMENT_SHIFT;
+                this.segments[i] = this.channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_MASK + 1, this.size - start));
+            }
+        }
+        catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The size of the file.
+     */
+    long size() {
+        return this.size;
+    }
+
+    /**
+     * @param position The position.
+     * @return The byte at the position (0 to 255).
+     */
+    int get(long position) {
+        return this.segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK)) & 0xFF;
+    }
+
+    /**
+     * Copies a range of the file.
+     *
+     * @param position The first byte.
+     * @param destination The array to copy to.
+     * @param offset The offset in the array.
+     * @param length The number of bytes.
+     */
+    void get(long position, byte[] destination, int offset, int length) {
+        while (length > 0) {
+            ByteBuffer segment = this.segments[(int) (position >>> SEGMENT_SHIFT)].duplicate();
+            segment.position((int) (position & SEGMENT_MASK));
+            int n = Math.min(length, segment.remaining());
+            segment.get(destination, offset, n);
+            position += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Writes a range of the file.
+     *
+     * @param position The first byte.
+     * @param length The number of bytes.
+     * @param out The output.
+     * @throws IOException When the output can't be written.
+     */
+    void writeTo(long position, long length, OutputStream out) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, length)];
+        while (length > 0) {
+            int n = (int) Math.min(buffer.length, length);
+            this.get(position, buffer, 0, n);
+            out.write(buffer, 0, n);
+            position += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * @return The value of the Digest header of the whole file ({@code sha-256=<base64>}).
+     */
+    String digest() {
+        return FileUpload.digest(this.sha256());
+    }
+
+    /**
+     * @return The SHA-256 hash of the whole file.
+     */
+    byte[] sha256() {
+        MessageDigest sha256 = BlockSignature.newSha256();
+        for (MappedByteBuffer segment : this.segments) {
+            sha256.update(segment.duplicate());
+        }
+        return sha256.digest();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
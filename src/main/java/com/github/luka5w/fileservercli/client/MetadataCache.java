@@ -0,0 +1,243 @@
+package com.github.luka5w.fileservercli.client;
+
+import com.github.luka5w.fileservercli.Main;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.File;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches JSON responses (e.g. metadata and listings) with their validators (ETag, Last-Modified).
+ *
+ * <p>Cached responses are revalidated with conditional requests, a 304 response counts as hit. The least recently
+ * used entries are removed when the number of entries or the total size exceeds the limits. The cache can be stored
+ * in a file to be used by the next invocation.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class MetadataCache {
+
+    private final int maxEntries;
+    private final long maxSize;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Creates a new, empty cache.
+     *
+     * @param maxEntries The maximum number of entries.
+     * @param maxSize The maximum total size of the cached bodies in characters.
+     */
+    public MetadataCache(int maxEntries, long maxSize) {
+        this.maxEntries = maxEntries;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets an entry.
+     *
+     * @param key The key (server, user and path of the request).
+     * @return The entry or {null}.
+     */
+    synchronized Entry get(String key) {
+        return this.entries.get(key);
+    }
+
+    /**
+     * Adds or replaces an entry. Responses without validator are not cached.
+     *
+     * @param key The key (server, user and path of the request).
+     * @param etag The ETag of the response or {null}.
+     * @param lastModified The Last-Modified value of the response or {null}.
+     * @param body The body.
+     */
+    synchronized void put(String key, String etag, String lastModified, String body) {
+        this.remove(key);
+        if ((etag == null && lastModified == null) || body.length() > this.maxSize) {
+            return;
+        }
+        this.entries.put(key, new Entry(etag, lastModified, body));
+        this.size += body.length();
+        Iterator<Entry> eldest = this.entries.values().iterator();
+        while (this.entries.size() > this.maxEntries || this.size > this.maxSize) {
+            this.size -= eldest.next().body.length();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Removes an entry (e.g. after the resource has been modified).
+     *
+     * @param key The key.
+     */
+    synchronized void remove(String key) {
+        Entry removed = this.entries.remove(key);
+        if (removed != null) {
+            this.size -= removed.body.length();
+        }
+    }
+
+    /**
+     * Wraps a body, so it can be cached after it has been read.
+     *
+     * @param body The body.
+     * @return The reader which keeps the read characters, as long as they fit into the cache.
+     */
+    CapturingReader capture(Reader body) {
+        return new CapturingReader(body, this.maxSize);
+    }
+
+    /**
+     * Counts a lookup and logs the hit ratio (debug level).
+     *
+     * @param hit {true} when the cached body has been used.
+     */
+    void count(boolean hit) {
+        long hits;
+        long total;
+        synchronized (this) {
+            if (hit) {
+                this.hits++;
+            }
+            else {
+                this.misses++;
+            }
+            hits = this.hits;
+            total = this.hits + this.misses;
+        }
+        Main.getLogger("MetadataCache").debug(() -> (hit ? "hit" : "miss") + " (" + hits + " of " + total + " lookups hit, " + (hits * 100 / total) + "%)");
+    }
+
+    /**
+     * Loads the entries of a file. Invalid files are ignored.
+     *
+     * @param file The file written by {@link #save(File)}.
+     */
+    public void load(File file) {
+        if (!file.isFile()) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            JSONArray array = new JSONArray(new JSONTokener(reader));
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject entry = array.getJSONObject(i);
+                this.put(entry.getString("key"), entry.optString("etag", null), entry.optString("lastModified", null), entry.getString("body"));
+            }
+        }
+        catch (IOException | JSONException e) {
+            Main.getLogger("MetadataCache").warn("Can't load cache " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the entries to a file (least recently used first).
+     *
+     * @param file The file.
+     * @throws IOException When the file can't be written.
+     */
+    public synchronized void save(File file) throws IOException {
+        JSONArray array = new JSONArray();
+        for (Map.Entry<String, Entry> entry : this.entries.entrySet()) {
+            array.put(new JSONObject()
+                    .put("key", entry.getKey())
+                    .put("etag", entry.getValue().etag)
+                    .put("lastModified", entry.getValue().lastModified)
+                    .put("body", entry.getValue().body));
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+            array.write(writer);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Keeps the characters read from a body, up to a limit.
+     */
+    static class CapturingReader extends FilterReader {
+
+        private final long limit;
+        private StringBuilder captured = new StringBuilder();
+
+        private CapturingReader(Reader in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c != -1 && this.captured != null) {
+                this.captured.append((char) c);
+                this.checkLimit();
+            }
+            return c;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0 && this.captured != null) {
+                this.captured.append(buffer, offset, n);
+                this.checkLimit();
+            }
+            return n;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void checkLimit() {
+            if (this.captured.length() > this.limit) {
+                this.captured = null;
+            }
+        }
+
+        /**
+         * Reads the rest of the body.
+         *
+         * @return The whole body or {null} when it is larger than the limit.
+         * @throws IOException When the body can't be read.
+         */
+        String finish() throws IOException {
+            char[] buffer = new char[4096];
+            while (this.captured != null && this.read(buffer) != -1) {
+                // reads the rest into the captured body
+            }
+            return this.captured != null ? this.captured.toString() : null;
+        }
+    }
+
+    /**
+     * A cached response.
+     */
+    static class Entry {
+
+        final String etag;
+        final String lastModified;
+        final String body;
+
+        Entry(String etag, String lastModified, String body) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.github.luka5w.fileservercli.client;
+
+import com.github.luka5w.fileservercli.Main;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Stores the session tokens issued by servers, so {@code c} does not need the password (and the server does not need
+ * to check it) while a token is valid.
+ *
+ * <p>The tokens are kept in memory (e.g. by the daemon) or, when a file is set, in a file which is encrypted
+ * (AES-GCM) with a key from a second file in the home directory of the user. Both files are readable only by the user
+ * (on file systems with POSIX permissions), so a copy of the directory of the config file contains no usable
+ * tokens.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class SessionTokenStore {
+
+    private static final String CIPHER = "AES/GCM/NoPadding";
+    private static final int KEY_LENGTH = 32;
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH = 128;
+
+    private final File file;
+    private final File keyFile;
+    private final Map<String, Token> tokens = new HashMap<>();
+    private boolean loaded = false;
+
+    /**
+     * Creates a store which keeps the tokens in memory.
+     */
+    public SessionTokenStore() {
+        this(null, null);
+    }
+
+    /**
+     * Creates a store which keeps the tokens in an encrypted file.
+     *
+     * @param file The file of the tokens or {null} to keep them in memory.
+     * @param keyFile The file of the key (created when it does not exist).
+     */
+    public SessionTokenStore(File file, File keyFile) {
+        this.file = file;
+        this.keyFile = keyFile;
+    }
+
+    /**
+     * Gets the token of a user.
+     *
+     * @param server The url of the server.
+     * @param user The name of the user.
+     * @return The token or {null} when no valid token is stored.
+     */
+    public synchronized Token get(URI server, String user) {
+        this.load();
+        Token token = this.tokens.get(key(server, user));
+        return token != null && !token.isExpired(System.currentTimeMillis()) ? token : null;
+    }
+
+    /**
+     * Stores the token of a user.
+     *
+     * @param server The url of the server.
+     * @param user The name of the user.
+     * @param token The token.
+     */
+    public synchronized void put(URI server, String user, Token token) {
+        this.load();
+        this.tokens.put(key(server, user), token);
+        this.save();
+    }
+
+    /**
+     * Removes the token of a user (e.g. when the server rejected it).
+     *
+     * @param server The url of the server.
+     * @param user The name of the user.
+     */
+    public synchronized void remove(URI server, String user) {
+        this.load();
+        if (this.tokens.remove(key(server, user)) != null) {
+            this.save();
+        }
+    }
+
+    private static String key(URI server, String user) {
+        return server + " " + user;
+    }
+
+    private void load() {
+        if (this.loaded || this.file == null) {
+            return;
+        }
+        this.loaded = true;
+        if (!this.file.isFile() || !this.keyFile.isFile()) {
+            return;
+        }
+        try {
+            byte[] encrypted = Files.readAllBytes(this.file.toPath());
+            if (encrypted.length < IV_LENGTH) {
+                throw new IOException("file too short");
+            }
+            Cipher cipher = Cipher.getInstance(CIPHER);
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(this.readKey(), "AES"), new GCMParameterSpec(TAG_LENGTH, encrypted, 0, IV_LENGTH));
+            JSONObject json = new JSONObject(new String(cipher.doFinal(encrypted, IV_LENGTH, encrypted.length - IV_LENGTH), StandardCharsets.UTF_8));
+            long now = System.currentTimeMillis();
+            for (String key : json.keySet()) {
+                Token token = Token.fromJson(json.getJSONObject(key));
+                if (!token.isExpired(now)) {
+                    this.tokens.put(key, token);
+                }
+            }
+        }
+        catch (IOException | GeneralSecurityException | JSONException e) {
+            Main.getLogger("Session").warn("Can't read session tokens " + this.file + ": " + e.getMessage());
+        }
+    }
+
+    private void save() {
+        if (this.file == null) {
+            return;
+        }
+        JSONObject json = new JSONObject();
+        long now = System.currentTimeMillis();
+        for (Iterator<Map.Entry<String, Token>> iterator = this.tokens.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<String, Token> entry = iterator.next();
+            if (entry.getValue().isExpired(now)) {
+                iterator.remove();
+            }
+            else {
+                json.put(entry.getKey(), entry.getValue().toJson());
+            }
+        }
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            new SecureRandom().nextBytes(iv);
+            Cipher cipher = Cipher.getInstance(CIPHER);
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(this.readKey(), "AES"), new GCMParameterSpec(TAG_LENGTH, iv));
+            byte[] encrypted = cipher.doFinal(json.toString().getBytes(StandardCharsets.UTF_8));
+            byte[] content = Arrays.copyOf(iv, IV_LENGTH + encrypted.length);
+            System.arraycopy(encrypted, 0, content, IV_LENGTH, encrypted.length);
+            writePrivate(this.file, content);
+        }
+        catch (IOException | GeneralSecurityException e) {
+            Main.getLogger("Session").warn("Can't store session tokens " + this.file + ": " + e.getMessage());
+        }
+    }
+
+    private byte[] readKey() throws IOException {
+        if (this.keyFile.isFile()) {
+            byte[] key = Files.readAllBytes(this.keyFile.toPath());
+            if (key.length != KEY_LENGTH) {
+                throw new IOException("invalid key " + this.keyFile);
+            }
+            return key;
+        }
+        byte[] key = new byte[KEY_LENGTH];
+        new SecureRandom().nextBytes(key);
+        writePrivate(this.keyFile, key);
+        return key;
+    }
+
+    /**
+     * Writes a file which is readable only by the user (on file systems with POSIX permissions).
+     */
+    private static void writePrivate(File file, byte[] content) throws IOException {
+        Path temp = new File(file.getPath() + ".tmp").toPath();
+        Files.deleteIfExists(temp);
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(temp, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+        Files.write(temp, content);
+        Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * A session token and its lifetime.
+     */
+    public static final class Token {
+
+        /**
+         * Tokens are not used when they expire within this time (milliseconds).
+         */
+        private static final long EXPIRY_MARGIN = 30000;
+
+        private final String value;
+        private final long issued;
+        private final long expires;
+
+        private Token(String value, long issued, long expires) {
+            this.value = value;
+            this.issued = issued;
+            this.expires = expires;
+        }
+
+        /**
+         * Parses the response of the server ({@code {"token": "...", "expiresIn": <seconds>}}).
+         *
+         * @param response The response.
+         * @param issued The time the token has been requested.
+         * @return The token.
+         * @throws JSONException When the response contains no token or lifetime.
+         */
+        static Token fromResponse(JSONObject response, long issued) {
+            long expiresIn = response.getLong("expiresIn");
+            if (expiresIn <= 0) {
+                throw new JSONException("invalid lifetime " + expiresIn);
+            }
+            return new Token(response.getString("token"), issued, issued + expiresIn * 1000);
+        }
+
+        private static Token fromJson(JSONObject json) {
+            return new Token(json.getString("token"), json.getLong("issued"), json.getLong("expires"));
+        }
+
+        private JSONObject toJson() {
+            return new JSONObject().put("token", this.value).put("issued", this.issued).put("expires", this.expires);
+        }
+
+        /**
+         * @return The value of the token, sent as {@code Authorization: Bearer <value>}.
+         */
+        public String getValue() {
+            return this.value;
+        }
+
+        /**
+         * @return The time the token expires (milliseconds since the epoch).
+         */
+        public long getExpires() {
+            return this.expires;
+        }
+
+        /**
+         * @return The time a new token should be requested (after 80% of the lifetime).
+         */
+        long getRefreshTime() {
+            return this.issued + (this.expires - this.issued) / 5 * 4;
+        }
+
+        /**
+         * @param now The current time.
+         * @return {true} when the token expires within {@value #EXPIRY_MARGIN} ms.
+         */
+        boolean isExpired(long now) {
+            return now >= this.expires - EXPIRY_MARGIN;
+        }
+    }
+}
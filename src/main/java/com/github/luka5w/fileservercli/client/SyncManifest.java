@@ -0,0 +1,159 @@
+package com.github.luka5w.fileservercli.client;
+
+import com.github.luka5w.fileservercli.Main;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The state of a synchronized directory, stored between the runs of a {@link DirectorySync}.
+ *
+ * <p>For every file (by relative path), it records the size, modification time and hash of the local file (so
+ * unchanged files are not hashed again), and the id and version of the file on the server together with the hash of
+ * the content at the last sync (to detect on which side a file has been changed).</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+class SyncManifest {
+
+    private final File file;
+    private final String key;
+    private final Map<String, Entry> entries = new TreeMap<>();
+
+    private SyncManifest(File file, String key) {
+        this.file = file;
+        this.key = key;
+    }
+
+    /**
+     * Opens the manifest of a directory. A missing or unreadable manifest is started again.
+     *
+     * @param directory The directory of the manifests.
+     * @param key The identification of the sync (server, user and local directory).
+     * @return The manifest.
+     */
+    static SyncManifest open(File directory, String key) {
+        SyncManifest manifest = new SyncManifest(new File(directory, UploadJournal.hash(key) + ".json"), key);
+        if (!manifest.file.isFile()) {
+            return manifest;
+        }
+        try (Reader reader = Files.newBufferedReader(manifest.file.toPath(), StandardCharsets.UTF_8)) {
+            JSONObject json = new JSONObject(new JSONTokener(reader));
+            if (!key.equals(json.optString("key"))) {
+                return manifest;
+            }
+            JSONObject entries = json.getJSONObject("entries");
+            for (String path : entries.keySet()) {
+                JSONObject entry = entries.getJSONObject(path);
+                manifest.entries.put(path, new Entry(entry.getLong("size"), entry.getLong("modified"), entry.getString("hash"),
+                        entry.optString("id", null), entry.optString("synced", null), entry.optString("remote", null)));
+            }
+        }
+        catch (IOException | JSONException e) {
+            Main.getLogger("Sync").warn("Can't read sync manifest " + manifest.file + ", hashing all files: " + e.getMessage());
+            manifest.entries.clear();
+        }
+        return manifest;
+    }
+
+    /**
+     * @param path The relative path of the file.
+     * @return The entry or {null}.
+     */
+    synchronized Entry get(String path) {
+        return this.entries.get(path);
+    }
+
+    /**
+     * @param path The relative path of the file.
+     * @param entry The new entry or {null} to remove the entry.
+     */
+    synchronized void put(String path, Entry entry) {
+        if (entry == null) {
+            this.entries.remove(path);
+        }
+        else {
+            this.entries.put(path, entry);
+        }
+    }
+
+    /**
+     * @return A copy of all entries by relative path.
+     */
+    synchronized Map<String, Entry> getEntries() {
+        return new TreeMap<>(this.entries);
+    }
+
+    /**
+     * Writes the manifest (atomically).
+     *
+     * @throws IOException When the manifest can't be written.
+     */
+    synchronized void save() throws IOException {
+        JSONObject entries = new JSONObject();
+        for (Map.Entry<String, Entry> entry : this.entries.entrySet()) {
+            Entry value = entry.getValue();
+            entries.put(entry.getKey(), new JSONObject()
+                    .put("size", value.size)
+                    .put("modified", value.modified)
+                    .put("hash", value.hash)
+                    .putOpt("id", value.id)
+                    .putOpt("synced", value.synced)
+                    .putOpt("remote", value.remote));
+        }
+        File directory = this.file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("can't create directory " + directory);
+        }
+        File temp = new File(this.file.getPath() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+            new JSONObject().put("key", this.key).put("entries", entries).write(writer);
+        }
+        Files.move(temp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * The state of one file. Immutable.
+     */
+    static class Entry {
+
+        /**
+         * The size, modification time and hash of the local file when it has been hashed.
+         */
+        final long size;
+        final long modified;
+        final String hash;
+        /**
+         * The id of the file on the server or {null} when it has not been uploaded yet.
+         */
+        final String id;
+        /**
+         * The hash of the content at the last sync.
+         */
+        final String synced;
+        /**
+         * The version of the file on the server at the last sync (see {@link DirectorySync}).
+         */
+        final String remote;
+
+        Entry(long size, long modified, String hash, String id, String synced, String remote) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+            this.id = id;
+            this.synced = synced;
+            this.remote = remote;
+        }
+    }
+}
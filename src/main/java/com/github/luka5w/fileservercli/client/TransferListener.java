@@ -0,0 +1,23 @@
+package com.github.luka5w.fileservercli.client;
+
+/**
+ * Receives the progress of a file transfer.
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public interface TransferListener {
+
+    /**
+     * A listener which ignores the progress.
+     */
+    TransferListener NONE = (transferred, total) -> { };
+
+    /**
+     * Called after a part of the file has been transferred.
+     *
+     * @param transferred The number of bytes transferred so far (including resumed bytes).
+     * @param total The size of the file or {-1} when unknown.
+     */
+    void onProgress(long transferred, long total);
+}
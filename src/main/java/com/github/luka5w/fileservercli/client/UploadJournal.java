@@ -0,0 +1,133 @@
+package com.github.luka5w.fileservercli.client;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.BitSet;
+
+/**
+ * Records the uploaded chunks of an upload, so an interrupted upload can be resumed.
+ *
+ * <p>The first line of the journal identifies the upload (server, file id, input file, size, modification time and
+ * chunk size), every following line is the index of an uploaded chunk. When the identification does not match, the
+ * journal is started again.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+class UploadJournal implements Closeable {
+
+    private final File file;
+    private final BitSet done = new BitSet();
+    private final Writer writer;
+
+    private UploadJournal(File file, String key) throws IOException {
+        this.file = file;
+        boolean matches = false;
+        if (file.isFile()) {
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                matches = key.equals(reader.readLine());
+                String line;
+                while (matches && (line = reader.readLine()) != null) {
+                    try {
+                        this.done.set(Integer.parseInt(line.trim()));
+                    }
+                    catch (NumberFormatException e) {
+                        // incomplete last line of an interrupted write
+                    }
+                }
+            }
+        }
+        if (!matches) {
+            this.done.clear();
+        }
+        this.writer = new OutputStreamWriter(new FileOutputStream(file, matches), StandardCharsets.UTF_8);
+        if (!matches) {
+            this.writer.write(key + "\n");
+            this.writer.flush();
+        }
+    }
+
+    /**
+     * Opens the journal of an upload.
+     *
+     * @param directory The directory of the journals.
+     * @param key The identification of the upload.
+     * @return The journal.
+     * @throws IOException When the journal can't be read or created.
+     */
+    static UploadJournal open(File directory, String key) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("can't create journal directory " + directory);
+        }
+        return new UploadJournal(new File(directory, hash(key) + ".journal"), key);
+    }
+
+    /**
+     * @param chunk The index of the chunk.
+     * @return {true} when the chunk has been uploaded.
+     */
+    synchronized boolean isDone(int chunk) {
+        return this.done.get(chunk);
+    }
+
+    /**
+     * @return The number of uploaded chunks.
+     */
+    synchronized int getDoneCount() {
+        return this.done.cardinality();
+    }
+
+    /**
+     * Records an uploaded chunk.
+     *
+     * @param chunk The index of the chunk.
+     * @throws IOException When the journal can't be written.
+     */
+    synchronized void markDone(int chunk) throws IOException {
+        this.done.set(chunk);
+        this.writer.write(chunk + "\n");
+        this.writer.flush();
+    }
+
+    /**
+     * Closes and deletes the journal (after the upload has been completed).
+     *
+     * @throws IOException When the journal can't be deleted.
+     */
+    void delete() throws IOException {
+        this.close();
+        Files.deleteIfExists(this.file.toPath());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.writer.close();
+    }
+
+    /**
+     * @param key A key.
+     * @return A short hash of the key, usable as file name.
+     */
+    static String hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.github.luka5w.fileservercli.log;
+
+import com.github.luka5w.fileservercli.Constants;
+
+import java.io.PrintStream;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes log messages on a background thread, so logging does not wait for the console.
+ *
+ * <p>The messages are kept in a ring buffer of a fixed capacity. When the buffer is full, the {@link OverflowPolicy}
+ * decides whether the caller waits or a message is dropped; errors are never dropped. Dropped messages are counted and
+ * reported with the next written message. The lines are formatted by the background thread.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+class AsyncAppender {
+
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+    private static final long FLUSH_TIMEOUT = TimeUnit.SECONDS.toNanos(5);
+
+    private final PrintStream out;
+    private final OverflowPolicy policy;
+    private final Event[] buffer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = this.lock.newCondition();
+    private final Condition notFull = this.lock.newCondition();
+    private final Condition written = this.lock.newCondition();
+    private final Thread writer;
+    private int head = 0;
+    private int count = 0;
+    private long enqueued = 0;
+    private long completed = 0;
+    private long dropped = 0;
+    private boolean closed = false;
+
+    /**
+     * Creates a new appender and starts its thread.
+     *
+     * @param out The output.
+     * @param capacity The number of messages which can wait to be written.
+     * @param policy What to do when the buffer is full.
+     */
+    AsyncAppender(PrintStream out, int capacity, OverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("buffer size must be at least 1");
+        }
+        this.out = out;
+        this.policy = policy;
+        this.buffer = new Event[capacity];
+        this.writer = new Thread(this::write, "log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Adds a message to the buffer.
+     *
+     * @param level The level ({@code D}, {@code I}, {@code L}, {@code W} or {@code E}).
+     * @param name The names of the logger (e.g. {@code [Program] [Upload]}).
+     * @param message The message.
+     * @return The sequence number of the message (see {@link #flush(long)}) or {-1} when it has been dropped.
+     */
+    long append(char level, String name, String message) {
+        Event event = new Event(System.currentTimeMillis(), level, name, message);
+        this.lock.lock();
+        try {
+            if (this.closed) {
+                this.out.println(event.format());
+                return -1;
+            }
+            while (this.count == this.buffer.length) {
+                if (level != Log.CHAR_ERROR && this.policy == OverflowPolicy.DROP) {
+                    this.dropped++;
+                    return -1;
+                }
+                if (level != Log.CHAR_ERROR && this.policy == OverflowPolicy.DROP_OLDEST) {
+                    this.buffer[this.head] = null;
+                    this.head = (this.head + 1) % this.buffer.length;
+                    this.count--;
+                    this.completed++;
+                    this.dropped++;
+                    break;
+                }
+                this.notFull.awaitUninterruptibly();
+            }
+            this.buffer[(this.head + this.count) % this.buffer.length] = event;
+            this.count++;
+            this.notEmpty.signal();
+            return ++this.enqueued;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until a message has been written (at most 5 seconds).
+     *
+     * @param sequence The sequence number returned by {@link #append(char, String, String)}.
+     */
+    void flush(long sequence) {
+        this.lock.lock();
+        try {
+            long remaining = FLUSH_TIMEOUT;
+            while (this.completed < sequence && remaining > 0 && this.writer.isAlive()) {
+                remaining = this.written.awaitNanos(remaining);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until all messages have been written.
+     */
+    void flush() {
+        long sequence;
+        this.lock.lock();
+        try {
+            sequence = this.enqueued;
+        }
+        finally {
+            this.lock.unlock();
+        }
+        this.flush(sequence);
+    }
+
+    /**
+     * Writes the remaining messages and stops the thread. Later messages are written directly.
+     */
+    void close() {
+        this.flush();
+        this.lock.lock();
+        try {
+            this.closed = true;
+            this.notEmpty.signal();
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void write() {
+        Event[] batch = new Event[this.buffer.length];
+        while (true) {
+            int n;
+            long dropped;
+            this.lock.lock();
+            try {
+                while (this.count == 0 && !this.closed) {
+                    this.notEmpty.awaitUninterruptibly();
+                }
+                if (this.count == 0) {
+                    return;
+                }
+                n = this.count;
+                for (int i = 0; i < n; i++) {
+                    batch[i] = this.buffer[this.head];
+                    this.buffer[this.head] = null;
+                    this.head = (this.head + 1) % this.buffer.length;
+                }
+                this.count = 0;
+                dropped = this.dropped;
+                this.dropped = 0;
+                this.notFull.signalAll();
+            }
+            finally {
+                this.lock.unlock();
+            }
+
+            StringBuilder lines = new StringBuilder();
+            if (dropped > 0) {
+                lines.append(new Event(System.currentTimeMillis(), Log.CHAR_WARN, "[" + Constants.PROGRAM_NAME + "] ", dropped + " log messages dropped (buffer full).").format()).append(System.lineSeparator());
+            }
+            for (int i = 0; i < n; i++) {
+                lines.append(batch[i].format()).append(System.lineSeparator());
+                batch[i] = null;
+            }
+            this.out.print(lines);
+            this.out.flush();
+
+            this.lock.lock();
+            try {
+                this.completed += n;
+                this.written.signalAll();
+            }
+            finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * What to do with a message when the buffer is full.
+     */
+    enum OverflowPolicy {
+        /**
+         * The caller waits until there is space.
+         */
+        BLOCK,
+        /**
+         * The new message is dropped.
+         */
+        DROP,
+        /**
+         * The oldest waiting message is dropped.
+         */
+        DROP_OLDEST
+    }
+
+    private static class Event {
+
+        private final long timestamp;
+        private final char level;
+        private final String name;
+        private final String message;
+
+        private Event(long timestamp, char level, String name, String message) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.name = name;
+            this.message = message;
+        }
+
+        private String format() {
+            return formatTimestamp(this.timestamp) + " [" + this.level + "] " + this.name + this.message;
+        }
+    }
+
+    /**
+     * Formats a timestamp as {@code yyyy-MM-dd'T'hh:mm:ss.SSS} in the local time zone. java.time is not used, because
+     * loading it takes longer than most runs of the program.
+     *
+     * @param millis The timestamp.
+     * @return The formatted timestamp.
+     */
+    static String formatTimestamp(long millis) {
+        long local = millis + TimeZone.getDefault().getOffset(millis);
+        long days = Math.floorDiv(local, MILLIS_PER_DAY);
+        int millisOfDay = (int) Math.floorMod(local, MILLIS_PER_DAY);
+        // the date of a day since 1970-01-01 in the proleptic Gregorian calendar (eras of 400 years, years from March)
+        long shifted = days + 719468;
+        long era = Math.floorDiv(shifted, 146097);
+        long dayOfEra = shifted - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthFromMarch = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthFromMarch + 2) / 5 + 1);
+        int month = (int) (monthFromMarch < 10 ? monthFromMarch + 3 : monthFromMarch - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        int hour = millisOfDay / 3600000 % 12;
+        StringBuilder timestamp = new StringBuilder(23);
+        pad(timestamp, year, 4).append('-');
+        pad(timestamp, month, 2).append('-');
+        pad(timestamp, day, 2).append('T');
+        pad(timestamp, hour == 0 ? 12 : hour, 2).append(':');
+        pad(timestamp, millisOfDay / 60000 % 60, 2).append(':');
+        pad(timestamp, millisOfDay / 1000 % 60, 2).append('.');
+        return pad(timestamp, millisOfDay % 1000, 3).toString();
+    }
+
+    private static StringBuilder pad(StringBuilder builder, long value, int width) {
+        String digits = Long.toString(value);
+        for (int i = digits.length(); i < width; i++) {
+            builder.append('0');
+        }
+        return builder.append(digits);
+    }
+}
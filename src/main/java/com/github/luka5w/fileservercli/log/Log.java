@@ -0,0 +1,220 @@
+package com.github.luka5w.fileservercli.log;
+
+import com.github.luka5w.fileservercli.Constants;
+import com.github.luka5w.util.cli.Logger;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * The logger of the program (and its parts), compatible with {@link Logger}.
+ *
+ * <p>Loggers are created once per name. The level is checked before a message is converted to a string; messages
+ * which are expensive to build can be passed as {@link Supplier}, which is only called when the level is enabled. The
+ * messages are written by an {@link AsyncAppender}; warnings and errors are written before the call returns, so they
+ * are not mixed up with the output of commands.</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class Log extends Logger {
+
+    /**
+     * The levels, as used by {@code [main] log-level}.
+     */
+    public static final int DEBUG = 0;
+    public static final int INFO = 1;
+    public static final int LOG = 2;
+    public static final int WARN = 3;
+    public static final int ERROR = 4;
+
+    static final char CHAR_WARN = 'W';
+    static final char CHAR_ERROR = 'E';
+
+    private static final char[] LEVEL_CHARS = {'D', 'I', 'L', CHAR_WARN, CHAR_ERROR};
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final ConcurrentMap<String, Log> LOGGERS = new ConcurrentHashMap<>();
+
+    private static final Log ROOT = new Log(Constants.PROGRAM_NAME, "[" + Constants.PROGRAM_NAME + "] ");
+
+    private static volatile int level = DEBUG;
+    private static volatile AsyncAppender appender = new AsyncAppender(System.out, DEFAULT_CAPACITY, AsyncAppender.OverflowPolicy.BLOCK);
+
+    private final String prefix;
+
+    private Log(String name, String prefix) {
+        super(name, DEBUG);
+        this.prefix = prefix;
+    }
+
+    /**
+     * @return The logger of the program.
+     */
+    public static Log getRoot() {
+        return ROOT;
+    }
+
+    /**
+     * Gets the logger of a part of the program.
+     *
+     * @param name The name of the part.
+     * @return The logger (the same instance for every call with the same name).
+     */
+    public static Log get(String name) {
+        return LOGGERS.computeIfAbsent(name, sub -> new Log(sub, ROOT.prefix + "[" + sub + "] "));
+    }
+
+    /**
+     * Sets the level.
+     *
+     * @param level The level ({@link #DEBUG} up to {@link #ERROR}).
+     * @throws IllegalArgumentException When the level is invalid.
+     */
+    public static void setLevel(int level) {
+        if (level < DEBUG || level > ERROR) {
+            throw new IllegalArgumentException("level must be 0 up to 4");
+        }
+        Log.level = level;
+    }
+
+    /**
+     * Replaces the appender. Waiting messages of the previous appender are written first.
+     *
+     * @param capacity The number of messages which can wait to be written.
+     * @param overflow What to do when too many messages are waiting: {@code block}, {@code drop} or
+     *                 {@code drop-oldest}.
+     * @throws IllegalArgumentException When a value is invalid.
+     */
+    public static synchronized void setAppender(int capacity, String overflow) {
+        AsyncAppender.OverflowPolicy policy;
+        try {
+            policy = AsyncAppender.OverflowPolicy.valueOf(overflow.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+        catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("overflow must be block, drop or drop-oldest");
+        }
+        AsyncAppender previous = appender;
+        appender = new AsyncAppender(System.out, capacity, policy);
+        previous.close();
+    }
+
+    /**
+     * Writes all waiting messages. Called before the program exits, later messages are written directly.
+     */
+    public static void shutdown() {
+        appender.close();
+    }
+
+    /**
+     * @return The current level.
+     */
+    public static int getLevel() {
+        return level;
+    }
+
+    /**
+     * @param level The level of a message.
+     * @return {true} when messages of the level are written.
+     */
+    public boolean isEnabled(int level) {
+        return level >= Log.level;
+    }
+
+    /**
+     * @return {true} when debug messages are written.
+     */
+    public boolean isDebugEnabled() {
+        return this.isEnabled(DEBUG);
+    }
+
+    @Override
+    public void debug(Object message) {
+        this.write(DEBUG, message);
+    }
+
+    /**
+     * Writes a debug message which is only built when debug messages are written.
+     *
+     * @param message Builds the message.
+     */
+    public void debug(Supplier<?> message) {
+        if (this.isEnabled(DEBUG)) {
+            this.write(DEBUG, message.get());
+        }
+    }
+
+    @Override
+    public void info(Object message) {
+        this.write(INFO, message);
+    }
+
+    /**
+     * Writes an info message which is only built when info messages are written.
+     *
+     * @param message Builds the message.
+     */
+    public void info(Supplier<?> message) {
+        if (this.isEnabled(INFO)) {
+            this.write(INFO, message.get());
+        }
+    }
+
+    @Override
+    public void log(Object message) {
+        this.write(LOG, message);
+    }
+
+    @Override
+    public void warn(Object message) {
+        this.write(WARN, message);
+    }
+
+    /**
+     * Writes a warning which is only built when warnings are written.
+     *
+     * @param message Builds the message.
+     */
+    public void warn(Supplier<?> message) {
+        if (this.isEnabled(WARN)) {
+            this.write(WARN, message.get());
+        }
+    }
+
+    @Override
+    public void error(Object message) {
+        this.error(message, false);
+    }
+
+    @Override
+    public void error(Object message, boolean exit) {
+        this.write(ERROR, message);
+        if (exit) {
+            shutdown();
+            System.exit(-1);
+        }
+    }
+
+    @Override
+    public void exception(String message, Throwable t) {
+        this.exception(message, t, false);
+    }
+
+    @Override
+    public void exception(String message, Throwable t, boolean exit) {
+        String reason = t.getMessage() == null || t.getMessage().isEmpty() ? t.getClass().getName() : t.getMessage();
+        this.error(message + ": " + reason, exit);
+    }
+
+    private void write(int level, Object message) {
+        if (level < Log.level) {
+            return;
+        }
+        AsyncAppender appender = Log.appender;
+        long sequence = appender.append(LEVEL_CHARS[level], this.prefix, String.valueOf(message));
+        if (level >= WARN && sequence > 0) {
+            appender.flush(sequence);
+        }
+    }
+}
@@ -0,0 +1,690 @@
+package com.github.luka5w.fileservercli.stub;
+
+import com.github.luka5w.fileservercli.client.BlockSignature;
+import com.github.luka5w.fileservercli.client.BulkOperation;
+import com.github.luka5w.fileservercli.client.Delta;
+import com.github.luka5w.http.ContentCodec;
+import com.github.luka5w.http.ContentCodecs;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A FileServer which keeps the files in memory, for tests and load tests without a real server.
+ *
+ * <p>It implements the part of the API used by the program: versions, the own account, the list of users, and
+ * listing, creating, reading (with ranges and conditional requests), writing (whole or in ranges, compressed and with
+ * digest, or as {@link Delta} to the block signature) and deleting files and their metadata. Every user with any
+ * password is accepted (basic authentication); each user has their own files. {@code POST /api/v1/sessions} issues
+ * session tokens ({@code Authorization: Bearer <token>}), which expire after {@link #setTokenLifetime(long)}. Users
+ * (every user who has sent a request) can be modified and deleted by every user; files can be deleted in bulk with
+ * {@code POST /api/v1/files/batch}, users have no batch endpoint (see {@link BulkOperation}). To test clients under
+ * load, the number of concurrent requests can be limited ({@link #setConcurrencyLimit(int)}).</p>
+ *
+ * @author Lukas // https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class StubFileServer implements Closeable {
+
+    private static final String PATH_API = "/api/v1";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long DEFAULT_BLOCK_SIZE = 64 * 1024;
+    private static final long DEFAULT_TOKEN_LIFETIME = 3600;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong nextId = new AtomicLong(1);
+    /**
+     * user -> id -> file
+     */
+    private final ConcurrentMap<String, ConcurrentSkipListMap<Long, StoredFile>> files = new ConcurrentHashMap<>();
+    /**
+     * user -> properties set with PATCH
+     */
+    private final ConcurrentMap<String, JSONObject> users = new ConcurrentHashMap<>();
+    /**
+     * token -> session
+     */
+    private final ConcurrentMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile long tokenLifetime = DEFAULT_TOKEN_LIFETIME;
+    private volatile int concurrencyLimit = 0;
+
+    /**
+     * Starts a server on the loopback interface.
+     *
+     * @param port The port or {0} for any free port.
+     * @throws IOException When the server can't be started (e.g. the port is in use).
+     */
+    public StubFileServer(int port) throws IOException {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Starts a server.
+     *
+     * @param address The address to listen on.
+     * @throws IOException When the server can't be started (e.g. the port is in use).
+     */
+    public StubFileServer(InetSocketAddress address) throws IOException {
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/api", this::handle);
+        this.server.start();
+    }
+
+    /**
+     * Sets the lifetime of new session tokens.
+     *
+     * @param seconds The lifetime in seconds.
+     */
+    public void setTokenLifetime(long seconds) {
+        this.tokenLifetime = seconds;
+    }
+
+    /**
+     * Limits the number of concurrent requests. Further requests are rejected with {@code 429 Too Many Requests} and
+     * {@code Retry-After: 1}.
+     *
+     * @param limit The maximum number of concurrent requests or {0} for no limit.
+     */
+    public void setConcurrencyLimit(int limit) {
+        this.concurrencyLimit = limit;
+    }
+
+    /**
+     * @return The url of the server (e.g. {@code http://127.0.0.1:8080}).
+     */
+    public URI getUri() {
+        InetSocketAddress address = this.server.getAddress();
+        String host = address.getAddress().isAnyLocalAddress() ? "127.0.0.1" : address.getAddress().getHostAddress();
+        return URI.create("http://" + (host.contains(":") ? "[" + host + "]" : host) + ":" + address.getPort());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int limit = this.concurrencyLimit;
+        try {
+            if (this.active.incrementAndGet() > limit && limit > 0) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                throw new StubException(429, "too many requests");
+            }
+            String user = this.getUser(exchange.getRequestHeaders());
+            if (user == null) {
+                exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"FileServer\"");
+                this.sendJson(exchange, 401, new JSONObject().put("error", "authentication required"));
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals("/api/versions")) {
+                this.requireMethod(method, "GET");
+                this.sendJson(exchange, 200, new JSONArray().put("v1"));
+            }
+            else if (path.equals(PATH_API + "/users/self")) {
+                this.requireMethod(method, "GET");
+                this.sendJson(exchange, 200, new JSONObject().put("name", user));
+            }
+            else if (path.equals(PATH_API + "/sessions")) {
+                this.requireMethod(method, "POST");
+                byte[] token = new byte[24];
+                this.random.nextBytes(token);
+                String value = Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+                long lifetime = this.tokenLifetime;
+                this.sessions.put(value, new Session(user, System.currentTimeMillis() + lifetime * 1000));
+                this.sendJson(exchange, 201, new JSONObject().put("token", value).put("expiresIn", lifetime));
+            }
+            else if (path.equals(PATH_API + "/users")) {
+                this.requireMethod(method, "GET");
+                this.listUsers(exchange);
+            }
+            else if (path.startsWith(PATH_API + "/users/")) {
+                String name = path.substring(PATH_API.length() + "/users/".length());
+                if (!this.files.containsKey(name)) {
+                    throw new StubException(404, "user not found");
+                }
+                if ("DELETE".equals(method)) {
+                    this.files.remove(name);
+                    this.users.remove(name);
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                else {
+                    this.requireMethod(method, "PATCH");
+                    JSONObject changes = readJson(exchange);
+                    JSONObject properties = this.users.computeIfAbsent(name, key -> new JSONObject());
+                    synchronized (properties) {
+                        for (String key : changes.keySet()) {
+                            properties.put(key, changes.get(key));
+                        }
+                        this.sendJson(exchange, 200, new JSONObject(properties.toString()).put("name", name));
+                    }
+                }
+            }
+            else if (path.equals(PATH_API + "/files/batch")) {
+                this.requireMethod(method, "POST");
+                this.deleteFiles(exchange, user);
+            }
+            else if (path.equals(PATH_API + "/files")) {
+                if ("POST".equals(method)) {
+                    long id = this.nextId.getAndIncrement();
+                    this.getFiles(user).put(id, new StoredFile());
+                    this.sendJson(exchange, 201, new JSONObject().put("id", String.valueOf(id)));
+                }
+                else {
+                    this.requireMethod(method, "GET");
+                    this.listFiles(exchange, user);
+                }
+            }
+            else if (path.startsWith(PATH_API + "/files/")) {
+                String[] segments = path.substring(PATH_API.length() + "/files/".length()).split("/");
+                StoredFile file = this.findFile(user, segments[0]);
+                if (file == null || segments.length > 2 || (segments.length == 2 && !segments[1].equals("metadata") && !segments[1].equals("signature"))) {
+                    throw new StubException(404, "not found");
+                }
+                if (segments.length == 2) {
+                    this.requireMethod(method, "GET");
+                    if (segments[1].equals("signature")) {
+                        this.sendSignature(exchange, file);
+                    }
+                    else {
+                        this.sendMetadata(exchange, segments[0], file);
+                    }
+                }
+                else if ("GET".equals(method)) {
+                    this.sendContent(exchange, file);
+                }
+                else if ("PUT".equals(method)) {
+                    this.receiveContent(exchange, file);
+                }
+                else if ("PATCH".equals(method)) {
+                    this.receiveDelta(exchange, file);
+                }
+                else if ("DELETE".equals(method)) {
+                    this.getFiles(user).remove(Long.parseLong(segments[0]));
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                else {
+                    throw new StubException(405, "method not allowed");
+                }
+            }
+            else {
+                throw new StubException(404, "not found");
+            }
+        }
+        catch (StubException e) {
+            this.sendJson(exchange, e.status, new JSONObject().put("error", e.getMessage()));
+        }
+        finally {
+            this.active.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private void listUsers(HttpExchange exchange) throws IOException, StubException {
+        boolean all = hasParameter(exchange, "all", "true");
+        List<Object> users = new ArrayList<>();
+        for (Map.Entry<String, ConcurrentSkipListMap<Long, StoredFile>> user : new ConcurrentSkipListMap<>(this.files).entrySet()) {
+            if (all) {
+                JSONObject properties = this.users.get(user.getKey());
+                JSONObject entry = new JSONObject().put("name", user.getKey()).put("files", user.getValue().size());
+                if (properties != null) {
+                    synchronized (properties) {
+                        for (String key : properties.keySet()) {
+                            entry.put(key, properties.get(key));
+                        }
+                    }
+                }
+                users.add(entry);
+            }
+            else {
+                users.add(user.getKey());
+            }
+        }
+        this.sendJson(exchange, 200, page(exchange, users));
+    }
+
+    /**
+     * Deletes files in bulk: {@code {"action": "delete", "ids": [...]}}, answered with the status of every file.
+     */
+    private void deleteFiles(HttpExchange exchange, String user) throws IOException, StubException {
+        JSONObject request = readJson(exchange);
+        if (!"delete".equals(request.optString("action"))) {
+            throw new StubException(400, "unsupported action: " + request.optString("action"));
+        }
+        JSONArray ids = request.optJSONArray("ids");
+        if (ids == null) {
+            throw new StubException(400, "missing ids");
+        }
+        JSONArray results = new JSONArray();
+        for (int i = 0; i < ids.length(); i++) {
+            String id = ids.optString(i);
+            JSONObject result = new JSONObject().put("id", id);
+            if (this.findFile(user, id) != null && this.getFiles(user).remove(Long.parseLong(id)) != null) {
+                result.put("status", 204);
+            }
+            else {
+                result.put("status", 404).put("error", "not found");
+            }
+            results.put(result);
+        }
+        this.sendJson(exchange, 200, new JSONObject().put("results", results));
+    }
+
+    private void listFiles(HttpExchange exchange, String user) throws IOException, StubException {
+        boolean all = hasParameter(exchange, "all", "true");
+        List<Object> files = new ArrayList<>();
+        for (Map.Entry<Long, StoredFile> file : this.getFiles(user).entrySet()) {
+            if (all) {
+                synchronized (file.getValue()) {
+                    files.add(file.getValue().toJson(String.valueOf(file.getKey())));
+                }
+            }
+            else {
+                files.add(String.valueOf(file.getKey()));
+            }
+        }
+        this.sendJson(exchange, 200, page(exchange, files));
+    }
+
+    private void sendMetadata(HttpExchange exchange, String id, StoredFile file) throws IOException {
+        JSONObject metadata;
+        String etag;
+        synchronized (file) {
+            metadata = file.toJson(id);
+            etag = "W/" + file.getEtag();
+        }
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        this.sendJson(exchange, 200, metadata);
+    }
+
+    private void sendSignature(HttpExchange exchange, StoredFile file) throws IOException, StubException {
+        long blockSize = getParameter(exchange, "block-size", DEFAULT_BLOCK_SIZE);
+        if (blockSize < 1 || blockSize > Integer.MAX_VALUE) {
+            throw new StubException(400, "invalid block size: " + blockSize);
+        }
+        byte[] content;
+        synchronized (file) {
+            content = file.content;
+        }
+        this.sendJson(exchange, 200, BlockSignature.compute(content, (int) blockSize).toJson());
+    }
+
+    private void sendContent(HttpExchange exchange, StoredFile file) throws IOException, StubException {
+        byte[] content;
+        String etag;
+        synchronized (file) {
+            content = file.content;
+            etag = file.getEtag();
+        }
+        Headers request = exchange.getRequestHeaders();
+        Headers response = exchange.getResponseHeaders();
+        response.set("ETag", etag);
+        response.set("Accept-Ranges", "bytes");
+        if (etag.equals(request.getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        String range = request.getFirst("Range");
+        String ifRange = request.getFirst("If-Range");
+        int from = 0;
+        int to = content.length - 1;
+        if (range != null && range.startsWith("bytes=") && (ifRange == null || ifRange.equals(etag))) {
+            String[] bounds = range.substring(6).split("-", 2);
+            try {
+                from = Integer.parseInt(bounds[0].trim());
+                if (bounds.length == 2 && !bounds[1].trim().isEmpty()) {
+                    to = Math.min(to, Integer.parseInt(bounds[1].trim()));
+                }
+            }
+            catch (NumberFormatException e) {
+                throw new StubException(400, "invalid range: " + range);
+            }
+            if (from >= content.length || from > to) {
+                response.set("Content-Range", "bytes */" + content.length);
+                throw new StubException(416, "range not satisfiable");
+            }
+            response.set("Content-Range", "bytes " + from + "-" + to + "/" + content.length);
+        }
+        response.set("Content-Type", "application/octet-stream");
+        int length = to - from + 1;
+        exchange.sendResponseHeaders(from > 0 || to < content.length - 1 ? 206 : 200, length == 0 ? -1 : length);
+        if (length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(content, from, length);
+            }
+        }
+    }
+
+    private void receiveContent(HttpExchange exchange, StoredFile file) throws IOException, StubException {
+        Headers request = exchange.getRequestHeaders();
+        InputStream in = exchange.getRequestBody();
+        String encoding = request.getFirst("Content-Encoding");
+        if (encoding != null && !encoding.equalsIgnoreCase("identity")) {
+            ContentCodec codec = ContentCodecs.get(encoding);
+            if (codec == null) {
+                throw new StubException(415, "unsupported content encoding: " + encoding);
+            }
+            in = codec.decode(in);
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            body.write(buffer, 0, n);
+        }
+        in.close();
+        byte[] data = body.toByteArray();
+        String digest = request.getFirst("Digest");
+        if (digest != null && digest.regionMatches(true, 0, "sha-256=", 0, 8)
+                && !digest.substring(8).equals(Base64.getEncoder().encodeToString(sha256(data)))) {
+            throw new StubException(400, "digest mismatch");
+        }
+        String range = request.getFirst("Content-Range");
+        synchronized (file) {
+            if (range == null) {
+                file.setContent(data);
+            }
+            else {
+                // bytes <first>-<last>/<total>
+                long first;
+                long last;
+                long total;
+                try {
+                    String[] parts = range.substring(range.indexOf(' ') + 1).split("[-/]");
+                    first = Long.parseLong(parts[0]);
+                    last = Long.parseLong(parts[1]);
+                    total = Long.parseLong(parts[2]);
+                }
+                catch (RuntimeException e) {
+                    throw new StubException(400, "invalid content range: " + range);
+                }
+                if (last - first + 1 != data.length || last >= total || total > Integer.MAX_VALUE) {
+                    throw new StubException(400, "content range does not match the body: " + range);
+                }
+                if (file.content.length != total) {
+                    file.setContent(new byte[(int) total]);
+                }
+                // in place, downloads during a partial upload may see parts of both versions (like on a file system)
+                file.write((int) first, data);
+            }
+        }
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private void receiveDelta(HttpExchange exchange, StoredFile file) throws IOException, StubException {
+        Headers request = exchange.getRequestHeaders();
+        String contentType = request.getFirst("Content-Type");
+        if (contentType == null || !contentType.startsWith(Delta.CONTENT_TYPE)) {
+            throw new StubException(415, "unsupported content type: " + contentType);
+        }
+        byte[] base;
+        synchronized (file) {
+            base = file.content;
+        }
+        byte[] content;
+        try (InputStream in = exchange.getRequestBody()) {
+            content = Delta.apply(base, in);
+        }
+        catch (IOException e) {
+            throw new StubException(400, e.getMessage());
+        }
+        String digest = request.getFirst("Digest");
+        if (digest != null && digest.regionMatches(true, 0, "sha-256=", 0, 8)
+                && !digest.substring(8).equals(Base64.getEncoder().encodeToString(sha256(content)))) {
+            throw new StubException(400, "digest mismatch");
+        }
+        synchronized (file) {
+            if (file.content != base) {
+                throw new StubException(409, "the content has been changed while the delta was received");
+            }
+            file.setContent(content);
+        }
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private ConcurrentSkipListMap<Long, StoredFile> getFiles(String user) {
+        return this.files.computeIfAbsent(user, name -> new ConcurrentSkipListMap<>());
+    }
+
+    private StoredFile findFile(String user, String id) {
+        try {
+            return this.getFiles(user).get(Long.parseLong(id));
+        }
+        catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static JSONObject readJson(HttpExchange exchange) throws IOException, StubException {
+        try (InputStream in = exchange.getRequestBody()) {
+            Object json = new JSONTokener(new InputStreamReader(in, StandardCharsets.UTF_8)).nextValue();
+            if (!(json instanceof JSONObject)) {
+                throw new StubException(400, "expected a JSON object");
+            }
+            return (JSONObject) json;
+        }
+        catch (JSONException e) {
+            throw new StubException(400, "invalid JSON: " + e.getMessage());
+        }
+    }
+
+    private void requireMethod(String method, String expected) throws StubException {
+        if (!expected.equals(method)) {
+            throw new StubException(405, "method not allowed");
+        }
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Object json) throws IOException {
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Applies the {@code offset} and {@code limit} parameters to a listing.
+     */
+    private static JSONArray page(HttpExchange exchange, List<Object> entries) throws StubException {
+        int offset = (int) Math.min(getParameter(exchange, "offset", 0), entries.size());
+        long limit = getParameter(exchange, "limit", entries.size());
+        JSONArray page = new JSONArray();
+        for (int i = offset; i < entries.size() && i - offset < limit; i++) {
+            page.put(entries.get(i));
+        }
+        return page;
+    }
+
+    private static long getParameter(HttpExchange exchange, String name, long defaultValue) throws StubException {
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith(name + "=")) {
+                    try {
+                        return Math.max(0, Long.parseLong(parameter.substring(name.length() + 1)));
+                    }
+                    catch (NumberFormatException e) {
+                        throw new StubException(400, "invalid parameter: " + parameter);
+                    }
+                }
+            }
+        }
+        return defaultValue;
+    }
+
+    private static boolean hasParameter(HttpExchange exchange, String name, String value) {
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.equals(name + "=" + value)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The name of the user of the basic authentication or of a valid session token, or {null}.
+     */
+    private String getUser(Headers headers) {
+        String authorization = headers.getFirst("Authorization");
+        if (authorization != null && authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            Session session = this.sessions.get(authorization.substring(7).trim());
+            if (session == null || session.expires < System.currentTimeMillis()) {
+                return null;
+            }
+            return session.user;
+        }
+        if (authorization == null || !authorization.regionMatches(true, 0, "Basic ", 0, 6)) {
+            return null;
+        }
+        try {
+            String credentials = new String(Base64.getDecoder().decode(authorization.substring(6).trim()), StandardCharsets.UTF_8);
+            int colon = credentials.indexOf(':');
+            return colon > 0 ? credentials.substring(0, colon) : null;
+        }
+        catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Stops the server. Requests in progress are aborted.
+     */
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * The user and the expiry of a session token.
+     */
+    private static class Session {
+
+        private final String user;
+        private final long expires;
+
+        Session(String user, long expires) {
+            this.user = user;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * A file of a user. Access is synchronized on the file.
+     */
+    private static class StoredFile {
+
+        private byte[] content = new byte[0];
+        private String sha256;
+        private Instant modified = Instant.now();
+
+        void setContent(byte[] content) {
+            this.content = content;
+            this.sha256 = null;
+            this.modified = Instant.now();
+        }
+
+        void write(int offset, byte[] data) {
+            System.arraycopy(data, 0, this.content, offset, data.length);
+            this.sha256 = null;
+            this.modified = Instant.now();
+        }
+
+        /**
+         * The hash is computed when it is needed, not for every range of an upload.
+         */
+        String getSha256() {
+            if (this.sha256 == null) {
+                this.sha256 = hex(sha256(this.content));
+            }
+            return this.sha256;
+        }
+
+        String getEtag() {
+            return "\"" + this.getSha256() + "\"";
+        }
+
+        JSONObject toJson(String id) {
+            return new JSONObject()
+                    .put("id", id)
+                    .put("size", this.content.length)
+                    .put("sha256", this.getSha256())
+                    .put("modified", this.modified.toString());
+        }
+
+        private static String hex(byte[] bytes) {
+            StringBuilder hex = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        }
+    }
+
+    /**
+     * Ends a request with an error response.
+     */
+    private static class StubException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        StubException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.github.luka5w.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The body of a response, read from a (possibly pooled) connection.
+ *
+ * <p>The stream knows whether the whole body has been read, which is required to put the connection back into the
+ * pool. Closing the stream does not close the connection, this is done by {@link HttpResponse#close()}.</p>
+ *
+ * @author Lukas https://github.com/luka5w
+ * @version 1.0.0
+ */
+abstract class BodyInputStream extends InputStream {
+
+    protected final InputStream in;
+
+    /**
+     * @param in The input stream of the connection.
+     */
+    BodyInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * @return {true} when the body has been read completely.
+     */
+    abstract boolean isComplete();
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = this.read(b, 0, 1);
+        return n == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public void close() {
+        // the connection is managed by the response
+    }
+
+    /**
+     * A body with a known length (Content-Length).
+     */
+    static class FixedLength extends BodyInputStream {
+
+        private long remaining;
+
+        FixedLength(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        boolean isComplete() {
+            return this.remaining == 0;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (this.remaining == 0) {
+                return -1;
+            }
+            int n = this.in.read(b, off, (int) Math.min(len, this.remaining));
+            if (n == -1) {
+                throw new IOException("unexpected end of stream, " + this.remaining + " bytes missing");
+            }
+            this.remaining -= n;
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(this.in.available(), this.remaining);
+        }
+    }
+
+    /**
+     * A body sent with {@code Transfer-Encoding: chunked}.
+     */
+    static class Chunked extends BodyInputStream {
+
+        private long chunkRemaining = 0;
+        private boolean complete = false;
+
+        Chunked(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        boolean isComplete() {
+            return this.complete;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (this.complete) {
+                return -1;
+            }
+            if (this.chunkRemaining == 0) {
+                this.nextChunk();
+                if (this.complete) {
+                    return -1;
+                }
+            }
+            int n = this.in.read(b, off, (int) Math.min(len, this.chunkRemaining));
+            if (n == -1) {
+                throw new IOException("unexpected end of stream in chunk");
+            }
+            this.chunkRemaining -= n;
+            if (this.chunkRemaining == 0) {
+                // CRLF after chunk data
+                HttpConnection.readLine(this.in);
+            }
+            return n;
+        }
+
+        private void nextChunk() throws IOException {
+            String line = HttpConnection.readLine(this.in);
+            int extension = line.indexOf(';');
+            try {
+                this.chunkRemaining = Long.parseLong((extension == -1 ? line : line.substring(0, extension)).trim(), 16);
+            }
+            catch (NumberFormatException e) {
+                throw new IOException("invalid chunk size: " + line);
+            }
+            if (this.chunkRemaining == 0) {
+                // skip trailers
+                String trailer;
+                do {
+                    trailer = HttpConnection.readLine(this.in);
+                } while (!trailer.isEmpty());
+                this.complete = true;
+            }
+        }
+    }
+
+    /**
+     * A body which ends when the server closes the connection.
+     */
+    static class UntilClose extends BodyInputStream {
+
+        UntilClose(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        boolean isComplete() {
+            // the connection can't be reused anyway
+            return false;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return this.in.read(b, off, len);
+        }
+    }
+
+    /**
+     * A response without body (HEAD, 1XX, 204, 304).
+     */
+    static class Empty extends BodyInputStream {
+
+        Empty() {
+            super(null);
+        }
+
+        @Override
+        boolean isComplete() {
+            return true;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            return -1;
+        }
+    }
+}
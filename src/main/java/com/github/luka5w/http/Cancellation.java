@@ -0,0 +1,167 @@
+package com.github.luka5w.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cancels the requests of a task (e.g. a background job), which may send them from several threads.
+ *
+ * <p>A cancellation is bound to the thread which executes the task ({@link #bind()}) and inherited by the threads it
+ * creates afterwards (e.g. the threads of parallel uploads). The connections used by these threads are registered
+ * while a request is sent or its response is read, so {@link #cancel()} closes them right away: blocked reads and
+ * writes fail immediately instead of waiting for the server or the timeout. Requests started after the cancellation
+ * fail with an {@link InterruptedIOException}, as well as waits in {@link #sleep(long)} (e.g. before a retry).</p>
+ *
+ * <p>Cancellations are thread-safe.</p>
+ *
+ * @author Lukas https://github.com/luka5w
+ * @version 1.0.0
+ */
+public final class Cancellation {
+
+    private static final InheritableThreadLocal<Cancellation> CURRENT = new InheritableThreadLocal<>();
+
+    private final Set<Closeable> resources = new HashSet<>();
+    private volatile boolean cancelled = false;
+
+    /**
+     * @return The cancellation bound to the current thread or {null}.
+     *
+     * @since 1.0.0
+     */
+    public static Cancellation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds the cancellation to the current thread and the threads it creates afterwards.
+     *
+     * @since 1.0.0
+     */
+    public void bind() {
+        CURRENT.set(this);
+    }
+
+    /**
+     * Removes the cancellation from the current thread, e.g. for the threads of shared pools, which would otherwise
+     * inherit the cancellation of the task that created them.
+     *
+     * @since 1.0.0
+     */
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Cancels the task: the registered connections are closed and no further requests are sent.
+     *
+     * @since 1.0.0
+     */
+    public void cancel() {
+        List<Closeable> resources;
+        synchronized (this.resources) {
+            this.cancelled = true;
+            resources = new ArrayList<>(this.resources);
+            this.resources.clear();
+            // wakes up the threads waiting in sleep()
+            this.resources.notifyAll();
+        }
+        for (Closeable resource : resources) {
+            try {
+                resource.close();
+            }
+            catch (IOException e) {
+                // closed anyway
+            }
+        }
+    }
+
+    /**
+     * @return {true} when the task has been cancelled.
+     *
+     * @since 1.0.0
+     */
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    /**
+     * Throws when the task has been cancelled.
+     *
+     * @throws InterruptedIOException When the task has been cancelled.
+     *
+     * @since 1.0.0
+     */
+    public void check() throws InterruptedIOException {
+        if (this.cancelled) {
+            throw new InterruptedIOException("cancelled");
+        }
+    }
+
+    /**
+     * Waits for a time (e.g. before a request is retried), but not longer than until the task is cancelled.
+     *
+     * @param millis The time in milliseconds.
+     * @throws InterruptedIOException When the task has been cancelled or the current thread has been interrupted.
+     *
+     * @since 1.0.0
+     */
+    public void sleep(long millis) throws InterruptedIOException {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        synchronized (this.resources) {
+            while (!this.cancelled) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime());
+                if (remaining <= 0) {
+                    return;
+                }
+                try {
+                    this.resources.wait(remaining);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted");
+                }
+            }
+        }
+        throw new InterruptedIOException("cancelled");
+    }
+
+    /**
+     * Registers a resource which is closed when the task is cancelled.
+     *
+     * @param resource The resource.
+     * @throws InterruptedIOException When the task has been cancelled (the resource is closed).
+     */
+    void register(Closeable resource) throws InterruptedIOException {
+        synchronized (this.resources) {
+            if (!this.cancelled) {
+                this.resources.add(resource);
+                return;
+            }
+        }
+        try {
+            resource.close();
+        }
+        catch (IOException e) {
+            // closed anyway
+        }
+        throw new InterruptedIOException("cancelled");
+    }
+
+    /**
+     * Removes a resource (e.g. when the connection is released).
+     *
+     * @param resource The resource.
+     */
+    void unregister(Closeable resource) {
+        synchronized (this.resources) {
+            this.resources.remove(resource);
+        }
+    }
+}
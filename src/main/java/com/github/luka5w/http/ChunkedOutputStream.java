@@ -0,0 +1,58 @@
+package com.github.luka5w.http;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a request body with {@code Transfer-Encoding: chunked}.
+ *
+ * <p>Every write is sent as one chunk, so the stream should be wrapped in a buffered stream.</p>
+ *
+ * @author Lukas https://github.com/luka5w
+ * @version 1.0.0
+ */
+class ChunkedOutputStream extends FilterOutputStream {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    /**
+     * @param out The output stream of the connection.
+     */
+    ChunkedOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        this.write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            // an empty chunk would end the body
+            return;
+        }
+        this.out.write(Integer.toHexString(len).getBytes(StandardCharsets.ISO_8859_1));
+        this.out.write(CRLF);
+        this.out.write(b, off, len);
+        this.out.write(CRLF);
+    }
+
+    /**
+     * Writes the last chunk. The underlying stream stays open.
+     *
+     * @throws IOException When writing fails.
+     */
+    void finish() throws IOException {
+        this.out.write(LAST_CHUNK);
+    }
+
+    @Override
+    public void close() {
+        // the connection is managed by the session
+    }
+}
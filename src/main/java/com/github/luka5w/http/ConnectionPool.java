@@ -0,0 +1,179 @@
+package com.github.luka5w.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of keep-alive connections to one server.
+ *
+ * <p>The number of connections in use is limited by the pool size, callers block until a connection is released.
+ * Idle connections are reused most recently used first and closed after the idle timeout.</p>
+ *
+ * @author Lukas https://github.com/luka5w
+ * @version 1.0.0
+ */
+class ConnectionPool implements Closeable {
+
+    private final Connector connector;
+    private final int maxConnections;
+    private final long idleTimeout;
+    private final Semaphore permits;
+    private final Deque<HttpConnection> idle = new ArrayDeque<>();
+    private boolean closed = false;
+
+    /**
+     * @param connector Opens new connections.
+     * @param maxConnections The maximum number of connections in use at the same time.
+     * @param idleTimeout The time in milliseconds after which idle connections are closed.
+     */
+    ConnectionPool(Connector connector, int maxConnections, long idleTimeout) {
+        this.connector = connector;
+        this.maxConnections = maxConnections;
+        this.idleTimeout = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+        this.permits = new Semaphore(maxConnections, true);
+    }
+
+    /**
+     * Gets an idle connection or opens a new one. Blocks while all connections are in use.
+     *
+     * <p>Every acquired connection must be passed to {@link #release(HttpConnection, boolean)}. Until then it is closed
+     * when the {@link Cancellation} of the current thread is cancelled.</p>
+     *
+     * @return The connection.
+     * @throws IOException When a new connection can't be opened or the current task has been cancelled.
+     */
+    HttpConnection acquire() throws IOException {
+        try {
+            this.permits.acquire();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a connection");
+        }
+        HttpConnection connection = null;
+        try {
+            Cancellation cancellation = Cancellation.current();
+            if (cancellation != null) {
+                cancellation.check();
+            }
+            while ((connection = this.pollIdle()) != null && connection.isStale()) {
+                connection.close();
+            }
+            if (connection == null) {
+                connection = this.connector.connect();
+            }
+            if (cancellation != null) {
+                connection.bind(cancellation);
+            }
+            return connection;
+        }
+        catch (IOException | RuntimeException e) {
+            if (connection != null) {
+                connection.close();
+            }
+            this.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Releases a connection.
+     *
+     * @param connection The connection acquired by {@link #acquire()}.
+     * @param reusable {true} when the connection can be used for another request, {false} to close it.
+     */
+    void release(HttpConnection connection, boolean reusable) {
+        connection.unbind();
+        try {
+            List<HttpConnection> expired = null;
+            synchronized (this) {
+                if (reusable && !this.closed) {
+                    long now = System.nanoTime();
+                    expired = this.removeExpired(now);
+                    connection.markIdle(now);
+                    this.idle.addFirst(connection);
+                    while (this.idle.size() > this.maxConnections) {
+                        expired.add(this.idle.removeLast());
+                    }
+                    connection = null;
+                }
+            }
+            if (connection != null) {
+                connection.close();
+            }
+            if (expired != null) {
+                expired.forEach(HttpConnection::close);
+            }
+        }
+        finally {
+            this.permits.release();
+        }
+    }
+
+    /**
+     * @return The number of idle connections.
+     */
+    synchronized int getIdleCount() {
+        return this.idle.size();
+    }
+
+    private HttpConnection pollIdle() {
+        List<HttpConnection> expired;
+        HttpConnection connection;
+        synchronized (this) {
+            expired = this.removeExpired(System.nanoTime());
+            connection = this.idle.pollFirst();
+        }
+        expired.forEach(HttpConnection::close);
+        return connection;
+    }
+
+    private List<HttpConnection> removeExpired(long now) {
+        List<HttpConnection> expired = new ArrayList<>();
+        Iterator<HttpConnection> iterator = this.idle.descendingIterator();
+        while (iterator.hasNext()) {
+            HttpConnection connection = iterator.next();
+            if (now - connection.getIdleSince() < this.idleTimeout) {
+                // the remaining connections are more recent
+                break;
+            }
+            iterator.remove();
+            expired.add(connection);
+        }
+        return expired;
+    }
+
+    /**
+     * Closes all idle connections. Connections in use are closed when they are released.
+     */
+    @Override
+    public void close() {
+        List<HttpConnection> connections;
+        synchronized (this) {
+            this.closed = true;
+            connections = new ArrayList<>(this.idle);
+            this.idle.clear();
+        }
+        connections.forEach(HttpConnection::close);
+    }
+
+    /**
+     * Opens new connections for the pool.
+     */
+    interface Connector {
+
+        /**
+         * @return A new connection.
+         * @throws IOException When the connection can't be opened.
+         */
+        HttpConnection connect() throws IOException;
+    }
+}
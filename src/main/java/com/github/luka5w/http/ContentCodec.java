@@ -0,0 +1,45 @@
+package com.github.luka5w.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A content coding (e.g. gzip), used for the {@code Content-Encoding} of requests and responses.
+ *
+ * @author Lukas https://github.com/luka5w
+ * @version 1.0.0
+ * @see ContentCodecs
+ */
+public interface ContentCodec {
+
+    /**
+     * @return The name of the coding in the {@code Content-Encoding} and {@code Accept-Encoding} headers.
+     *
+     * @since 1.0.0
+     */
+    String getName();
+
+    /**
+     * Creates a stream which decodes the content while it is read.
+     *
+     * @param in The encoded content.
+     * @return The decoded content.
+     * @throws IOException When the content can't be decoded (e.g. invalid header).
+     *
+     * @since 1.0.0
+     */
+    InputStream decode(InputStream in) throws IOException;
+
+    /**
+     * Creates a stream which encodes the content while it is written. Closing the stream finishes the encoding and
+     * closes the underlying stream.
+     *
+     * @param out The stream for the encoded content.
+     * @return The stream for the content.
+     * @throws IOException When the encoding can't be started.
+     *
+     * @since 1.0.0
+     */
+    OutputStream encode(OutputStream out) throws IOException;
+}
@@ -0,0 +1,222 @@
+package com.github.luka5w.http;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.lang.reflect.Constructor;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The content codings supported by the sessions.
+ *
+ * <p>gzip and deflate are always available. zstd is available when zstd-jni ({@code com.github.luben:zstd-jni}) is
+ * on the classpath. Other codings can be added with {@link #register(ContentCodec)}.</p>
+ *
+ * @author Lukas https://github.com/luka5w
+ * @version 1.0.0
+ */
+public final class ContentCodecs {
+
+    /**
+     * gzip (RFC 1952).
+     */
+    public static final ContentCodec GZIP = new ContentCodec() {
+        @Override
+        public String getName() {
+            return "gzip";
+        }
+
+        @Override
+        public InputStream decode(InputStream in) throws IOException {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+
+        @Override
+        public OutputStream encode(OutputStream out) throws IOException {
+            return new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+    };
+
+    /**
+     * deflate (zlib format, RFC 1950). Raw deflate data, sent by some servers, is detected when decoding.
+     */
+    public static final ContentCodec DEFLATE = new ContentCodec() {
+        @Override
+        public String getName() {
+            return "deflate";
+        }
+
+        @Override
+        public InputStream decode(InputStream in) throws IOException {
+            PushbackInputStream pushback = new PushbackInputStream(in, 2);
+            int first = pushback.read();
+            int second = pushback.read();
+            if (second != -1) {
+                pushback.unread(second);
+            }
+            if (first != -1) {
+                pushback.unread(first);
+            }
+            boolean zlib = (first & 0x0F) == 8 && ((first << 8) | second) % 31 == 0;
+            Inflater inflater = new Inflater(!zlib);
+            return new InflaterInputStream(pushback, inflater, BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    inflater.end();
+                }
+            };
+        }
+
+        @Override
+        public OutputStream encode(OutputStream out) {
+            Deflater deflater = new Deflater();
+            return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    deflater.end();
+                }
+            };
+        }
+    };
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final Map<String, ContentCodec> CODECS = new LinkedHashMap<>();
+
+    static {
+        register(GZIP);
+        register(DEFLATE);
+        ContentCodec zstd = zstd();
+        if (zstd != null) {
+            register(zstd);
+        }
+    }
+
+    private ContentCodecs() {
+    }
+
+    /**
+     * Adds a coding. A coding with the same name is replaced.
+     *
+     * @param codec The coding.
+     *
+     * @since 1.0.0
+     */
+    public static synchronized void register(ContentCodec codec) {
+        CODECS.put(codec.getName().toLowerCase(), codec);
+    }
+
+    /**
+     * Gets a coding by its name.
+     *
+     * @param name The name (case-insensitive).
+     * @return The coding or {null} when it is not supported.
+     *
+     * @since 1.0.0
+     */
+    public static synchronized ContentCodec get(String name) {
+        return CODECS.get(name.trim().toLowerCase());
+    }
+
+    /**
+     * @return The value of the {@code Accept-Encoding} header (all supported codings).
+     *
+     * @since 1.0.0
+     */
+    public static synchronized String getAcceptEncoding() {
+        return String.join(", ", CODECS.keySet());
+    }
+
+    /**
+     * Creates a body which encodes another body while it is written. The length of the encoded body is unknown, so
+     * it is sent chunked.
+     *
+     * @param body The body.
+     * @param codec The coding.
+     * @return The encoded body. The {@code Content-Encoding} header must be set by the caller.
+     *
+     * @since 1.0.0
+     */
+    public static HttpRequest.Body encode(HttpRequest.Body body, ContentCodec codec) {
+        return new HttpRequest.Body() {
+            @Override
+            public long getLength() {
+                return -1;
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                // the connection must not be closed when the encoding is finished
+                try (OutputStream encoder = codec.encode(new FilterOutputStream(out) {
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        this.out.write(b, off, len);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        this.flush();
+                    }
+                })) {
+                    body.writeTo(encoder);
+                }
+            }
+
+            @Override
+            public boolean isRepeatable() {
+                return body.isRepeatable();
+            }
+        };
+    }
+
+    /**
+     * Creates the zstd coding with zstd-jni, if available.
+     */
+    private static ContentCodec zstd() {
+        try {
+            Constructor<?> input = Class.forName("com.github.luben.zstd.ZstdInputStream").getConstructor(InputStream.class);
+            Constructor<?> output = Class.forName("com.github.luben.zstd.ZstdOutputStream").getConstructor(OutputStream.class);
+            return new ContentCodec() {
+                @Override
+                public String getName() {
+                    return "zstd";
+                }
+
+                @Override
+                public InputStream decode(InputStream in) throws IOException {
+                    return (InputStream) create(input, in);
+                }
+
+                @Override
+                public OutputStream encode(OutputStream out) throws IOException {
+                    return (OutputStream) create(output, out);
+                }
+            };
+        }
+        catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static Object create(Constructor<?> constructor, Object stream) throws IOException {
+        try {
+            return constructor.newInstance(stream);
+        }
+        catch (ReflectiveOperationException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("zstd not available: " + e, e);
+        }
+    }
+}
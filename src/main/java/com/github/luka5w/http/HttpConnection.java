@@ -0,0 +1,348 @@
+package com.github.luka5w.http;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A HTTP/1.1 connection to a server which can be used for multiple requests (keep-alive).
+ *
+ * @author Lukas https://github.com/luka5w
+ * @version 1.0.0
+ */
+class HttpConnection implements Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_LINE_LENGTH = 8192;
+
+    private final Socket socket;
+    private final BufferedInputStream in;
+    private final OutputStream out;
+    private long idleSince;
+    private boolean reused = false;
+    private long bytesRead = 0;
+    private long bytesWritten = 0;
+    private long firstByteTime;
+    private Cancellation cancellation;
+
+    /**
+     * @param socket The connected (and if required TLS handshaked) socket.
+     * @throws IOException When the streams of the socket can't be opened.
+     */
+    HttpConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new BufferedInputStream(new FilterInputStream(socket.getInputStream()) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b != -1) {
+                    HttpConnection.this.bytesRead++;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    HttpConnection.this.bytesRead += n;
+                }
+                return n;
+            }
+        }, BUFFER_SIZE);
+        this.out = new BufferedOutputStream(new FilterOutputStream(socket.getOutputStream()) {
+            @Override
+            public void write(int b) throws IOException {
+                this.out.write(b);
+                HttpConnection.this.bytesWritten++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                this.out.write(b, off, len);
+                HttpConnection.this.bytesWritten += len;
+            }
+        }, BUFFER_SIZE);
+    }
+
+    /**
+     * Writes the request line, the headers and the body of a request.
+     *
+     * @param request The request.
+     * @param host The value of the Host header.
+     * @param basePath The path of the base url, prepended to the path of the request.
+     * @param defaultHeaders Headers which are sent when the request does not set them.
+     * @throws IOException When writing fails.
+     */
+    void writeRequest(HttpRequest request, String host, String basePath, HttpHeaders defaultHeaders) throws IOException {
+        StringBuilder head = new StringBuilder(256);
+        head.append(request.getMethod().name()).append(' ').append(basePath).append(request.getPath()).append(" HTTP/1.1\r\n");
+        head.append("Host: ").append(host).append("\r\n");
+        HttpHeaders headers = request.getHeaders();
+        synchronized (defaultHeaders) {
+            for (Map.Entry<String, List<String>> header : defaultHeaders) {
+                if (!headers.contains(header.getKey())) {
+                    appendHeader(head, header.getKey(), header.getValue());
+                }
+            }
+        }
+        for (Map.Entry<String, List<String>> header : headers) {
+            appendHeader(head, header.getKey(), header.getValue());
+        }
+        HttpRequest.Body body = request.getBody();
+        if (body != null) {
+            if (body.getLength() >= 0) {
+                head.append("Content-Length: ").append(body.getLength()).append("\r\n");
+            }
+            else {
+                head.append("Transfer-Encoding: chunked\r\n");
+            }
+        }
+        else if (request.getMethod() == HttpMethod.POST || request.getMethod() == HttpMethod.PUT || request.getMethod() == HttpMethod.PATCH) {
+            head.append("Content-Length: 0\r\n");
+        }
+        head.append("\r\n");
+        this.out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+        if (body != null) {
+            if (body.getLength() >= 0) {
+                body.writeTo(this.out);
+            }
+            else {
+                ChunkedOutputStream chunked = new ChunkedOutputStream(this.out);
+                BufferedOutputStream buffered = new BufferedOutputStream(chunked, BUFFER_SIZE);
+                body.writeTo(buffered);
+                buffered.flush();
+                chunked.finish();
+            }
+        }
+        this.out.flush();
+    }
+
+    private static void appendHeader(StringBuilder head, String name, List<String> values) {
+        for (String value : values) {
+            head.append(name).append(": ").append(value).append("\r\n");
+        }
+    }
+
+    /**
+     * Reads the status line and the headers of a response. Interim responses (1XX) are skipped.
+     *
+     * @param request The request the response belongs to.
+     * @param pool The pool the connection gets released to when the response is closed.
+     * @return The response. The body has not been read yet.
+     * @throws IOException When reading fails or the response is malformed.
+     */
+    HttpResponse readResponse(HttpRequest request, ConnectionPool pool) throws IOException {
+        this.firstByteTime = 0;
+        String version;
+        int code;
+        String reason;
+        HttpHeaders headers;
+        do {
+            String statusLine = readLine(this.in);
+            if (this.firstByteTime == 0) {
+                this.firstByteTime = System.nanoTime();
+            }
+            String[] parts = statusLine.split(" ", 3);
+            if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+                throw new IOException("malformed status line: " + statusLine);
+            }
+            version = parts[0];
+            try {
+                code = Integer.parseInt(parts[1]);
+            }
+            catch (NumberFormatException e) {
+                throw new IOException("malformed status line: " + statusLine);
+            }
+            reason = parts.length == 3 ? parts[2] : "";
+            headers = this.readHeaders();
+        } while (code >= 100 && code < 200 && code != 101);
+
+        boolean keepAlive = "HTTP/1.0".equals(version)
+                ? headers.containsToken("Connection", "keep-alive")
+                : !headers.containsToken("Connection", "close");
+        BodyInputStream body;
+        if (request.getMethod() == HttpMethod.HEAD || code == 204 || code == 304 || code < 200) {
+            body = new BodyInputStream.Empty();
+        }
+        else if (headers.containsToken("Transfer-Encoding", "chunked")) {
+            body = new BodyInputStream.Chunked(this.in);
+        }
+        else if (headers.getContentLength() >= 0) {
+            body = new BodyInputStream.FixedLength(this.in, headers.getContentLength());
+        }
+        else {
+            body = new BodyInputStream.UntilClose(this.in);
+            keepAlive = false;
+        }
+        return new HttpResponse(code, reason, headers, body, this, pool, keepAlive);
+    }
+
+    private HttpHeaders readHeaders() throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        String line;
+        while (!(line = readLine(this.in)).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new IOException("malformed header: " + line);
+            }
+            headers.add(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+        }
+        return headers;
+    }
+
+    /**
+     * Reads a line terminated by LF (an optional CR is removed).
+     *
+     * @param in The stream to read from.
+     * @return The line.
+     * @throws EOFException When the stream ends before the first byte of the line.
+     * @throws IOException When reading fails or the line is too long.
+     */
+    static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) {
+                if (line.length() == 0) {
+                    throw new EOFException("connection closed by server");
+                }
+                throw new IOException("unexpected end of stream");
+            }
+            if (line.length() == MAX_LINE_LENGTH) {
+                throw new IOException("line too long");
+            }
+            line.append((char) b);
+        }
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(length - 1);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Checks whether an idle connection has been closed by the server.
+     *
+     * @return {true} when the connection can't be used anymore.
+     */
+    boolean isStale() {
+        if (this.socket.isClosed() || this.socket.isInputShutdown() || this.socket.isOutputShutdown()) {
+            return true;
+        }
+        try {
+            if (this.in.available() > 0) {
+                // data which does not belong to any request
+                return true;
+            }
+            int timeout = this.socket.getSoTimeout();
+            try {
+                this.socket.setSoTimeout(1);
+                this.in.mark(1);
+                if (this.in.read() == -1) {
+                    return true;
+                }
+                this.in.reset();
+                return true;
+            }
+            finally {
+                this.socket.setSoTimeout(timeout);
+            }
+        }
+        catch (SocketTimeoutException e) {
+            return false;
+        }
+        catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * @return The number of bytes read from the socket (as transferred, e.g. before decompression).
+     */
+    long getBytesRead() {
+        return this.bytesRead;
+    }
+
+    /**
+     * @return The number of bytes written to the socket.
+     */
+    long getBytesWritten() {
+        return this.bytesWritten;
+    }
+
+    /**
+     * @return The time the status line of the last response has been received ({@link System#nanoTime()}) or {0}.
+     */
+    long getFirstByteTime() {
+        return this.firstByteTime;
+    }
+
+    /**
+     * @return {true} when the connection has been used for a request before.
+     */
+    boolean isReused() {
+        return this.reused;
+    }
+
+    /**
+     * Binds the connection to the cancellation of the task which uses it, so it is closed when the task is cancelled.
+     *
+     * @param cancellation The cancellation.
+     * @throws InterruptedIOException When the task has been cancelled (the connection is closed).
+     */
+    void bind(Cancellation cancellation) throws InterruptedIOException {
+        this.unbind();
+        cancellation.register(this);
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Unbinds the connection from the cancellation passed to {@link #bind(Cancellation)}.
+     */
+    void unbind() {
+        if (this.cancellation != null) {
+            this.cancellation.unregister(this);
+            this.cancellation = null;
+        }
+    }
+
+    /**
+     * Marks the connection as idle.
+     *
+     * @param now The current time ({@link System#nanoTime()}).
+     */
+    void markIdle(long now) {
+        this.idleSince = now;
+        this.reused = true;
+    }
+
+    /**
+     * @return The time the connection became idle ({@link System#nanoTime()}).
+     */
+    long getIdleSince() {
+        return this.idleSince;
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.socket.close();
+        }
+        catch (IOException e) {
+            // nothing to do
+        }
+    }
+}
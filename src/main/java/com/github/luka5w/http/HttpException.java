@@ -0,0 +1,45 @@
+package com.github.luka5w.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the server answers a request with an unexpected status code.
+ *
+ * @author Lukas https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class HttpException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    /**
+     * Creates a new exception.
+     *
+     * @param statusCode The status code of the response.
+     * @param message The message (e.g. the error sent by the server).
+     */
+    public HttpException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * @return The status code of the response.
+     *
+     * @since 1.0.0
+     */
+    public int getStatusCode() {
+        return this.statusCode;
+    }
+
+    /**
+     * @return The status code of the response or {null} when the code is unknown.
+     *
+     * @since 1.0.0
+     */
+    public HttpStatusCode getStatus() {
+        return HttpStatusCode.findByCode(this.statusCode);
+    }
+}
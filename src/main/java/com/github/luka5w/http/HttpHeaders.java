@@ -0,0 +1,145 @@
+package com.github.luka5w.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The header fields of a HTTP request or response.
+ *
+ * <p>Header names are case-insensitive, a header may occur multiple times.</p>
+ *
+ * @author Lukas https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class HttpHeaders implements Iterable<Map.Entry<String, List<String>>> {
+
+    private final TreeMap<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    /**
+     * Adds a value to a header.
+     *
+     * @param name The name of the header.
+     * @param value The value to add.
+     * @return This instance.
+     *
+     * @since 1.0.0
+     */
+    public HttpHeaders add(String name, String value) {
+        this.headers.computeIfAbsent(name, k -> new ArrayList<>(1)).add(value);
+        return this;
+    }
+
+    /**
+     * Sets a header, replacing all existing values.
+     *
+     * @param name The name of the header.
+     * @param value The value of the header.
+     * @return This instance.
+     *
+     * @since 1.0.0
+     */
+    public HttpHeaders set(String name, String value) {
+        List<String> values = new ArrayList<>(1);
+        values.add(value);
+        this.headers.put(name, values);
+        return this;
+    }
+
+    /**
+     * Removes a header.
+     *
+     * @param name The name of the header.
+     *
+     * @since 1.0.0
+     */
+    public void remove(String name) {
+        this.headers.remove(name);
+    }
+
+    /**
+     * Gets the first value of a header.
+     *
+     * @param name The name of the header.
+     * @return The first value or {null} when the header is not present.
+     *
+     * @since 1.0.0
+     */
+    public String get(String name) {
+        List<String> values = this.headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    /**
+     * Gets all values of a header.
+     *
+     * @param name The name of the header.
+     * @return The values (may be empty).
+     *
+     * @since 1.0.0
+     */
+    public List<String> getAll(String name) {
+        List<String> values = this.headers.get(name);
+        return values == null ? Collections.emptyList() : Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Checks whether a header is present.
+     *
+     * @param name The name of the header.
+     * @return {true} when the header is present.
+     *
+     * @since 1.0.0
+     */
+    public boolean contains(String name) {
+        return this.headers.containsKey(name);
+    }
+
+    /**
+     * Checks whether a comma separated header contains a token (e.g. {@code Connection: close}).
+     *
+     * @param name The name of the header.
+     * @param token The token to search for (case-insensitive).
+     * @return {true} when the token is present.
+     *
+     * @since 1.0.0
+     */
+    public boolean containsToken(String name, String token) {
+        for (String value : this.getAll(name)) {
+            for (String part : value.split(",")) {
+                if (part.trim().equalsIgnoreCase(token)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the value of the Content-Length header.
+     *
+     * @return The content length or {-1} when the header is missing or invalid.
+     *
+     * @since 1.0.0
+     */
+    public long getContentLength() {
+        String value = this.get("Content-Length");
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public Iterator<Map.Entry<String, List<String>>> iterator() {
+        return Collections.unmodifiableMap(this.headers).entrySet().iterator();
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.luka5w.http;
+
+/**
+ * The HTTP request methods used by the client.
+ *
+ * @author Lukas https://github.com/luka5w
+ * @version 1.0.0
+ */
+public enum HttpMethod {
+    GET(true),
+    HEAD(true),
+    POST(false),
+    PUT(true),
+    PATCH(false),
+    DELETE(true);
+
+    private final boolean idempotent;
+
+    /**
+     * Creates a new HTTP method.
+     *
+     * @param idempotent Whether sending the request multiple times has the same effect as sending it once.
+     */
+    HttpMethod(boolean idempotent) {
+        this.idempotent = idempotent;
+    }
+
+    /**
+     * Gets whether the method is idempotent.
+     *
+     * @return {true} when the request can safely be sent again.
+     *
+     * @since 1.0.0
+     */
+    public boolean isIdempotent() {
+        return this.idempotent;
+    }
+}
@@ -0,0 +1,214 @@
+package com.github.luka5w.http;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Collects metrics of the requests of one or more sessions.
+ *
+ * <p>The requests are grouped by endpoint: the method and the path without query, where numeric and long hex path
+ * segments (ids, hashes) are replaced by {@value #ID}. For each endpoint, the number of requests per status code, the
+ * transferred bytes, the time to the first byte of the response and the total time (until the response is closed)
+ * are recorded. The DNS lookup, the TCP connect and the TLS handshake of new connections are recorded for all endpoints
+ * together, because a connection is opened before it is assigned to a request.</p>
+ *
+ * <p>Metrics are thread-safe.</p>
+ *
+ * @author Lukas https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class HttpMetrics {
+
+    /**
+     * The status of requests which failed without response (e.g. the connection has been reset).
+     */
+    public static final int NO_RESPONSE = 0;
+
+    private static final String ID = "{id}";
+    private static final Pattern ID_SEGMENT = Pattern.compile("[0-9]+|[0-9a-fA-F-]{16,}");
+
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final LatencyHistogram dns = new LatencyHistogram();
+    private final LatencyHistogram connect = new LatencyHistogram();
+    private final LatencyHistogram tls = new LatencyHistogram();
+
+    /**
+     * Gets the metrics of the endpoint of a request.
+     *
+     * @param request The request.
+     * @return The metrics of the endpoint.
+     */
+    Endpoint getEndpoint(HttpRequest request) {
+        return this.endpoints.computeIfAbsent(request.getMethod().name() + " " + normalize(request.getPath()), Endpoint::new);
+    }
+
+    /**
+     * Records the opening of a connection.
+     *
+     * @param dns The duration of the DNS lookup in nanoseconds.
+     * @param connect The duration of the TCP connect in nanoseconds.
+     * @param tls The duration of the TLS handshake in nanoseconds or {-1} for plain connections.
+     */
+    void recordConnection(long dns, long connect, long tls) {
+        this.dns.record(dns);
+        this.connect.record(connect);
+        if (tls >= 0) {
+            this.tls.record(tls);
+        }
+    }
+
+    /**
+     * @return The metrics of all endpoints which have been requested, by endpoint (sorted).
+     *
+     * @since 1.0.0
+     */
+    public Map<String, Endpoint> getEndpoints() {
+        return new TreeMap<>(this.endpoints);
+    }
+
+    /**
+     * @return The durations of DNS lookups.
+     *
+     * @since 1.0.0
+     */
+    public LatencyHistogram getDns() {
+        return this.dns;
+    }
+
+    /**
+     * @return The durations of TCP connects.
+     *
+     * @since 1.0.0
+     */
+    public LatencyHistogram getConnect() {
+        return this.connect;
+    }
+
+    /**
+     * @return The durations of TLS handshakes.
+     *
+     * @since 1.0.0
+     */
+    public LatencyHistogram getTls() {
+        return this.tls;
+    }
+
+    private static String normalize(String path) {
+        int query = path.indexOf('?');
+        if (query != -1) {
+            path = path.substring(0, query);
+        }
+        String[] segments = path.split("/", -1);
+        for (int i = 0; i < segments.length; i++) {
+            if (ID_SEGMENT.matcher(segments[i]).matches()) {
+                segments[i] = ID;
+            }
+        }
+        return String.join("/", segments);
+    }
+
+    /**
+     * The metrics of one endpoint.
+     */
+    public static class Endpoint {
+
+        private final String name;
+        private final ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final LatencyHistogram firstByte = new LatencyHistogram();
+        private final LatencyHistogram total = new LatencyHistogram();
+
+        private Endpoint(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Records a request.
+         *
+         * @param status The status code or {@link #NO_RESPONSE}.
+         * @param sent The number of bytes sent (head and body).
+         * @param received The number of bytes received (head and body, as transferred).
+         * @param firstByte The time until the status line has been received in nanoseconds or {-1}.
+         * @param total The time until the response has been closed (or the request failed) in nanoseconds.
+         */
+        void record(int status, long sent, long received, long firstByte, long total) {
+            this.statuses.computeIfAbsent(status, code -> new LongAdder()).increment();
+            this.bytesSent.add(sent);
+            this.bytesReceived.add(received);
+            this.firstByte.record(firstByte);
+            this.total.record(total);
+        }
+
+        /**
+         * @return The method and the normalized path, e.g. {@code GET /api/v1/files/{id}}.
+         *
+         * @since 1.0.0
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * @return The number of requests.
+         *
+         * @since 1.0.0
+         */
+        public long getRequests() {
+            return this.total.getCount();
+        }
+
+        /**
+         * @return The number of requests by status code ({@link #NO_RESPONSE} for failed requests), sorted.
+         *
+         * @since 1.0.0
+         */
+        public Map<Integer, Long> getStatuses() {
+            Map<Integer, Long> statuses = new TreeMap<>();
+            for (Map.Entry<Integer, LongAdder> status : this.statuses.entrySet()) {
+                statuses.put(status.getKey(), status.getValue().sum());
+            }
+            return statuses;
+        }
+
+        /**
+         * @return The number of bytes sent.
+         *
+         * @since 1.0.0
+         */
+        public long getBytesSent() {
+            return this.bytesSent.sum();
+        }
+
+        /**
+         * @return The number of bytes received.
+         *
+         * @since 1.0.0
+         */
+        public long getBytesReceived() {
+            return this.bytesReceived.sum();
+        }
+
+        /**
+         * @return The times to the first byte of the responses.
+         *
+         * @since 1.0.0
+         */
+        public LatencyHistogram getFirstByte() {
+            return this.firstByte;
+        }
+
+        /**
+         * @return The total times of the requests.
+         *
+         * @since 1.0.0
+         */
+        public LatencyHistogram getTotal() {
+            return this.total;
+        }
+    }
+}
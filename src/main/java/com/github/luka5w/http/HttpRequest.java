@@ -0,0 +1,208 @@
+package com.github.luka5w.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A HTTP request, executed by a {@link HttpSession}.
+ *
+ * @author Lukas https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class HttpRequest {
+
+    private final HttpMethod method;
+    private final String path;
+    private final HttpHeaders headers = new HttpHeaders();
+    private Body body;
+
+    /**
+     * Creates a new request.
+     *
+     * @param method The request method.
+     * @param path The path of the request, relative to the base url of the session (including the query).
+     */
+    public HttpRequest(HttpMethod method, String path) {
+        this.method = method;
+        this.path = path;
+    }
+
+    /**
+     * Sets a header of the request.
+     *
+     * @param name The name of the header.
+     * @param value The value of the header.
+     * @return This instance.
+     *
+     * @since 1.0.0
+     */
+    public HttpRequest header(String name, String value) {
+        this.headers.set(name, value);
+        return this;
+    }
+
+    /**
+     * Sets the body of the request.
+     *
+     * @param body The body or {null} for no body.
+     * @return This instance.
+     *
+     * @since 1.0.0
+     */
+    public HttpRequest body(Body body) {
+        this.body = body;
+        return this;
+    }
+
+    /**
+     * @return The request method.
+     *
+     * @since 1.0.0
+     */
+    public HttpMethod getMethod() {
+        return this.method;
+    }
+
+    /**
+     * @return The path (and query) of the request.
+     *
+     * @since 1.0.0
+     */
+    public String getPath() {
+        return this.path;
+    }
+
+    /**
+     * @return The headers of the request.
+     *
+     * @since 1.0.0
+     */
+    public HttpHeaders getHeaders() {
+        return this.headers;
+    }
+
+    /**
+     * @return The body of the request or {null}.
+     *
+     * @since 1.0.0
+     */
+    public Body getBody() {
+        return this.body;
+    }
+
+    /**
+     * Checks whether the request can be sent again after a failed attempt.
+     *
+     * @return {true} when the request has no body or the body can be written again.
+     *
+     * @since 1.0.0
+     */
+    public boolean isRepeatable() {
+        return this.body == null || this.body.isRepeatable();
+    }
+
+    /**
+     * The body of a request.
+     *
+     * @since 1.0.0
+     */
+    public interface Body {
+
+        /**
+         * The size of the buffer used to copy a body.
+         */
+        int COPY_BUFFER_SIZE = 64 * 1024;
+
+        /**
+         * @return The length of the body in bytes or {-1} when unknown (the body is sent chunked).
+         */
+        long getLength();
+
+        /**
+         * Writes the body.
+         *
+         * @param out The stream to write to. Must not be closed.
+         * @throws IOException When writing fails.
+         */
+        void writeTo(OutputStream out) throws IOException;
+
+        /**
+         * @return {true} when {@link #writeTo(OutputStream)} can be called multiple times.
+         */
+        default boolean isRepeatable() {
+            return true;
+        }
+
+        /**
+         * Creates a body from a byte array.
+         *
+         * @param data The content of the body.
+         * @return The body.
+         */
+        static Body of(byte[] data) {
+            return new Body() {
+                @Override
+                public long getLength() {
+                    return data.length;
+                }
+
+                @Override
+                public void writeTo(OutputStream out) throws IOException {
+                    out.write(data);
+                }
+            };
+        }
+
+        /**
+         * Creates a body from the remaining bytes of a buffer (e.g. a memory-mapped part of a file). The position of
+         * the buffer is not changed.
+         *
+         * @param buffer The content of the body.
+         * @return The body.
+         */
+        static Body of(ByteBuffer buffer) {
+            return new Body() {
+                @Override
+                public long getLength() {
+                    return buffer.remaining();
+                }
+
+                @Override
+                public void writeTo(OutputStream out) throws IOException {
+                    ByteBuffer source = buffer.duplicate();
+                    byte[] chunk = new byte[Math.min(source.remaining(), COPY_BUFFER_SIZE)];
+                    while (source.hasRemaining()) {
+                        int n = Math.min(source.remaining(), chunk.length);
+                        source.get(chunk, 0, n);
+                        out.write(chunk, 0, n);
+                    }
+                }
+            };
+        }
+
+        /**
+         * Creates a body from a file. The file is streamed when the body is written.
+         *
+         * @param file The file.
+         * @return The body.
+         * @throws IOException When the size of the file can't be read.
+         */
+        static Body of(Path file) throws IOException {
+            long length = Files.size(file);
+            return new Body() {
+                @Override
+                public long getLength() {
+                    return length;
+                }
+
+                @Override
+                public void writeTo(OutputStream out) throws IOException {
+                    Files.copy(file, out);
+                }
+            };
+        }
+    }
+}
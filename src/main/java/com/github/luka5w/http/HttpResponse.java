@@ -0,0 +1,228 @@
+package com.github.luka5w.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A HTTP response.
+ *
+ * <p>The body is read directly from the connection. The response must be closed to make the connection available to
+ * other requests.</p>
+ *
+ * @author Lukas https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class HttpResponse implements Closeable {
+
+    private static final int MAX_DRAIN = 64 * 1024;
+
+    private final int statusCode;
+    private final String reason;
+    private final HttpHeaders headers;
+    private final BodyInputStream body;
+    private final HttpConnection connection;
+    private final ConnectionPool pool;
+    private final boolean keepAlive;
+    private InputStream decoded;
+    private Runnable closeListener;
+    private boolean closed = false;
+
+    /**
+     * Creates a new response.
+     *
+     * @param statusCode The status code.
+     * @param reason The reason phrase.
+     * @param headers The headers.
+     * @param body The body.
+     * @param connection The connection the response is read from.
+     * @param pool The pool the connection is released to.
+     * @param keepAlive Whether the server allows to reuse the connection.
+     */
+    HttpResponse(int statusCode, String reason, HttpHeaders headers, BodyInputStream body, HttpConnection connection, ConnectionPool pool, boolean keepAlive) {
+        this.statusCode = statusCode;
+        this.reason = reason;
+        this.headers = headers;
+        this.body = body;
+        this.connection = connection;
+        this.pool = pool;
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * @return The status code.
+     *
+     * @since 1.0.0
+     */
+    public int getStatusCode() {
+        return this.statusCode;
+    }
+
+    /**
+     * @return The status code or {null} when the code is unknown.
+     *
+     * @since 1.0.0
+     */
+    public HttpStatusCode getStatus() {
+        return HttpStatusCode.findByCode(this.statusCode);
+    }
+
+    /**
+     * @return The reason phrase sent by the server.
+     *
+     * @since 1.0.0
+     */
+    public String getReason() {
+        return this.reason;
+    }
+
+    /**
+     * @return {true} when the status code is 2XX.
+     *
+     * @since 1.0.0
+     */
+    public boolean isSuccessful() {
+        return this.statusCode >= 200 && this.statusCode < 300;
+    }
+
+    /**
+     * @return The headers.
+     *
+     * @since 1.0.0
+     */
+    public HttpHeaders getHeaders() {
+        return this.headers;
+    }
+
+    /**
+     * Gets the body. Closing the stream has no effect, close the response instead.
+     *
+     * @return The body.
+     *
+     * @since 1.0.0
+     */
+    public InputStream getBody() {
+        return this.decoded != null ? this.decoded : this.body;
+    }
+
+    /**
+     * Decodes the body when it has a supported {@code Content-Encoding}. The {@code Content-Encoding} and
+     * {@code Content-Length} headers are removed, because they don't apply to the decoded body.
+     *
+     * @throws IOException When the decoding can't be started.
+     */
+    void decode() throws IOException {
+        String encoding = this.headers.get("Content-Encoding");
+        if (encoding == null || this.body.isComplete()) {
+            return;
+        }
+        ContentCodec codec = ContentCodecs.get(encoding);
+        if (codec == null) {
+            // e.g. identity or unsupported codings, left to the caller
+            return;
+        }
+        this.decoded = codec.decode(this.body);
+        this.headers.remove("Content-Encoding");
+        this.headers.remove("Content-Length");
+    }
+
+    /**
+     * Sets a listener which is called when the response is closed, before the connection is released.
+     *
+     * @param closeListener The listener.
+     */
+    void setCloseListener(Runnable closeListener) {
+        this.closeListener = closeListener;
+    }
+
+    /**
+     * Reads the whole body as string. Only use this for small bodies.
+     *
+     * @return The body, decoded with the charset of the Content-Type header (default UTF-8).
+     * @throws IOException When reading fails.
+     *
+     * @since 1.0.0
+     */
+    public String readString() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        InputStream body = this.getBody();
+        while ((n = body.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return new String(out.toByteArray(), this.getCharset());
+    }
+
+    /**
+     * @return The charset of the Content-Type header or UTF-8.
+     *
+     * @since 1.0.0
+     */
+    public Charset getCharset() {
+        String contentType = this.headers.get("Content-Type");
+        if (contentType != null) {
+            for (String parameter : contentType.split(";")) {
+                parameter = parameter.trim();
+                if (parameter.regionMatches(true, 0, "charset=", 0, 8)) {
+                    try {
+                        return Charset.forName(parameter.substring(8).replace("\"", ""));
+                    }
+                    catch (IllegalArgumentException e) {
+                        break;
+                    }
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Closes the response. If the body has been read (or is small enough to be skipped), the connection is returned
+     * to the pool, otherwise it is closed.
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        if (this.decoded != null) {
+            try {
+                // releases the native memory of the decoder, the connection is not closed
+                this.decoded.close();
+            }
+            catch (IOException e) {
+                // not reusable, checked by the drain
+            }
+        }
+        boolean reusable = this.keepAlive && this.drain();
+        if (this.closeListener != null) {
+            this.closeListener.run();
+        }
+        this.pool.release(this.connection, reusable);
+    }
+
+    private boolean drain() {
+        try {
+            byte[] buffer = new byte[4096];
+            int drained = 0;
+            while (!this.body.isComplete() && drained < MAX_DRAIN) {
+                int n = this.body.read(buffer);
+                if (n == -1) {
+                    break;
+                }
+                drained += n;
+            }
+            return this.body.isComplete();
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package com.github.luka5w.http;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A session to one HTTP(S) server.
+ *
+ * <p>All requests of a session share a pool of keep-alive connections, so the TCP and TLS handshakes are only done
+ * when no idle connection is available. New TLS connections resume cached TLS sessions (abbreviated handshake).</p>
+ *
+ * <p>Sessions are thread-safe.</p>
+ *
+ * @author Lukas https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class HttpSession implements Closeable {
+
+    private final String host;
+    private final int port;
+    private final boolean secure;
+    private final String hostHeader;
+    private final String basePath;
+    private final SessionConfig config;
+    private final FutureTask<SSLSocketFactory> sslSocketFactory;
+    private final ConnectionPool pool;
+    private final RequestScheduler scheduler;
+    private final HttpHeaders defaultHeaders = new HttpHeaders();
+    private volatile HttpMetrics metrics;
+
+    /**
+     * Creates a new session. No connection is opened until the first request. TLS is initialized in the background
+     * (loading the trust store takes a while), failures are reported by the first request.
+     *
+     * @param baseUri The base uri (scheme http or https, host, optional port and path).
+     * @param config The settings of the session.
+     *
+     * @since 1.0.0
+     */
+    public HttpSession(URI baseUri, SessionConfig config) {
+        if (baseUri.getHost() == null) {
+            throw new IllegalArgumentException("no host in " + baseUri);
+        }
+        this.secure = "https".equalsIgnoreCase(baseUri.getScheme());
+        if (!this.secure && !"http".equalsIgnoreCase(baseUri.getScheme())) {
+            throw new IllegalArgumentException("unsupported scheme: " + baseUri.getScheme());
+        }
+        this.host = baseUri.getHost();
+        this.port = baseUri.getPort() == -1 ? (this.secure ? 443 : 80) : baseUri.getPort();
+        this.hostHeader = baseUri.getPort() == -1 ? this.host : this.host + ":" + this.port;
+        String path = baseUri.getRawPath() == null ? "" : baseUri.getRawPath();
+        this.basePath = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        this.config = config;
+        if (this.secure) {
+            // while the first connection is opened
+            this.sslSocketFactory = new FutureTask<>(() -> createSslSocketFactory(config));
+            Thread thread = new Thread(this.sslSocketFactory, "tls-init");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        else {
+            this.sslSocketFactory = null;
+        }
+        this.pool = new ConnectionPool(this::connect, config.getPoolSize(), config.getIdleTimeout());
+        this.scheduler = new RequestScheduler(config.getRetryAttempts(), config.getRetryDelay(), config.getRetryMaxDelay(), config.getPoolSize());
+        this.defaultHeaders.set("User-Agent", "FileServerCLI");
+        if (config.isCompression()) {
+            this.defaultHeaders.set("Accept-Encoding", ContentCodecs.getAcceptEncoding());
+        }
+    }
+
+    /**
+     * Sets a header which is sent with every request (unless the request sets it).
+     *
+     * @param name The name of the header.
+     * @param value The value or {null} to remove the header.
+     *
+     * @since 1.0.0
+     */
+    public void setDefaultHeader(String name, String value) {
+        synchronized (this.defaultHeaders) {
+            if (value == null) {
+                this.defaultHeaders.remove(name);
+            }
+            else {
+                this.defaultHeaders.set(name, value);
+            }
+        }
+    }
+
+    /**
+     * Sets the metrics the requests of this session are recorded to.
+     *
+     * @param metrics The metrics or {null} to not record the requests.
+     *
+     * @since 1.0.0
+     */
+    public void setMetrics(HttpMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return The metrics the requests are recorded to or {null}.
+     *
+     * @since 1.0.0
+     */
+    public HttpMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * @return The scheduler which limits the concurrent requests and retries rejected requests.
+     *
+     * @since 1.0.0
+     */
+    public RequestScheduler getScheduler() {
+        return this.scheduler;
+    }
+
+    /**
+     * Executes a request.
+     *
+     * <p>The request waits until the {@link RequestScheduler} of the session allows it. When the server rejects it
+     * because of load ({@code 429} or {@code 503}), it is sent again after the delay of the scheduler (if the body is
+     * repeatable); the last response is returned when the attempts are exhausted. When a pooled connection turns out to
+     * be closed by the server, the request is sent again on a new connection (if the body is repeatable).</p>
+     *
+     * <p>When the {@link Cancellation} of the current thread is cancelled, the connection of the request is closed and
+     * the request fails with an {@link InterruptedIOException}.</p>
+     *
+     * <p>Bodies with a supported {@code Content-Encoding} (see {@link ContentCodecs}) are decoded while they are
+     * read.</p>
+     *
+     * @param request The request.
+     * @return The response. It must be closed.
+     * @throws IOException When the request can't be sent or the response can't be read.
+     *
+     * @since 1.0.0
+     */
+    public HttpResponse execute(HttpRequest request) throws IOException {
+        RequestScheduler scheduler = this.scheduler;
+        Cancellation cancellation = Cancellation.current();
+        for (int attempt = 1; ; attempt++) {
+            if (cancellation != null) {
+                cancellation.check();
+            }
+            long permit = scheduler.acquire();
+            HttpResponse response;
+            try {
+                response = this.send(request);
+            }
+            catch (IOException | RuntimeException e) {
+                scheduler.release(permit, HttpMetrics.NO_RESPONSE);
+                throw e;
+            }
+            // released when the head has been received, streaming the body does not load the server
+            int status = response.getStatusCode();
+            scheduler.release(permit, status);
+            if (!RequestScheduler.isThrottled(status) || !request.isRepeatable()) {
+                return response;
+            }
+            long delay = scheduler.getRetryDelay(attempt, response.getHeaders().get("Retry-After"));
+            if (delay < 0) {
+                return response;
+            }
+            response.close();
+            int next = attempt + 1;
+            scheduler.report(() -> status + " for " + request.getMethod() + " " + request.getPath() + ", retrying in " + delay
+                    + " ms (attempt " + next + " of " + scheduler.getMaxAttempts() + ", " + scheduler + ").");
+            if (cancellation != null) {
+                // ends the wait when the task is cancelled
+                cancellation.sleep(delay);
+                continue;
+            }
+            try {
+                Thread.sleep(delay);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting to retry the request");
+            }
+        }
+    }
+
+    private HttpResponse send(HttpRequest request) throws IOException {
+        HttpMetrics metrics = this.metrics;
+        HttpMetrics.Endpoint endpoint = metrics == null ? null : metrics.getEndpoint(request);
+        long start = System.nanoTime();
+        HttpResponse response = null;
+        for (int attempt = 0; response == null; attempt++) {
+            HttpConnection connection;
+            try {
+                connection = this.pool.acquire();
+            }
+            catch (IOException | RuntimeException e) {
+                if (endpoint != null) {
+                    endpoint.record(HttpMetrics.NO_RESPONSE, 0, 0, -1, System.nanoTime() - start);
+                }
+                throw e;
+            }
+            boolean reused = connection.isReused();
+            long written = connection.getBytesWritten();
+            long read = connection.getBytesRead();
+            try {
+                connection.writeRequest(request, this.hostHeader, this.basePath, this.defaultHeaders);
+                response = connection.readResponse(request, this.pool);
+            }
+            catch (IOException | RuntimeException e) {
+                this.pool.release(connection, false);
+                Cancellation cancellation = Cancellation.current();
+                boolean cancelled = cancellation != null && cancellation.isCancelled();
+                boolean closedByServer = e instanceof EOFException || e instanceof SocketException;
+                if (cancelled || !reused || !closedByServer || attempt > 0 || !request.isRepeatable()) {
+                    if (endpoint != null) {
+                        endpoint.record(HttpMetrics.NO_RESPONSE, connection.getBytesWritten() - written,
+                                connection.getBytesRead() - read, -1, System.nanoTime() - start);
+                    }
+                    if (cancelled) {
+                        // the connection has been closed by the cancellation
+                        throw new InterruptedIOException("cancelled");
+                    }
+                    throw e;
+                }
+            }
+            if (response != null && endpoint != null) {
+                HttpResponse recorded = response;
+                recorded.setCloseListener(() -> endpoint.record(recorded.getStatusCode(),
+                        connection.getBytesWritten() - written, connection.getBytesRead() - read,
+                        connection.getFirstByteTime() - start, System.nanoTime() - start));
+            }
+        }
+        try {
+            response.decode();
+        }
+        catch (IOException | RuntimeException e) {
+            response.close();
+            throw e;
+        }
+        return response;
+    }
+
+    private HttpConnection connect() throws IOException {
+        long start = System.nanoTime();
+        InetAddress address = InetAddress.getByName(this.host);
+        long resolved = System.nanoTime();
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.connect(new InetSocketAddress(address, this.port), this.config.getConnectTimeout());
+            long connected = System.nanoTime();
+            socket.setSoTimeout(this.config.getReadTimeout());
+            long handshake = -1;
+            if (this.secure) {
+                SSLSocketFactory factory = this.getSslSocketFactory();
+                // without the wait for the initialization
+                long initialized = System.nanoTime();
+                SSLSocket sslSocket = (SSLSocket) factory.createSocket(socket, this.host, this.port, true);
+                SSLParameters parameters = sslSocket.getSSLParameters();
+                parameters.setEndpointIdentificationAlgorithm("HTTPS");
+                sslSocket.setSSLParameters(parameters);
+                sslSocket.startHandshake();
+                handshake = System.nanoTime() - initialized;
+                socket = sslSocket;
+            }
+            HttpMetrics metrics = this.metrics;
+            if (metrics != null) {
+                metrics.recordConnection(resolved - start, connected - resolved, handshake);
+            }
+            return new HttpConnection(socket);
+        }
+        catch (IOException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The settings of the session.
+     *
+     * @since 1.0.0
+     */
+    public SessionConfig getConfig() {
+        return this.config;
+    }
+
+    /**
+     * @return The number of idle connections in the pool.
+     *
+     * @since 1.0.0
+     */
+    public int getIdleConnections() {
+        return this.pool.getIdleCount();
+    }
+
+    /**
+     * Closes all idle connections. Requests in progress are not interrupted.
+     *
+     * @since 1.0.0
+     */
+    @Override
+    public void close() {
+        this.pool.close();
+    }
+
+    private SSLSocketFactory getSslSocketFactory() throws IOException {
+        try {
+            return this.sslSocketFactory.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while TLS is initialized");
+        }
+        catch (ExecutionException e) {
+            throw new IOException("TLS can't be initialized: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static SSLSocketFactory createSslSocketFactory(SessionConfig config) throws GeneralSecurityException {
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, null, null);
+        SSLSessionContext sessions = context.getClientSessionContext();
+        sessions.setSessionCacheSize(config.getTlsSessionCacheSize());
+        sessions.setSessionTimeout(config.getTlsSessionTimeout());
+        return context.getSocketFactory();
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.luka5w.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations with a fixed relative precision (like HdrHistogram).
+ *
+ * <p>The durations are recorded in microseconds into log-linear buckets: every power of two is divided into 16
+ * buckets, so percentiles are accurate to about 3% at any magnitude, with a fixed memory size. Recording is
+ * lock-free.</p>
+ *
+ * @author Lukas https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR = 32;
+    private static final int SUB_BUCKETS = 16;
+    private static final int BUCKETS = LINEAR + (63 - 5) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration in nanoseconds. Negative durations are ignored.
+     *
+     * @since 1.0.0
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        this.counts.incrementAndGet(index(micros));
+        this.count.increment();
+        this.sum.add(micros);
+        this.max.accumulateAndGet(micros, Math::max);
+    }
+
+    /**
+     * @return The number of recorded durations.
+     *
+     * @since 1.0.0
+     */
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    /**
+     * @return The sum of the recorded durations in microseconds.
+     *
+     * @since 1.0.0
+     */
+    public long getSum() {
+        return this.sum.sum();
+    }
+
+    /**
+     * @return The longest recorded duration in microseconds.
+     *
+     * @since 1.0.0
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Gets a percentile of the recorded durations.
+     *
+     * @param percentile The percentile (e.g. {@code 99.9}).
+     * @return The duration in microseconds (the middle of its bucket) or {0} when nothing has been recorded.
+     *
+     * @since 1.0.0
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += this.counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts.get(i);
+            if (seen >= rank) {
+                return Math.min(value(i), this.getMax());
+            }
+        }
+        return this.getMax();
+    }
+
+    /**
+     * The values 0 to 31 have their own buckets, every following power of two is divided into 16 buckets.
+     */
+    private static int index(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 4;
+        return LINEAR + (shift - 1) * SUB_BUCKETS + (int) ((value >> shift) - SUB_BUCKETS);
+    }
+
+    private static long value(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+        long mantissa = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+        return (mantissa << shift) + (1L << (shift - 1));
+    }
+}
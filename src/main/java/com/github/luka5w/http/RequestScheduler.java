@@ -0,0 +1,248 @@
+package com.github.luka5w.http;
+
+import java.io.InterruptedIOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of concurrent requests of a session and decides when requests which the server rejected because
+ * of load ({@link HttpStatusCode#TOO_MANY_REQUESTS}, {@link HttpStatusCode#SERVICE_UNAVAILABLE}) are sent again.
+ *
+ * <p>The limit is adapted with AIMD (like the congestion window of TCP): it starts at the maximum, is halved when the
+ * server rejects a request and grows by one request per round of successful requests, so bulk operations settle at
+ * the concurrency the server sustains instead of sending more requests into an overloaded server. A rejection only
+ * lowers the limit once for all requests which have been started before it.</p>
+ *
+ * <p>Rejected requests are retried after the time of the {@code Retry-After} header (seconds or HTTP date), during
+ * which no other request is started, or after an exponential backoff with jitter, so retries of concurrent requests
+ * are spread out.</p>
+ *
+ * <p>Schedulers are thread-safe.</p>
+ *
+ * @author Lukas https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class RequestScheduler {
+
+    private static final double DECREASE_FACTOR = 0.5;
+
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+    private final int maxLimit;
+    private double limit;
+    private int inFlight = 0;
+    private long pausedUntil = 0;
+    private long started = 0;
+    private long lastDecrease = 0;
+    private volatile Consumer<String> listener;
+
+    /**
+     * Creates a new scheduler.
+     *
+     * @param maxAttempts The maximum number of attempts of a rejected request ({1} to never retry).
+     * @param baseDelay The delay in milliseconds before the first retry, doubled for every further retry.
+     * @param maxDelay The maximum delay in milliseconds. Requests are not retried when the server asks for a longer
+     *                 delay.
+     * @param maxLimit The maximum number of concurrent requests.
+     *
+     * @since 1.0.0
+     */
+    public RequestScheduler(int maxAttempts, long baseDelay, long maxDelay, int maxLimit) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("attempts must be at least 1");
+        }
+        if (maxLimit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = Math.max(1, baseDelay);
+        this.maxDelay = Math.max(this.baseDelay, maxDelay);
+        this.maxLimit = maxLimit;
+        this.limit = maxLimit;
+    }
+
+    /**
+     * Sets the listener which receives a description of every change of the limit and every retry (e.g. for a debug
+     * log).
+     *
+     * @param listener The listener or {null}.
+     *
+     * @since 1.0.0
+     */
+    public void setListener(Consumer<String> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return The current limit of concurrent requests.
+     *
+     * @since 1.0.0
+     */
+    public synchronized int getLimit() {
+        return (int) this.limit;
+    }
+
+    /**
+     * @return The number of requests which are currently sent.
+     *
+     * @since 1.0.0
+     */
+    public synchronized int getInFlight() {
+        return this.inFlight;
+    }
+
+    /**
+     * @param statusCode A status code.
+     * @return {true} when the server rejected the request because of load.
+     *
+     * @since 1.0.0
+     */
+    public static boolean isThrottled(int statusCode) {
+        return statusCode == HttpStatusCode.TOO_MANY_REQUESTS.getCode() || statusCode == HttpStatusCode.SERVICE_UNAVAILABLE.getCode();
+    }
+
+    /**
+     * Waits until a request can be started.
+     *
+     * @return The number of the request, passed to {@link #release(long, int)}.
+     * @throws InterruptedIOException When the thread has been interrupted while waiting.
+     */
+    synchronized long acquire() throws InterruptedIOException {
+        try {
+            while (true) {
+                long paused = this.pausedUntil - System.currentTimeMillis();
+                if (paused > 0) {
+                    this.wait(paused);
+                }
+                else if (this.inFlight >= (int) this.limit) {
+                    this.wait();
+                }
+                else {
+                    break;
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for the request limit");
+        }
+        this.inFlight++;
+        return ++this.started;
+    }
+
+    /**
+     * Releases a request after its response has been received and adapts the limit.
+     *
+     * @param request The value returned by {@link #acquire()}.
+     * @param statusCode The status code of the response or {@link HttpMetrics#NO_RESPONSE}.
+     */
+    void release(long request, int statusCode) {
+        String change = null;
+        synchronized (this) {
+            this.inFlight--;
+            int previous = (int) this.limit;
+            if (isThrottled(statusCode)) {
+                // the requests started before the last decrease were sent with the old limit
+                if (request > this.lastDecrease) {
+                    this.limit = Math.max(1, this.limit * DECREASE_FACTOR);
+                    this.lastDecrease = this.started;
+                    change = "Request limit " + previous + " -> " + (int) this.limit + " after " + statusCode + ", " + this.inFlight + " in flight.";
+                }
+            }
+            else if (statusCode != HttpMetrics.NO_RESPONSE && statusCode < 500 && this.limit < this.maxLimit) {
+                // one more request per round of successful requests
+                this.limit = Math.min(this.maxLimit, this.limit + 1 / this.limit);
+                if ((int) this.limit != previous) {
+                    change = "Request limit " + previous + " -> " + (int) this.limit + ", " + this.inFlight + " in flight.";
+                }
+            }
+            this.notifyAll();
+        }
+        Consumer<String> listener = this.listener;
+        if (change != null && listener != null) {
+            listener.accept(change);
+        }
+    }
+
+    /**
+     * Gets the delay before a rejected request is sent again. When the server sent a {@code Retry-After} header, no
+     * request is started until it has passed.
+     *
+     * @param attempt The number of the attempt which has been rejected (starting at {1}).
+     * @param retryAfter The value of the {@code Retry-After} header or {null}.
+     * @return The delay in milliseconds or {-1} when the request must not be retried.
+     */
+    long getRetryDelay(int attempt, String retryAfter) {
+        if (attempt >= this.maxAttempts) {
+            return -1;
+        }
+        long requested = parseRetryAfter(retryAfter);
+        if (requested > this.maxDelay) {
+            return -1;
+        }
+        if (requested >= 0) {
+            synchronized (this) {
+                this.pausedUntil = Math.max(this.pausedUntil, System.currentTimeMillis() + requested);
+            }
+            // the paused requests should not be sent at the same time again
+            return requested + ThreadLocalRandom.current().nextLong(this.baseDelay);
+        }
+        long backoff = Math.min(this.maxDelay, this.baseDelay << Math.min(attempt - 1, 30));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    /**
+     * @return The maximum number of attempts of a rejected request.
+     */
+    int getMaxAttempts() {
+        return this.maxAttempts;
+    }
+
+    /**
+     * Passes a message to the listener.
+     *
+     * @param message Creates the message (only called when a listener is set).
+     */
+    void report(Supplier<String> message) {
+        Consumer<String> listener = this.listener;
+        if (listener != null) {
+            listener.accept(message.get());
+        }
+    }
+
+    /**
+     * Parses the value of a {@code Retry-After} header.
+     *
+     * @param value The value (seconds or HTTP date) or {null}.
+     * @return The delay in milliseconds or {-1} when the value is missing or invalid.
+     */
+    static long parseRetryAfter(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return -1;
+        }
+        value = value.trim();
+        try {
+            long seconds = Long.parseLong(value);
+            return seconds < 0 ? -1 : Math.min(seconds, Long.MAX_VALUE / 1000) * 1000;
+        }
+        catch (NumberFormatException e) {
+            // a date
+        }
+        try {
+            return Math.max(0, ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() - System.currentTimeMillis());
+        }
+        catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "limit " + (int) this.limit + "/" + this.maxLimit + ", " + this.inFlight + " in flight";
+    }
+}
@@ -0,0 +1,146 @@
+package com.github.luka5w.http;
+
+/**
+ * The settings of a {@link HttpSession}.
+ *
+ * @author Lukas https://github.com/luka5w
+ * @version 1.0.0
+ */
+public class SessionConfig {
+
+    private final int poolSize;
+    private final long idleTimeout;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final int tlsSessionCacheSize;
+    private final int tlsSessionTimeout;
+    private final boolean compression;
+    private final int retryAttempts;
+    private final long retryDelay;
+    private final long retryMaxDelay;
+
+    /**
+     * Creates a new session config.
+     *
+     * @param poolSize The maximum number of connections to the server.
+     * @param idleTimeout The time in milliseconds after which idle connections are closed.
+     * @param connectTimeout The timeout in milliseconds for opening a connection.
+     * @param readTimeout The timeout in milliseconds for reading from a connection.
+     * @param tlsSessionCacheSize The number of TLS sessions cached for resumption.
+     * @param tlsSessionTimeout The time in seconds a TLS session can be resumed.
+     * @param compression Whether compressed responses are accepted ({@code Accept-Encoding} header).
+     * @param retryAttempts The maximum number of attempts of requests rejected because of load (see
+     *                      {@link RequestScheduler}).
+     * @param retryDelay The delay in milliseconds before the first retry of a rejected request.
+     * @param retryMaxDelay The maximum delay in milliseconds before a retry.
+     */
+    public SessionConfig(int poolSize, long idleTimeout, int connectTimeout, int readTimeout, int tlsSessionCacheSize, int tlsSessionTimeout, boolean compression,
+                         int retryAttempts, long retryDelay, long retryMaxDelay) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("pool size must be at least 1");
+        }
+        if (retryAttempts < 1) {
+            throw new IllegalArgumentException("retry attempts must be at least 1");
+        }
+        this.poolSize = poolSize;
+        this.idleTimeout = idleTimeout;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.tlsSessionCacheSize = tlsSessionCacheSize;
+        this.tlsSessionTimeout = tlsSessionTimeout;
+        this.compression = compression;
+        this.retryAttempts = retryAttempts;
+        this.retryDelay = retryDelay;
+        this.retryMaxDelay = retryMaxDelay;
+    }
+
+    /**
+     * @return The maximum number of connections to the server.
+     *
+     * @since 1.0.0
+     */
+    public int getPoolSize() {
+        return this.poolSize;
+    }
+
+    /**
+     * @return The time in milliseconds after which idle connections are closed.
+     *
+     * @since 1.0.0
+     */
+    public long getIdleTimeout() {
+        return this.idleTimeout;
+    }
+
+    /**
+     * @return The timeout in milliseconds for opening a connection.
+     *
+     * @since 1.0.0
+     */
+    public int getConnectTimeout() {
+        return this.connectTimeout;
+    }
+
+    /**
+     * @return The timeout in milliseconds for reading from a connection.
+     *
+     * @since 1.0.0
+     */
+    public int getReadTimeout() {
+        return this.readTimeout;
+    }
+
+    /**
+     * @return The number of TLS sessions cached for resumption.
+     *
+     * @since 1.0.0
+     */
+    public int getTlsSessionCacheSize() {
+        return this.tlsSessionCacheSize;
+    }
+
+    /**
+     * @return The time in seconds a TLS session can be resumed.
+     *
+     * @since 1.0.0
+     */
+    public int getTlsSessionTimeout() {
+        return this.tlsSessionTimeout;
+    }
+
+    /**
+     * @return Whether compressed responses are accepted.
+     *
+     * @since 1.0.0
+     */
+    public boolean isCompression() {
+        return this.compression;
+    }
+
+    /**
+     * @return The maximum number of attempts of requests rejected because of load.
+     *
+     * @since 1.0.0
+     */
+    public int getRetryAttempts() {
+        return this.retryAttempts;
+    }
+
+    /**
+     * @return The delay in milliseconds before the first retry of a rejected request.
+     *
+     * @since 1.0.0
+     */
+    public long getRetryDelay() {
+        return this.retryDelay;
+    }
+
+    /**
+     * @return The maximum delay in milliseconds before a retry.
+     *
+     * @since 1.0.0
+     */
+    public long getRetryMaxDelay() {
+        return this.retryMaxDelay;
+    }
+}